@@ -0,0 +1,172 @@
+package de.grashof.taskwall.archive;
+
+import de.grashof.taskwall.beans.persistence.LeasePersistence;
+import de.grashof.taskwall.entity.ArchiveSegment;
+import de.grashof.taskwall.entity.ArchivedTask;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+
+/**
+ * Moves ArchivedTasks that were finished long ago out of the database into the
+ * cold archive. Every run writes the oldest ArchivedTasks into a new segment,
+ * registers the segment and deletes the ArchivedTasks within one transaction.
+ * So the table of ArchivedTasks and its indexes only hold the recent history.
+ * <p>
+ * The timer fires on every node of a cluster, but only the node taking the
+ * lease of the job runs it. The segment is written into the archive directory,
+ * which all nodes have to share; the other nodes open it when they find its
+ * registration (see ColdStorage). If the ArchivedTasks were deleted by another
+ * run nevertheless, the run rolls back and its segment is discarded.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ArchiveTiering {
+
+    /**
+     * The maximum number of ArchivedTasks moved by one run.
+     */
+    private static final int BATCH = 10000;
+
+    /**
+     * The maximum number of ids in one DELETE statement.
+     */
+    private static final int DELETE_CHUNK = 500;
+
+    /**
+     * The name of the lease of the job.
+     */
+    private static final String LEASE = "ARCHIVETIERING";
+
+    /**
+     * The time in milliseconds a node holds the lease. It is shorter than the
+     * interval of the timer, so the next run may start on any node.
+     */
+    private static final long LEASE_DURATION = 50 * 60 * 1000L;
+
+    /**
+     * The number of days an ArchivedTask stays in the database after it was
+     * finished.
+     */
+    @Resource(name = "archive/hotDays")
+    private Integer hotDays = 365;
+
+    /**
+     * The number of ArchivedTasks moved by the last run.
+     */
+    private volatile int lastMoved = 0;
+
+    /**
+     * The EntityManager is the connection to the database of the application.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Used to get the directory of the segment files.
+     */
+    @EJB
+    private ColdStorage coldStorage;
+
+    /**
+     * Used to run the job on only one node of the cluster.
+     */
+    @EJB
+    private LeasePersistence leasePersistence;
+
+    /**
+     * Announces the new segment, so it is opened after the commit.
+     */
+    @Inject
+    private Event<SegmentCreatedEvent> segmentCreated;
+
+    /**
+     * Moves the oldest ArchivedTasks that were finished before the configured
+     * number of days into a new segment. Nothing is done if another node
+     * holds the lease of the job.
+     */
+    @Schedule(hour = "*", minute = "15", persistent = false)
+    public void tier() {
+        if (!leasePersistence.claim(LEASE, LEASE_DURATION)) {
+            return;
+        }
+        Calendar cutoff = Calendar.getInstance();
+        cutoff.add(Calendar.DAY_OF_MONTH, -hotDays);
+        List<ArchivedTask> tasks = entityManager.createNamedQuery("getArchivedTasksBefore", ArchivedTask.class)
+                .setParameter("cutoff", cutoff.getTime(), TemporalType.DATE)
+                .setMaxResults(BATCH)
+                .getResultList();
+        if (tasks.isEmpty()) {
+            lastMoved = 0;
+            return;
+        }
+        List<Long> ids = new ArrayList<>(tasks.size());
+        for (ArchivedTask task : tasks) {
+            task.getDescription();
+            ids.add(task.getId());
+        }
+
+        ArchiveSegment segment = new ArchiveSegment(tasks.size());
+        entityManager.persist(segment);
+        entityManager.flush();
+        String name = String.format("segment-%010d", segment.getId());
+        segment.setName(name);
+        try {
+            SegmentWriter.write(coldStorage.getDirectory(), name, tasks);
+        } catch (IOException ex) {
+            Logger.getLogger(ArchiveTiering.class.getName()).log(Level.SEVERE, null, ex);
+            throw new EJBException("The cold archive segment " + name + " could not be written", ex);
+        }
+        segmentCreated.fire(new SegmentCreatedEvent(name));
+
+        int deleted = 0;
+        for (int start = 0; start < ids.size(); start += DELETE_CHUNK) {
+            deleted += entityManager.createNamedQuery("deleteArchivedTasks")
+                    .setParameter("ids", ids.subList(start, Math.min(start + DELETE_CHUNK, ids.size())))
+                    .executeUpdate();
+        }
+        if (deleted != ids.size()) {
+            throw new EJBException("The ArchivedTasks of segment " + name + " were moved by another run");
+        }
+        lastMoved = tasks.size();
+    }
+
+    /**
+     * Deletes the files of a segment whose transaction rolled back.
+     *
+     * @param event the event naming the segment
+     */
+    public void discard(@Observes(during = TransactionPhase.AFTER_FAILURE) SegmentCreatedEvent event) {
+        SegmentWriter.delete(coldStorage.getDirectory(), event.getName());
+    }
+
+    /**
+     * Gets the number of ArchivedTasks moved by the last run.
+     *
+     * @return the number of moved ArchivedTasks
+     */
+    public int getLastMoved() {
+        return lastMoved;
+    }
+}
@@ -0,0 +1,392 @@
+package de.grashof.taskwall.archive;
+
+import de.grashof.taskwall.entity.ArchiveSegment;
+import de.grashof.taskwall.entity.ArchivedTask;
+import de.grashof.taskwall.entity.TaskSummary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * The cold archive: ArchivedTasks that were moved out of the database into
+ * segment files by the ArchiveTiering. All Tasks in the cold archive were
+ * finished before every ArchivedTask still in the database, and a segment only
+ * holds Tasks finished before those of every later segment. So the finished
+ * Tasks of a user are displayed in the order database, newest segment, ...,
+ * oldest segment.
+ * <p>
+ * In a cluster the archive directory has to be shared by all nodes: a segment
+ * is written on the node running the ArchiveTiering, and every other node
+ * opens it once it finds its registration in the database, at the latest a
+ * minute after the commit. A registered segment that cannot be opened is
+ * logged once and retried with every refresh.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@Startup
+@DependsOn("SchemaMigrator")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ColdStorage {
+
+    /**
+     * The directory of the segment files. If it is not configured, the
+     * directory "taskwall-archive" in the domain of the server is used.
+     */
+    @Resource(name = "archive/directory")
+    private String directoryName = "";
+
+    /**
+     * The directory of the segment files.
+     */
+    private File directory;
+
+    /**
+     * The age in milliseconds after which a segment file without a
+     * registration is deleted. It is far longer than any tiering run, so the
+     * files of a run still writing on another node are kept.
+     */
+    private static final long ORPHAN_AGE = 24 * 60 * 60 * 1000L;
+
+    /**
+     * The opened segments, the oldest first. The List is never changed but
+     * replaced as a whole.
+     */
+    private volatile List<Segment> segments = Collections.emptyList();
+
+    /**
+     * The names of the registered segments that could not be opened, so the
+     * failure is only logged once.
+     */
+    private final Set<String> failed = new HashSet<>();
+
+    /**
+     * The EntityManager is the connection to the database of the application.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Opens all registered segments and deletes old segment files without a
+     * registration.
+     */
+    @PostConstruct
+    public void open() {
+        if (directoryName == null || directoryName.trim().isEmpty()) {
+            String root = System.getProperty("com.sun.aas.instanceRoot", System.getProperty("user.home"));
+            directory = new File(root, "taskwall-archive");
+        } else {
+            directory = new File(directoryName.trim());
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Logger.getLogger(ColdStorage.class.getName()).log(Level.SEVERE,
+                    "The cold archive directory {0} could not be created", directory);
+        }
+        refresh();
+        deleteOrphans();
+    }
+
+    /**
+     * Opens the registered segments that are not opened yet, so the segments
+     * written by the other nodes of a cluster are found.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void refresh() {
+        List<ArchiveSegment> registrations = entityManager.createNamedQuery("getArchiveSegments",
+                ArchiveSegment.class).getResultList();
+        Set<String> opened = new HashSet<>();
+        for (Segment segment : segments) {
+            opened.add(segment.getName());
+        }
+        for (ArchiveSegment registration : registrations) {
+            if (!opened.contains(registration.getName())) {
+                install(registration.getName());
+            }
+        }
+    }
+
+    /**
+     * Deletes the segment files without a registration. They belong to a
+     * tiering run that did not commit; files younger than a day are kept, as
+     * their run may still be writing on another node.
+     */
+    @Schedule(hour = "3", minute = "45", persistent = false)
+    public void deleteOrphans() {
+        Set<String> registered = new HashSet<>();
+        for (ArchiveSegment registration : entityManager.createNamedQuery("getArchiveSegments",
+                ArchiveSegment.class).getResultList()) {
+            registered.add(registration.getName());
+        }
+        long cutoff = System.currentTimeMillis() - ORPHAN_AGE;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                int dot = name.lastIndexOf('.');
+                if (name.startsWith("segment-") && dot > 0 && !registered.contains(name.substring(0, dot))
+                        && file.lastModified() < cutoff) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a segment as soon as the transaction registering it committed.
+     *
+     * @param event the event naming the new segment
+     */
+    public void segmentCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) SegmentCreatedEvent event) {
+        install(event.getName());
+    }
+
+    /**
+     * Gets the directory of the segment files.
+     *
+     * @return the directory of the segment files
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gives the summaries of the finished Tasks of a user in the cold archive,
+     * starting next to the passed finish date and id. In display order the
+     * most recently finished Tasks come first; reading backwards returns the
+     * Tasks before the passed one, the nearest first.
+     *
+     * @param receiverId the id of the user that was assigned the Tasks
+     * @param from the earliest finish date; null for no restriction
+     * @param until the latest finish date; null for no restriction
+     * @param seekFinished the finish date to start next to; null to start at
+     * the beginning (or the end if reading backwards)
+     * @param seekId the id to start next to; null together with seekFinished
+     * @param backwards true to read against the display order
+     * @param limit the maximum number of summaries
+     * @return the summaries in the order they were read
+     */
+    public List<TaskSummary> getPage(long receiverId, Date from, Date until,
+            Date seekFinished, Long seekId, boolean backwards, int limit) {
+        List<TaskSummary> page = new ArrayList<>();
+        boolean seek = seekFinished != null && seekId != null;
+        long lowest = from == null ? Long.MIN_VALUE : from.getTime();
+        long highest = until == null ? Long.MAX_VALUE : until.getTime();
+        List<Segment> opened = new ArrayList<>(segments);
+        for (int s = 0; s < opened.size() && page.size() < limit; s++) {
+            Segment segment = opened.get(backwards ? s : opened.size() - 1 - s);
+            int first = segment.first(receiverId);
+            int end = segment.end(receiverId);
+            if (!backwards) {
+                int start = seek ? segment.seek(first, end, seekFinished.getTime(), seekId, false) : first;
+                for (int p = start; p < end && page.size() < limit; p++) {
+                    long finished = segment.getFinished(p);
+                    if (finished < lowest) {
+                        return page;
+                    }
+                    if (finished <= highest) {
+                        add(page, segment, p);
+                    }
+                }
+            } else {
+                int stop = seek ? segment.seek(first, end, seekFinished.getTime(), seekId, true) : end;
+                for (int p = stop - 1; p >= first && page.size() < limit; p--) {
+                    long finished = segment.getFinished(p);
+                    if (finished > highest) {
+                        return page;
+                    }
+                    if (finished >= lowest) {
+                        add(page, segment, p);
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Gives a finished Task from the cold archive including its description.
+     *
+     * @param id the id of the ArchivedTask
+     * @param receiverId the id of the user the Task has to be assigned to
+     * @return the ArchivedTask; null if there is no such Task assigned to the
+     * user
+     */
+    public ArchivedTask find(long id, long receiverId) {
+        for (Segment segment : segments) {
+            int end = segment.end(receiverId);
+            for (int p = segment.first(receiverId); p < end; p++) {
+                if (segment.getId(p) == id) {
+                    try {
+                        return segment.read(p);
+                    } catch (IOException ex) {
+                        Logger.getLogger(ColdStorage.class.getName()).log(Level.SEVERE, null, ex);
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads every ArchivedTask in the cold archive, oldest segment first, and
+     * hands it to the visitor. Corrupt records are logged and skipped.
+     *
+     * @param visitor the visitor receiving the ArchivedTasks
+     */
+    public void visit(Visitor visitor) {
+        for (Segment segment : new ArrayList<>(segments)) {
+            for (int p = 0; p < segment.getEntries(); p++) {
+                if (!visit(visitor, segment, p)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the ArchivedTasks of a user in the cold archive in display order,
+     * the most recently finished first, and hands them to the visitor. Only
+     * the records of the user are inflated. Corrupt records are logged and
+     * skipped.
+     *
+     * @param receiverId the id of the user that was assigned the Tasks
+     * @param visitor the visitor receiving the ArchivedTasks
+     */
+    public void visit(long receiverId, Visitor visitor) {
+        List<Segment> opened = new ArrayList<>(segments);
+        for (int s = opened.size() - 1; s >= 0; s--) {
+            Segment segment = opened.get(s);
+            int end = segment.end(receiverId);
+            for (int p = segment.first(receiverId); p < end; p++) {
+                if (!visit(visitor, segment, p)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of opened segments.
+     *
+     * @return the number of segments
+     */
+    public int getSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Gets the number of ArchivedTasks in the cold archive.
+     *
+     * @return the number of ArchivedTasks
+     */
+    public long getEntries() {
+        long entries = 0;
+        for (Segment segment : segments) {
+            entries += segment.getEntries();
+        }
+        return entries;
+    }
+
+    /**
+     * Opens a segment and adds it to the opened segments in the order of
+     * their names, which is the order of their registration. Nothing is done
+     * if the segment is already opened.
+     *
+     * @param name the name of the segment files without their extension
+     */
+    private synchronized void install(String name) {
+        List<Segment> opened = new ArrayList<>(segments);
+        int position = opened.size();
+        for (int i = 0; i < opened.size(); i++) {
+            int order = opened.get(i).getName().compareTo(name);
+            if (order == 0) {
+                return;
+            }
+            if (order > 0) {
+                position = i;
+                break;
+            }
+        }
+        try {
+            opened.add(position, Segment.open(directory, name));
+        } catch (IOException ex) {
+            if (failed.add(name)) {
+                Logger.getLogger(ColdStorage.class.getName()).log(Level.SEVERE, "The cold archive segment " + name
+                        + " could not be opened; the archive directory has to be shared by all nodes", ex);
+            }
+            return;
+        }
+        failed.remove(name);
+        segments = Collections.unmodifiableList(opened);
+    }
+
+    /**
+     * Reads the summary of an entry and adds it to the page. Corrupt records
+     * are logged and skipped.
+     *
+     * @param page the page
+     * @param segment the segment of the entry
+     * @param position the position of the entry
+     */
+    private static void add(List<TaskSummary> page, Segment segment, int position) {
+        try {
+            page.add(segment.readSummary(position));
+        } catch (IOException ex) {
+            Logger.getLogger(ColdStorage.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Reads an entry and hands it to the visitor. A corrupt record is logged
+     * and skipped.
+     *
+     * @param visitor the visitor
+     * @param segment the segment of the entry
+     * @param position the position of the entry
+     * @return false if the visitor wants no further ArchivedTasks
+     */
+    private static boolean visit(Visitor visitor, Segment segment, int position) {
+        try {
+            return visitor.visit(segment.read(position));
+        } catch (IOException ex) {
+            Logger.getLogger(ColdStorage.class.getName()).log(Level.SEVERE, null, ex);
+            return true;
+        }
+    }
+
+    /**
+     * Receives the ArchivedTasks read from the cold archive.
+     */
+    public interface Visitor {
+
+        /**
+         * Handles an ArchivedTask read from the cold archive.
+         *
+         * @param task the ArchivedTask including its description
+         * @return true to receive further ArchivedTasks; false to stop
+         */
+        boolean visit(ArchivedTask task);
+    }
+}
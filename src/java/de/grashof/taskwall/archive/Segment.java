@@ -0,0 +1,321 @@
+package de.grashof.taskwall.archive;
+
+import de.grashof.taskwall.entity.ArchivedTask;
+import de.grashof.taskwall.entity.TaskSummary;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An opened segment of the cold archive. Both files of the segment are mapped
+ * into memory read-only, so looking up the Tasks of a user is a binary search
+ * in the index followed by reading the records next to each other. The format
+ * is described in SegmentWriter. Instances are immutable and may be used by
+ * several threads.
+ *
+ * @author TaskWall-Team
+ */
+public class Segment {
+
+    /**
+     * The extension of the data file.
+     */
+    public static final String DATA = ".dat";
+
+    /**
+     * The extension of the index file.
+     */
+    public static final String INDEX = ".idx";
+
+    /**
+     * The size of an index entry in bytes.
+     */
+    private static final int ENTRY = 32;
+
+    /**
+     * The name of the segment files without their extension.
+     */
+    private final String name;
+
+    /**
+     * The mapped index file.
+     */
+    private final ByteBuffer index;
+
+    /**
+     * The mapped data file.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * The number of ArchivedTasks in the segment.
+     */
+    private final int entries;
+
+    /**
+     * Constructor setting the mapped files.
+     *
+     * @param name the name of the segment files
+     * @param index the mapped index file
+     * @param data the mapped data file
+     */
+    private Segment(String name, ByteBuffer index, ByteBuffer data) {
+        this.name = name;
+        this.index = index;
+        this.data = data;
+        entries = index.capacity() / ENTRY;
+    }
+
+    /**
+     * Opens a segment by mapping its files into memory.
+     *
+     * @param directory the directory of the cold archive
+     * @param name the name of the segment files without their extension
+     * @return the opened segment
+     * @throws IOException if a file is missing or could not be mapped
+     */
+    public static Segment open(File directory, String name) throws IOException {
+        MappedByteBuffer index = map(new File(directory, name + INDEX));
+        if (index.capacity() % ENTRY != 0) {
+            throw new IOException("Corrupt index of segment " + name);
+        }
+        return new Segment(name, index, map(new File(directory, name + DATA)));
+    }
+
+    /**
+     * Maps a file into memory read-only.
+     *
+     * @param file the file
+     * @return the mapped file
+     * @throws IOException if the file could not be mapped
+     */
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "r");
+                FileChannel channel = access.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Gets the name of the segment.
+     *
+     * @return the name of the segment files without their extension
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of ArchivedTasks in the segment.
+     *
+     * @return the number of ArchivedTasks
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the receiverId of an index entry.
+     *
+     * @param position the position of the entry
+     * @return the receiverId
+     */
+    public long getReceiverId(int position) {
+        return index.getLong(position * ENTRY);
+    }
+
+    /**
+     * Gets the finish date of an index entry.
+     *
+     * @param position the position of the entry
+     * @return the finish date in milliseconds
+     */
+    public long getFinished(int position) {
+        return index.getLong(position * ENTRY + 8);
+    }
+
+    /**
+     * Gets the id of an index entry.
+     *
+     * @param position the position of the entry
+     * @return the id of the ArchivedTask
+     */
+    public long getId(int position) {
+        return index.getLong(position * ENTRY + 16);
+    }
+
+    /**
+     * Gives the position of the first entry of a user.
+     *
+     * @param receiverId the id of the user
+     * @return the position of the first entry with a receiverId not lower
+     * than the passed one
+     */
+    public int first(long receiverId) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getReceiverId(middle) < receiverId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gives the position behind the last entry of a user.
+     *
+     * @param receiverId the id of the user
+     * @return the position of the first entry with a higher receiverId
+     */
+    public int end(long receiverId) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getReceiverId(middle) <= receiverId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gives the position of the first entry of a user that comes after the
+     * passed finish date and id in display order, i.e. the first entry whose
+     * finish date and id are lower (or not higher if inclusive).
+     *
+     * @param first the position of the first entry of the user
+     * @param end the position behind the last entry of the user
+     * @param finished the finish date in milliseconds
+     * @param id the id
+     * @param inclusive true to include an entry with the same finish date and
+     * id
+     * @return the position of the entry; end if there is none
+     */
+    public int seek(int first, int end, long finished, long id, boolean inclusive) {
+        int low = first;
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(getFinished(middle), getId(middle), finished, id);
+            if (comparison > 0 || (comparison == 0 && !inclusive)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads the summary of an ArchivedTask. Only the beginning of the record
+     * is inflated.
+     *
+     * @param position the position of the index entry
+     * @return the summary of the ArchivedTask
+     * @throws IOException if the record is corrupt
+     */
+    public TaskSummary readSummary(int position) throws IOException {
+        try (DataInputStream in = record(position)) {
+            long id = in.readLong();
+            in.readLong();
+            in.readLong();
+            Date due = new Date(in.readLong());
+            in.readLong();
+            Date finished = new Date(in.readLong());
+            return new TaskSummary(id, readString(in), due, finished);
+        }
+    }
+
+    /**
+     * Reads a complete ArchivedTask.
+     *
+     * @param position the position of the index entry
+     * @return the ArchivedTask, not managed by any EntityManager
+     * @throws IOException if the record is corrupt
+     */
+    public ArchivedTask read(int position) throws IOException {
+        try (DataInputStream in = record(position)) {
+            ArchivedTask task = new ArchivedTask();
+            task.setId(in.readLong());
+            task.setReceiverId(in.readLong());
+            task.setCreatorId(in.readLong());
+            task.setDue(new Date(in.readLong()));
+            task.setCreated(new Date(in.readLong()));
+            task.setFinished(new Date(in.readLong()));
+            task.setTitle(readString(in));
+            task.setDescription(readString(in));
+            return task;
+        }
+    }
+
+    /**
+     * Opens the record of an index entry for reading.
+     *
+     * @param position the position of the index entry
+     * @return a stream inflating the record
+     * @throws IOException if the offset is invalid
+     */
+    private DataInputStream record(int position) throws IOException {
+        long offset = index.getLong(position * ENTRY + 24);
+        if (offset < 0 || offset + 4 > data.capacity()) {
+            throw new IOException("Invalid offset in segment " + name);
+        }
+        ByteBuffer buffer = data.duplicate();
+        buffer.position((int) offset);
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid record length in segment " + name);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Reads a String written by SegmentWriter.
+     *
+     * @param in the stream
+     * @return the String; may be null
+     * @throws IOException if the String could not be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares two entries by finish date and id.
+     *
+     * @param finished the finish date of the first entry
+     * @param id the id of the first entry
+     * @param otherFinished the finish date of the second entry
+     * @param otherId the id of the second entry
+     * @return a negative number, zero or a positive number if the first entry
+     * is lower than, equal to or higher than the second one
+     */
+    public static int compare(long finished, long id, long otherFinished, long otherId) {
+        int result = Long.compare(finished, otherFinished);
+        return result != 0 ? result : Long.compare(id, otherId);
+    }
+}
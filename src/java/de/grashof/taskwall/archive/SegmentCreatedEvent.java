@@ -0,0 +1,34 @@
+package de.grashof.taskwall.archive;
+
+/**
+ * Fired when the tiering job wrote a new segment of the cold archive within
+ * the current transaction. Observers use it to open the segment once the
+ * transaction committed or to delete its files if it rolled back.
+ *
+ * @author TaskWall-Team
+ */
+public class SegmentCreatedEvent {
+
+    /**
+     * The name of the segment files without their extension.
+     */
+    private final String name;
+
+    /**
+     * Constructor setting the name of the segment.
+     *
+     * @param name the name of the segment files without their extension
+     */
+    public SegmentCreatedEvent(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name of the segment.
+     *
+     * @return the name of the segment files without their extension
+     */
+    public String getName() {
+        return name;
+    }
+}
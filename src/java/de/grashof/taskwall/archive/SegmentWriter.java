@@ -0,0 +1,186 @@
+package de.grashof.taskwall.archive;
+
+import de.grashof.taskwall.entity.ArchivedTask;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a segment of the cold archive. A segment consists of two files that
+ * are never changed after they were written:
+ * <ul>
+ * <li>the data file holding every ArchivedTask as a separately deflated
+ * record, preceded by its compressed length, and</li>
+ * <li>the index file holding one entry of fixed size per ArchivedTask:
+ * receiverId, finish date, id and the offset of the record in the data
+ * file.</li>
+ * </ul>
+ * Both files are sorted by receiverId ascending, then finish date and id
+ * descending, so the Tasks of a user are stored next to each other in the
+ * order they are displayed.
+ *
+ * @author TaskWall-Team
+ */
+public final class SegmentWriter {
+
+    /**
+     * Orders ArchivedTasks by receiverId ascending, then by finish date and id
+     * descending.
+     */
+    private static final Comparator<ArchivedTask> ORDER = new Comparator<ArchivedTask>() {
+        @Override
+        public int compare(ArchivedTask first, ArchivedTask second) {
+            int result = first.getReceiverId().compareTo(second.getReceiverId());
+            if (result == 0) {
+                result = second.getFinished().compareTo(first.getFinished());
+            }
+            if (result == 0) {
+                result = second.getId().compareTo(first.getId());
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Not instantiable; only provides static methods.
+     */
+    private SegmentWriter() {
+    }
+
+    /**
+     * Writes the ArchivedTasks into a new segment and forces both files to
+     * disk. If writing fails, the partially written files are deleted.
+     *
+     * @param directory the directory of the cold archive
+     * @param name the name of the segment files without their extension
+     * @param tasks the ArchivedTasks including their descriptions
+     * @throws IOException if the segment could not be written
+     */
+    public static void write(File directory, String name, List<ArchivedTask> tasks) throws IOException {
+        List<ArchivedTask> sorted = new ArrayList<>(tasks);
+        Collections.sort(sorted, ORDER);
+        File dataFile = new File(directory, name + Segment.DATA);
+        File indexFile = new File(directory, name + Segment.INDEX);
+        boolean written = false;
+        try {
+            long[] offsets = writeData(dataFile, sorted);
+            writeIndex(indexFile, sorted, offsets);
+            written = true;
+        } finally {
+            if (!written) {
+                delete(directory, name);
+            }
+        }
+    }
+
+    /**
+     * Deletes the files of a segment.
+     *
+     * @param directory the directory of the cold archive
+     * @param name the name of the segment files without their extension
+     */
+    public static void delete(File directory, String name) {
+        new File(directory, name + Segment.DATA).delete();
+        new File(directory, name + Segment.INDEX).delete();
+    }
+
+    /**
+     * Writes the data file.
+     *
+     * @param file the data file
+     * @param tasks the sorted ArchivedTasks
+     * @return the offsets of the records in the data file
+     * @throws IOException if the file could not be written
+     */
+    private static long[] writeData(File file, List<ArchivedTask> tasks) throws IOException {
+        long[] offsets = new long[tasks.size()];
+        try (FileOutputStream stream = new FileOutputStream(file);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            long offset = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                byte[] record = compress(tasks.get(i));
+                offsets[i] = offset;
+                out.writeInt(record.length);
+                out.write(record);
+                offset += 4 + record.length;
+            }
+            out.flush();
+            stream.getChannel().force(true);
+        }
+        return offsets;
+    }
+
+    /**
+     * Writes the index file.
+     *
+     * @param file the index file
+     * @param tasks the sorted ArchivedTasks
+     * @param offsets the offsets of their records in the data file
+     * @throws IOException if the file could not be written
+     */
+    private static void writeIndex(File file, List<ArchivedTask> tasks, long[] offsets) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            for (int i = 0; i < tasks.size(); i++) {
+                ArchivedTask task = tasks.get(i);
+                out.writeLong(task.getReceiverId());
+                out.writeLong(task.getFinished().getTime());
+                out.writeLong(task.getId());
+                out.writeLong(offsets[i]);
+            }
+            out.flush();
+            stream.getChannel().force(true);
+        }
+    }
+
+    /**
+     * Serializes and deflates one ArchivedTask. The title comes before the
+     * description, so a reader that only needs the summary can stop inflating
+     * early.
+     *
+     * @param task the ArchivedTask
+     * @return the deflated record
+     * @throws IOException if the record could not be written
+     */
+    private static byte[] compress(ArchivedTask task) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeLong(task.getId());
+            out.writeLong(task.getReceiverId());
+            out.writeLong(task.getCreatorId());
+            out.writeLong(task.getDue().getTime());
+            out.writeLong(task.getCreated().getTime());
+            out.writeLong(task.getFinished().getTime());
+            writeString(out, task.getTitle());
+            writeString(out, task.getDescription());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a String of any length that may be null.
+     *
+     * @param out the stream
+     * @param value the String
+     * @throws IOException if the String could not be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
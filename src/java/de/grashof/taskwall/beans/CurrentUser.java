@@ -0,0 +1,95 @@
+package de.grashof.taskwall.beans;
+
+import de.grashof.taskwall.beans.persistence.ProfileCache;
+import de.grashof.taskwall.beans.persistence.UserPersistence;
+import de.grashof.taskwall.entity.Profile;
+
+import javax.ejb.EJB;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * Provides the logged in user. His id and role are taken from the UserPrincipal
+ * in the session. The full Profile is loaded at most once per request and
+ * reused across requests through the copy shared by the ProfileCache, until
+ * the data of the user changes.
+ *
+ * @author TaskWall-Team
+ */
+@RequestScoped
+@Named("currentUser")
+public class CurrentUser {
+
+    /**
+     * The Profile resolved during this request.
+     */
+    private Profile profile;
+
+    /**
+     * The revision of the user the Profile was resolved with.
+     */
+    private long revision;
+
+    /**
+     * Used to get the logged in user.
+     */
+    @Inject
+    private LoginBean loginBean;
+
+    /**
+     * Used to check whether a copy of the Profile is still up to date.
+     */
+    @EJB
+    private ProfileCache profileCache;
+
+    /**
+     * Used to load the Profile if there is no up to date copy.
+     */
+    @EJB
+    private UserPersistence userPersistence;
+
+    /**
+     * Gets the Profile of the logged in user. It is only loaded from the
+     * database if neither this request nor the ProfileCache holds an up to
+     * date copy. Every Profile resolved for the request is counted once as a saved
+     * or a performed lookup; the calls reusing it are not counted.
+     *
+     * @return the Profile of the logged in user
+     */
+    public Profile getProfile() {
+        String username = loginBean.getUsername();
+        long current = profileCache.getRevision(username);
+        if (profile == null || revision != current || !profile.getUsername().equals(username)) {
+            Profile snapshot = profileCache.getProfile(username);
+            if (snapshot != null) {
+                profile = snapshot;
+                profileCache.lookupSaved();
+            } else {
+                profile = userPersistence.getUser(username);
+                profileCache.putProfile(profile, current);
+                profileCache.lookupPerformed();
+            }
+            revision = current;
+        }
+        return profile;
+    }
+
+    /**
+     * Gets the id of the logged in user.
+     *
+     * @return the id of the logged in user
+     */
+    public long getId() {
+        return loginBean.getPrincipal().getId();
+    }
+
+    /**
+     * Gets whether the logged in user is an administrator.
+     *
+     * @return true if the user is an administrator; false if not
+     */
+    public boolean isAdministrator() {
+        return loginBean.getPrincipal().isAdministrator();
+    }
+}
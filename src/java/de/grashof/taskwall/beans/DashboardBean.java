@@ -1,17 +1,20 @@
 package de.grashof.taskwall.beans;
 
+import de.grashof.taskwall.beans.persistence.Page;
+import de.grashof.taskwall.beans.persistence.TaskFilter;
 import de.grashof.taskwall.beans.persistence.TaskPersistence;
-import de.grashof.taskwall.beans.persistence.UserPersistence;
-import de.grashof.taskwall.beans.task.CreateTaskBean;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
 import de.grashof.taskwall.entity.Profile;
-import de.grashof.taskwall.entity.Task;
+import de.grashof.taskwall.entity.TaskSummary;
+import de.grashof.taskwall.entity.UserSummary;
 
-import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
@@ -22,8 +25,9 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
- * Loads a list with all Tasks assigned to the logged in user and redirects to
- * show the details of one of them.
+ * Loads one page of the Tasks assigned to the logged in user and redirects to
+ * show the details of one of them. The page, the sort order and the filters
+ * are passed as request parameters, so every page has its own URL.
  *
  * @author TaskWall-Team
  */
@@ -37,22 +41,50 @@ public class DashboardBean implements Serializable {
     private boolean showAdmin = false;
 
     /**
-     * A list containing all Tasks assigned to the user.
+     * The number of Tasks shown on one page.
      */
-    private List<Task> tasks;
+    private static final int PAGE_SIZE = 25;
 
     /**
-     * Used to get the user's login data.
+     * The page of Tasks assigned to the user that is shown.
      */
-    @Inject
-    private LoginBean loginBean;
+    private Page<TaskSummary> page = new Page<>(Collections.<TaskSummary>emptyList(), false, false);
 
     /**
-     * Used to load the user object representation from the database to get his
-     * assigned Tasks.
+     * The earliest deadline of the shown Tasks as passed in the request.
      */
-    @EJB
-    private UserPersistence userPersistence;
+    private String from = "";
+
+    /**
+     * The latest deadline of the shown Tasks as passed in the request.
+     */
+    private String until = "";
+
+    /**
+     * The username of the author of the shown Tasks as passed in the request.
+     */
+    private String creator = "";
+
+    /**
+     * Indicates whether the Tasks with the latest deadline are shown first.
+     */
+    private boolean descending = false;
+
+    /**
+     * The cursor the shown page starts after as passed in the request.
+     */
+    private String after = "";
+
+    /**
+     * The cursor the shown page ends before as passed in the request.
+     */
+    private String before = "";
+
+    /**
+     * Used to get the user object representation to get his assigned Tasks.
+     */
+    @Inject
+    private CurrentUser currentUser;
 
     /**
      * Used to load the Tasks assigned to the user.
@@ -61,27 +93,93 @@ public class DashboardBean implements Serializable {
     private TaskPersistence taskPersistence;
 
     /**
-     * Checks whether there was a successfull login and redirects to the login
-     * page if not. Loads all Tasks assigned to the user if there was a
-     * successfull login.
+     * Used to find the author the Tasks are filtered by.
+     */
+    @EJB
+    private UserDirectory userDirectory;
+
+    /**
+     * Loads the requested page of the Tasks assigned to the user.
      */
     @PostConstruct
     public void init() {
-        if (!loginBean.getLoginSuccess()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/login.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
+        Profile user = currentUser.getProfile();
+        showAdmin = user.isAdministrator();
+        loadPage(user, FacesContext.getCurrentInstance().getExternalContext().getRequestParameterMap());
+    }
+
+    /**
+     * Finishes all Tasks the user selected on the shown page at once. The
+     * selection is sent as the values of the checkboxes named "finish". The
+     * page is loaded again afterwards.
+     */
+    public void finishSelected() {
+        ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
+        String[] selected = context.getRequestParameterValuesMap().get("finish");
+        if (selected == null) {
+            return;
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        for (String id : selected) {
+            if (id.matches("\\d{1,18}")) {
+                ids.add(Long.valueOf(id));
             }
-        } else {
-            tasks = new ArrayList<>();
-            Profile user = userPersistence.getUser(loginBean.getUsername());
-            tasks = taskPersistence.getTasks(user);
-            showAdmin = user.isAdministrator();
+        }
+        if (!ids.isEmpty()) {
+            Profile user = currentUser.getProfile();
+            taskPersistence.archiveTasks(ids, user.getId());
+            loadPage(user, context.getRequestParameterMap());
         }
     }
 
+    /**
+     * Loads the page of Tasks described by the request parameters. The
+     * parameter "after" or "before" holds the deadline and id of the Task the
+     * page starts after or ends before.
+     *
+     * @param user the logged in user
+     * @param parameters the request parameters
+     */
+    private void loadPage(Profile user, Map<String, String> parameters) {
+        TaskFilter filter = new TaskFilter();
+        descending = "desc".equals(parameters.get("sort"));
+        filter.setDescending(descending);
+        from = PageParameters.trim(parameters.get("from"));
+        filter.setDueFrom(PageParameters.parseDate(from));
+        until = PageParameters.trim(parameters.get("until"));
+        filter.setDueUntil(PageParameters.parseDate(until));
+        creator = PageParameters.trim(parameters.get("creator"));
+        if (!creator.isEmpty()) {
+            UserSummary author = userDirectory.findUser(creator);
+            if (author == null) {
+                return;
+            }
+            filter.setCreatorId(author.getId());
+        }
+
+        before = PageParameters.trim(parameters.get("before"));
+        after = before.isEmpty() ? PageParameters.trim(parameters.get("after")) : "";
+        long[] cursor = PageParameters.parseCursor(before.isEmpty() ? after : before);
+        Date seekDue = null;
+        Long seekId = null;
+        if (cursor != null) {
+            seekDue = new Date(cursor[0]);
+            seekId = cursor[1];
+        }
+        page = taskPersistence.getTasks(user.getId(), filter, seekDue, seekId,
+                cursor != null && !before.isEmpty(), PAGE_SIZE);
+    }
+
+    /**
+     * Builds the cursor pointing at a Task.
+     *
+     * @param task the Task
+     * @return the cursor of the form "deadline_id"
+     */
+    private static String cursor(TaskSummary task) {
+        return PageParameters.cursor(task.getDue(), task.getId());
+    }
+
     /**
      * Gets whether administrative navigation buttons should be displayed.
      *
@@ -93,11 +191,112 @@ public class DashboardBean implements Serializable {
     }
 
     /**
-     * Gets the List containing all Tasks assigned to the user.
+     * Gets the List containing the Tasks on the shown page.
+     *
+     * @return a List containing the Tasks on the shown page
+     */
+    public List<TaskSummary> getTasks() {
+        return page.getItems();
+    }
+
+    /**
+     * Gets whether there is a page before the shown one.
+     *
+     * @return true if there is a previous page; false if not
+     */
+    public boolean getHasPrevious() {
+        return page.hasPrevious();
+    }
+
+    /**
+     * Gets whether there is a page after the shown one.
+     *
+     * @return true if there is a next page; false if not
+     */
+    public boolean getHasNext() {
+        return page.hasNext();
+    }
+
+    /**
+     * Gets the cursor of the page before the shown one.
+     *
+     * @return the cursor of the previous page; null if the page is empty
+     */
+    public String getPreviousCursor() {
+        return page.isEmpty() ? null : cursor(page.getFirst());
+    }
+
+    /**
+     * Gets the cursor of the page after the shown one.
+     *
+     * @return the cursor of the next page; null if the page is empty
+     */
+    public String getNextCursor() {
+        return page.isEmpty() ? null : cursor(page.getLast());
+    }
+
+    /**
+     * Gets the cursor the shown page starts after. It is sent along with the
+     * form, so a postback resolves the same page.
+     *
+     * @return the cursor the shown page starts after
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * Gets the cursor the shown page ends before. It is sent along with the
+     * form, so a postback resolves the same page.
+     *
+     * @return the cursor the shown page ends before
+     */
+    public String getBefore() {
+        return before;
+    }
+
+    /**
+     * Gets the earliest deadline the Tasks are filtered by.
+     *
+     * @return the earliest deadline in the format yyyy-MM-dd
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets the latest deadline the Tasks are filtered by.
+     *
+     * @return the latest deadline in the format yyyy-MM-dd
+     */
+    public String getUntil() {
+        return until;
+    }
+
+    /**
+     * Gets the username of the author the Tasks are filtered by.
+     *
+     * @return the username of the author
+     */
+    public String getCreator() {
+        return creator;
+    }
+
+    /**
+     * Gets the sort order of the shown Tasks.
+     *
+     * @return "desc" if the latest deadline comes first; "asc" if not
+     */
+    public String getSort() {
+        return descending ? "desc" : "asc";
+    }
+
+    /**
+     * Gets the sort order that reverses the shown one.
      *
-     * @return a List containing all Tasks assigned to the user
+     * @return "asc" if the latest deadline comes first; "desc" if not
      */
-    public List<Task> getTasks() {
-        return tasks;
+    public String getReverseSort() {
+        return descending ? "asc" : "desc";
     }
 }
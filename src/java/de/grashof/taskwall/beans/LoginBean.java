@@ -1,8 +1,9 @@
 package de.grashof.taskwall.beans;
 
 import de.grashof.taskwall.beans.persistence.UserPersistence;
-import de.grashof.taskwall.entity.ArchivedTask;
-import de.grashof.taskwall.entity.Task;
+import de.grashof.taskwall.entity.Profile;
+import de.grashof.taskwall.security.LoginThrottle;
+import de.grashof.taskwall.security.PasswordHasher;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -14,11 +15,14 @@ import javax.enterprise.context.SessionScoped;
 import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 import javax.inject.Named;
+import javax.servlet.http.HttpServletRequest;
 
 /**
  * Instantiated when a user opens the login page and kept for the whole session.
- * It contains the username and password of the user and whether the login was
- * successfull or not.
+ * It contains the username of the user and, after a successfull login, a
+ * compact UserPrincipal. The password is only held while the login is checked.
+ * Everything else about the user is loaded per request by the CurrentUser, so
+ * the session stays small.
  *
  * @author TaskWall-Team
  */
@@ -34,14 +38,15 @@ public class LoginBean implements Serializable {
     private String username;
 
     /**
-     * The password.
+     * The password as entered in the login form. It is transient and cleared
+     * as soon as it was checked, so it is never kept in the session.
      */
-    private String password;
+    private transient String password;
 
     /**
-     * Indicating whether there was a successfull login.
+     * The logged in user; null if there was no successfull login.
      */
-    private boolean loginSuccess = false;
+    private UserPrincipal principal;
 
     /**
      * Indicating whether there was a failed login attempt.
@@ -49,16 +54,16 @@ public class LoginBean implements Serializable {
     private boolean loginFail = false;
 
     /**
-     * A pointer to the current Task used when a user wants to see the details
-     * of this Task.
+     * Indicating whether the last login attempt was rejected because too many
+     * attempts were made.
      */
-    private Task current;
+    private boolean loginThrottled = false;
 
     /**
-     * A pointer to the current finished Task used when the user wants to see
-     * the details of a finished Task.
+     * Indicating whether the last login attempt could not be checked because
+     * too many logins were checked at the same time.
      */
-    private ArchivedTask currentFinished;
+    private boolean loginBusy = false;
 
     /**
      * Used to check the user's login data.
@@ -66,12 +71,24 @@ public class LoginBean implements Serializable {
     @EJB
     private UserPersistence userPersistence;
 
+    /**
+     * Used to limit the number of login attempts.
+     */
+    @EJB
+    private LoginThrottle loginThrottle;
+
+    /**
+     * Used to check the password of the user.
+     */
+    @EJB
+    private PasswordHasher passwordHasher;
+
     /**
      * Checks whether the user is already logged in and reconnects to the
      * dashboard if he is.
      */
     public void init() {
-        if (loginSuccess) {
+        if (principal != null) {
             ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
             try {
                 context.redirect("dashboard.xhtml");
@@ -83,20 +100,42 @@ public class LoginBean implements Serializable {
 
     /**
      * Checks the user's login data and redirects to the next page. Also checks
-     * whether the user has to change his password.
+     * whether the user has to change his password. The user is loaded with a
+     * single lookup, which does not even query the database for unknown
+     * usernames; their password is still checked against a dummy hash, so the
+     * response time does not reveal which usernames exist. Attempts exceeding
+     * the limits of the LoginThrottle are rejected before the user is looked
+     * up. A password that is not yet stored as a current hash is hashed again
+     * after a successful login. The principal is also put into the session for
+     * the AuthenticationFilter.
      *
      * @return a navigation outcome suggesting where the user is navigated to
      */
     public String login() {
-        if (userPersistence.userExists(username)) {
-            if (userPersistence.getUser(username).getPassword().equals(password)) {
-                loginFail = false;
-                loginSuccess = true;
-                if (userPersistence.getUser(username).getChangePassword()) {
-                    return "changePassword";
-                }
-                return "dashboard";
+        ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
+        HttpServletRequest request = (HttpServletRequest) context.getRequest();
+        loginThrottled = !loginThrottle.tryAcquire(username, request.getRemoteAddr());
+        loginBusy = false;
+        if (loginThrottled) {
+            loginFail = true;
+            return "loginFail";
+        }
+        Profile user = userPersistence.findUser(username);
+        PasswordHasher.Check check = user == null ? passwordHasher.checkUnknown(password)
+                : passwordHasher.check(password, user.getPassword());
+        loginBusy = check == PasswordHasher.Check.BUSY;
+        if (check == PasswordHasher.Check.MATCH && passwordHasher.needsUpgrade(user.getPassword())) {
+            userPersistence.upgradePassword(username, password);
+        }
+        password = null;
+        if (check == PasswordHasher.Check.MATCH) {
+            loginFail = false;
+            principal = new UserPrincipal(user);
+            context.getSessionMap().put(UserPrincipal.SESSION_KEY, principal);
+            if (user.getChangePassword()) {
+                return "changePassword";
             }
+            return "dashboard";
         }
         loginFail = true;
         return "loginFail";
@@ -108,47 +147,24 @@ public class LoginBean implements Serializable {
      * @return a navigation outcome navigating to the login page
      */
     public String logout() {
-        loginSuccess = false;
+        principal = null;
+        FacesContext.getCurrentInstance().getExternalContext().getSessionMap()
+                .remove(UserPrincipal.SESSION_KEY);
         loginFail = false;
+        loginThrottled = false;
+        loginBusy = false;
         username = "";
-        password = "";
+        password = null;
         return "logout";
     }
 
     /**
-     * Gets the currently selected Task.
+     * Gets the logged in user.
      *
-     * @return the currently selected Task
+     * @return the logged in user; null if nobody is logged in
      */
-    public Task getCurrent() {
-        return current;
-    }
-
-    /**
-     * Sets the currently selected Task.
-     *
-     * @param task the new currently selected Task
-     */
-    public void setCurrent(Task task) {
-        this.current = task;
-    }
-
-    /**
-     * Gets the current finished Task.
-     *
-     * @return the current finished Task
-     */
-    public ArchivedTask getCurrentFinished() {
-        return currentFinished;
-    }
-
-    /**
-     * Sets the current finished Task.
-     *
-     * @param currentFinished the new current finishedTask
-     */
-    public void setCurrentFinished(ArchivedTask currentFinished) {
-        this.currentFinished = currentFinished;
+    public UserPrincipal getPrincipal() {
+        return principal;
     }
 
     /**
@@ -157,7 +173,7 @@ public class LoginBean implements Serializable {
      * @return the username
      */
     public String getUsername() {
-        return username;
+        return principal != null ? principal.getUsername() : username;
     }
 
     /**
@@ -194,7 +210,7 @@ public class LoginBean implements Serializable {
      * successfull login
      */
     public boolean getLoginSuccess() {
-        return loginSuccess;
+        return principal != null;
     }
 
     /**
@@ -206,4 +222,24 @@ public class LoginBean implements Serializable {
     public boolean isLoginFail() {
         return loginFail;
     }
+
+    /**
+     * Gets whether the last login attempt was rejected because too many
+     * attempts were made.
+     *
+     * @return true if the attempt was rejected; false if it was checked
+     */
+    public boolean isLoginThrottled() {
+        return loginThrottled;
+    }
+
+    /**
+     * Gets whether the last login attempt could not be checked because too
+     * many logins were checked at the same time.
+     *
+     * @return true if the attempt could not be checked; false if it was
+     */
+    public boolean isLoginBusy() {
+        return loginBusy;
+    }
 }
@@ -0,0 +1,81 @@
+package de.grashof.taskwall.beans;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Reads and writes the request parameters of pages that are browsed page by
+ * page. A page is addressed by a cursor of the form "date_id" naming the entry
+ * at its border, dates are passed in the format yyyy-MM-dd.
+ *
+ * @author TaskWall-Team
+ */
+public final class PageParameters {
+
+    /**
+     * The format of the dates passed as request parameters.
+     */
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+
+    /**
+     * Not instantiable; only provides static methods.
+     */
+    private PageParameters() {
+    }
+
+    /**
+     * Trims a request parameter.
+     *
+     * @param parameter the request parameter
+     * @return the trimmed parameter; an empty String if it is missing
+     */
+    public static String trim(String parameter) {
+        return parameter == null ? "" : parameter.trim();
+    }
+
+    /**
+     * Parses a date passed in the request.
+     *
+     * @param date the date in the format yyyy-MM-dd
+     * @return the date; null if it is empty or malformed
+     */
+    public static Date parseDate(String date) {
+        if (date.isEmpty()) {
+            return null;
+        }
+        try {
+            SimpleDateFormat format = new SimpleDateFormat(DATE_PATTERN);
+            format.setLenient(false);
+            return format.parse(date);
+        } catch (ParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Splits a cursor into the date and the id of the entry it names.
+     *
+     * @param cursor the cursor passed in the request
+     * @return the date in milliseconds and the id; null if the cursor is
+     * missing or malformed
+     */
+    public static long[] parseCursor(String cursor) {
+        if (cursor == null || !cursor.matches("-?\\d{1,18}_\\d{1,18}")) {
+            return null;
+        }
+        String[] parts = cursor.split("_");
+        return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+    }
+
+    /**
+     * Builds the cursor naming an entry.
+     *
+     * @param date the date of the entry
+     * @param id the id of the entry
+     * @return the cursor of the form "date_id"
+     */
+    public static String cursor(Date date, Long id) {
+        return date.getTime() + "_" + id;
+    }
+}
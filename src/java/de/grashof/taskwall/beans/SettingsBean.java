@@ -1,11 +1,8 @@
 package de.grashof.taskwall.beans;
 
 import de.grashof.taskwall.beans.persistence.UserPersistence;
-import de.grashof.taskwall.beans.task.CreateTaskBean;
-
-import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import de.grashof.taskwall.entity.Profile;
+import de.grashof.taskwall.security.PasswordHasher;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
@@ -13,7 +10,6 @@ import javax.enterprise.context.RequestScoped;
 import javax.faces.application.FacesMessage;
 import javax.faces.component.UIComponent;
 import javax.faces.component.UIInput;
-import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -39,6 +35,31 @@ public class SettingsBean {
      */
     private String email;
 
+    /**
+     * Decides whether the user gets one mail per new Task or a digest.
+     */
+    private Profile.DigestMode digestMode;
+
+    /**
+     * The length in minutes of a digest window.
+     */
+    private int digestInterval;
+
+    /**
+     * The hour of the day the daily digest is sent.
+     */
+    private int digestHour;
+
+    /**
+     * The hour the quiet hours begin. Empty if there are no quiet hours.
+     */
+    private Integer quietFrom;
+
+    /**
+     * The hour the quiet hours end. Empty if there are no quiet hours.
+     */
+    private Integer quietUntil;
+
     /**
      * The old password of the user. Needs to be entered only when the user
      * wants to change his password.
@@ -64,43 +85,70 @@ public class SettingsBean {
     private LoginBean loginBean;
 
     /**
-     * Used to retrieve and alter the user's settings in the database.
+     * Used to retrieve the user's current settings.
+     */
+    @Inject
+    private CurrentUser currentUser;
+
+    /**
+     * Used to alter the user's settings in the database.
      */
     @EJB
     private UserPersistence userPersistence;
 
     /**
-     * Checks whether there is a logged in user and loads his settings if there
-     * is one.
+     * Used to check the old password of the user.
+     */
+    @EJB
+    private PasswordHasher passwordHasher;
+
+    /**
+     * Loads the settings of the logged in user.
      */
     @PostConstruct
     public void init() {
-        if (!loginBean.getLoginSuccess()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/login.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        } else {
-            emailEnabled = userPersistence.getUser(loginBean.getUsername()).getNotificationsEnabled();
-            email = userPersistence.getUser(loginBean.getUsername()).getEmail();
-        }
+        Profile user = currentUser.getProfile();
+        emailEnabled = user.getNotificationsEnabled();
+        email = user.getEmail();
+        digestMode = user.getDigestMode();
+        digestInterval = user.getDigestInterval();
+        digestHour = user.getDigestHour();
+        quietFrom = user.getQuietFrom();
+        quietUntil = user.getQuietUntil();
     }
 
     /**
      * Saves the changed email settings of the user. Does not true for
-     * notifications enabled if the email is null.
+     * notifications enabled if the email is null. Also saves how the user
+     * wants to receive his notifications.
      */
     public void saveEmail() {
-        if (emailEnabled != userPersistence.getUser(loginBean.getUsername()).getNotificationsEnabled() && email != null) {
+        Profile user = currentUser.getProfile();
+        if (digestMode != user.getDigestMode() || digestInterval != user.getDigestInterval()
+                || digestHour != user.getDigestHour() || !equal(quietFrom, user.getQuietFrom())
+                || !equal(quietUntil, user.getQuietUntil())) {
+            userPersistence.updateDigest(loginBean.getUsername(), digestMode, digestInterval, digestHour,
+                    quietFrom, quietUntil);
+        }
+        if (emailEnabled != currentUser.getProfile().getNotificationsEnabled() && email != null) {
             userPersistence.updateEmailEnabled(loginBean.getUsername(), emailEnabled);
         }
-        if (email != null && !email.equals(userPersistence.getUser(loginBean.getUsername()).getEmail())) {
+        if (email != null && !email.equals(currentUser.getProfile().getEmail())) {
             userPersistence.updateEmail(loginBean.getUsername(), email);
         }
     }
 
+    /**
+     * Compares two hours that may be null.
+     *
+     * @param first the first hour
+     * @param second the second hour
+     * @return true if both are null or equal; false otherwise
+     */
+    private static boolean equal(Integer first, Integer second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
     /**
      * Validates the email adress. If email notifications are enabled and there
      * is no email adress set, an error message is displayed.
@@ -118,11 +166,13 @@ public class SettingsBean {
     }
 
     /**
-     * Saves the new password of the user.
+     * Saves the new password of the user. If the server is too busy, an error
+     * message is displayed instead.
      */
     public void savePassword() {
-        if (newPassword != null) {
-            userPersistence.updatePassword(loginBean.getUsername(), newPassword);
+        if (newPassword != null && !userPersistence.updatePassword(loginBean.getUsername(), newPassword)) {
+            FacesContext.getCurrentInstance().addMessage("passwordForm:newPw2",
+                    new FacesMessage("Der Server ist ausgelastet, bitte versuchen Sie es erneut."));
         }
     }
 
@@ -134,9 +184,11 @@ public class SettingsBean {
      * @param value
      */
     public void validateOldPassword(FacesContext context, UIComponent toValidate, Object value) {
-        if (!userPersistence.getUser(loginBean.getUsername()).getPassword().equals((String) value)) {
+        PasswordHasher.Check check = passwordHasher.check((String) value, currentUser.getProfile().getPassword());
+        if (check != PasswordHasher.Check.MATCH) {
             ((UIInput) toValidate).setValid(false);
-            FacesMessage message = new FacesMessage("Altes Passwort falsch.");
+            FacesMessage message = new FacesMessage(check == PasswordHasher.Check.BUSY
+                    ? "Der Server ist ausgelastet, bitte versuchen Sie es erneut." : "Altes Passwort falsch.");
             context.addMessage(toValidate.getClientId(context), message);
         } else {
             oldPassword = (String) value;
@@ -213,6 +265,96 @@ public class SettingsBean {
         this.email = email;
     }
 
+    /**
+     * Gets the digest mode.
+     *
+     * @return the digest mode
+     */
+    public Profile.DigestMode getDigestMode() {
+        return digestMode;
+    }
+
+    /**
+     * Sets the digest mode.
+     *
+     * @param digestMode the new digest mode
+     */
+    public void setDigestMode(Profile.DigestMode digestMode) {
+        this.digestMode = digestMode;
+    }
+
+    /**
+     * Gets the length of a digest window in minutes.
+     *
+     * @return the length of a digest window in minutes
+     */
+    public int getDigestInterval() {
+        return digestInterval;
+    }
+
+    /**
+     * Sets the length of a digest window in minutes.
+     *
+     * @param digestInterval the new length of a digest window in minutes
+     */
+    public void setDigestInterval(int digestInterval) {
+        this.digestInterval = digestInterval;
+    }
+
+    /**
+     * Gets the hour of the day the daily digest is sent.
+     *
+     * @return the hour of the day the daily digest is sent
+     */
+    public int getDigestHour() {
+        return digestHour;
+    }
+
+    /**
+     * Sets the hour of the day the daily digest is sent.
+     *
+     * @param digestHour the new hour of the day the daily digest is sent
+     */
+    public void setDigestHour(int digestHour) {
+        this.digestHour = digestHour;
+    }
+
+    /**
+     * Gets the hour the quiet hours begin.
+     *
+     * @return the hour the quiet hours begin
+     */
+    public Integer getQuietFrom() {
+        return quietFrom;
+    }
+
+    /**
+     * Sets the hour the quiet hours begin.
+     *
+     * @param quietFrom the new hour the quiet hours begin
+     */
+    public void setQuietFrom(Integer quietFrom) {
+        this.quietFrom = quietFrom;
+    }
+
+    /**
+     * Gets the hour the quiet hours end.
+     *
+     * @return the hour the quiet hours end
+     */
+    public Integer getQuietUntil() {
+        return quietUntil;
+    }
+
+    /**
+     * Sets the hour the quiet hours end.
+     *
+     * @param quietUntil the new hour the quiet hours end
+     */
+    public void setQuietUntil(Integer quietUntil) {
+        this.quietUntil = quietUntil;
+    }
+
     /**
      * Gets the old password.
      *
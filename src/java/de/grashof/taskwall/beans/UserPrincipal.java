@@ -0,0 +1,78 @@
+package de.grashof.taskwall.beans;
+
+import de.grashof.taskwall.entity.Profile;
+
+import java.io.Serializable;
+
+/**
+ * The logged in user as kept in the session: only what is needed on nearly
+ * every request. Everything else is taken from the shared Profile copies of
+ * the ProfileCache when it is needed. Besides the LoginBean, the principal is
+ * also stored as a plain session attribute, so it can be checked without JSF.
+ *
+ * @author TaskWall-Team
+ */
+public final class UserPrincipal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the session attribute holding the principal of the logged
+     * in user. It is read by the AuthenticationFilter before any bean is
+     * created.
+     */
+    public static final String SESSION_KEY = "de.grashof.taskwall.principal";
+
+    /**
+     * The id of the Profile of the user.
+     */
+    private final long id;
+
+    /**
+     * The username of the user.
+     */
+    private final String username;
+
+    /**
+     * Indicating whether the user is an administrator.
+     */
+    private final boolean administrator;
+
+    /**
+     * Constructor taking the data of the passed Profile.
+     *
+     * @param profile the Profile of the user
+     */
+    public UserPrincipal(Profile profile) {
+        id = profile.getId();
+        username = profile.getUsername();
+        administrator = profile.isAdministrator();
+    }
+
+    /**
+     * Gets the id of the Profile of the user.
+     *
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the username.
+     *
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets whether the user is an administrator.
+     *
+     * @return true if the user is an administrator; false if not
+     */
+    public boolean isAdministrator() {
+        return administrator;
+    }
+}
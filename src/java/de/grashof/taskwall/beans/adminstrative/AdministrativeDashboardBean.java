@@ -1,26 +1,27 @@
 package de.grashof.taskwall.beans.adminstrative;
 
-import de.grashof.taskwall.beans.LoginBean;
+import de.grashof.taskwall.beans.PageParameters;
+import de.grashof.taskwall.beans.persistence.Page;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
 import de.grashof.taskwall.beans.persistence.UserPersistence;
-import de.grashof.taskwall.beans.task.CreateTaskBean;
-import de.grashof.taskwall.entity.Profile;
+import de.grashof.taskwall.entity.UserSummary;
 
-import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.enterprise.context.RequestScoped;
-import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
-import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
  * Used for the first page an administrator sees when opening the administration
- * pages. Displays a list with all users and information on them.
+ * pages. Displays one page of the users and information on them. The users can
+ * be searched by the beginning of their username or e-mail address. The search,
+ * the order and the page are passed as request parameters, so every page has
+ * its own URL.
  *
  * @author TaskWall-Team
  */
@@ -29,53 +30,68 @@ import javax.inject.Named;
 public class AdministrativeDashboardBean {
 
     /**
-     * A List containing all users.
+     * The number of users shown on one page.
      */
-    private List<Profile> users;
+    private static final int PAGE_SIZE = 25;
+
+    /**
+     * The page of users that is shown.
+     */
+    private Page<UserSummary> page = new Page<>(Collections.<UserSummary>emptyList(), false, false);
+
+    /**
+     * The beginning of the usernames or e-mail addresses searched for as
+     * passed in the request.
+     */
+    private String query = "";
+
+    /**
+     * Indicates whether the users are sorted and searched by e-mail address
+     * instead of username.
+     */
+    private boolean byEmail = false;
+
+    /**
+     * The id of the user the shown page starts after as passed in the request.
+     */
+    private String after = "";
+
+    /**
+     * The id of the user the shown page ends before as passed in the request.
+     */
+    private String before = "";
 
     /**
      * The currently selected user when the administrator uses a button in the
      * table.
      */
-    private Profile current;
+    private UserSummary current;
 
     /**
-     * Used to check whether the user is allowed to see the administrative pages
-     * or not.
+     * Used to reset passwords.
      */
-    @Inject
-    private LoginBean loginBean;
+    @EJB
+    private UserPersistence userPersistence;
 
     /**
-     * Used to load the user list and check the current user.
+     * Used to load the page of users.
      */
     @EJB
-    private UserPersistence userPersistence;
+    private UserDirectory userDirectory;
 
     /**
-     * Checks whether the current user is allowed to view the administrative
-     * pages and, if not, redirects him to the login page/dashboard. Loads the
-     * user List from the database.
+     * Loads the requested page of users from the UserDirectory.
      */
     @PostConstruct
     public void init() {
-        if (!loginBean.getLoginSuccess()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/login.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        } else if (!userPersistence.getUser(loginBean.getUsername()).isAdministrator()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/dashboard.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        } else {
-            users = userPersistence.getUsers();
-        }
+        Map<String, String> parameters = FacesContext.getCurrentInstance().getExternalContext()
+                .getRequestParameterMap();
+        query = PageParameters.trim(parameters.get("q"));
+        byEmail = "email".equals(parameters.get("field"));
+        before = PageParameters.trim(parameters.get("before"));
+        after = before.isEmpty() ? PageParameters.trim(parameters.get("after")) : "";
+        page = userDirectory.getPage(byEmail ? UserDirectory.Field.EMAIL : UserDirectory.Field.USERNAME,
+                query, parseId(after), parseId(before), PAGE_SIZE);
     }
 
     /**
@@ -88,12 +104,106 @@ public class AdministrativeDashboardBean {
     }
 
     /**
-     * Gets the List of all users.
+     * Parses the id of a user passed in the request.
+     *
+     * @param id the id
+     * @return the id; null if it is empty or malformed
+     */
+    private static Long parseId(String id) {
+        return id.matches("\\d{1,18}") ? Long.valueOf(id) : null;
+    }
+
+    /**
+     * Gets the users on the shown page.
+     *
+     * @return a List containing the users on the shown page
+     */
+    public List<UserSummary> getUsers() {
+        return page.getItems();
+    }
+
+    /**
+     * Gets the number of all users.
+     *
+     * @return the number of users
+     */
+    public int getUserCount() {
+        return userDirectory.getSize();
+    }
+
+    /**
+     * Gets whether there is a page before the shown one.
+     *
+     * @return true if there is a previous page; false if not
+     */
+    public boolean getHasPrevious() {
+        return page.hasPrevious();
+    }
+
+    /**
+     * Gets whether there is a page after the shown one.
+     *
+     * @return true if there is a next page; false if not
+     */
+    public boolean getHasNext() {
+        return page.hasNext();
+    }
+
+    /**
+     * Gets the cursor of the page before the shown one.
+     *
+     * @return the id of the first user on the page; null if the page is empty
+     */
+    public Long getPreviousCursor() {
+        return page.isEmpty() ? null : page.getFirst().getId();
+    }
+
+    /**
+     * Gets the cursor of the page after the shown one.
+     *
+     * @return the id of the last user on the page; null if the page is empty
+     */
+    public Long getNextCursor() {
+        return page.isEmpty() ? null : page.getLast().getId();
+    }
+
+    /**
+     * Gets the cursor the shown page starts after. It is sent along with the
+     * form, so a postback resolves the same page.
+     *
+     * @return the cursor the shown page starts after
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * Gets the cursor the shown page ends before. It is sent along with the
+     * form, so a postback resolves the same page.
+     *
+     * @return the cursor the shown page ends before
+     */
+    public String getBefore() {
+        return before;
+    }
+
+    /**
+     * Gets the beginning of the usernames or e-mail addresses searched for.
+     *
+     * @return the searched beginning; an empty String if all users are shown
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Gets the order of the users as passed in the request.
      *
-     * @return a List containing all users
+     * @return "email" if the users are sorted by e-mail address; "username"
+     * if they are sorted by username
      */
-    public List<Profile> getUsers() {
-        return users;
+    public String getField() {
+        return byEmail ? "email" : "username";
     }
 
     /**
@@ -101,7 +211,7 @@ public class AdministrativeDashboardBean {
      *
      * @return the currently selected user
      */
-    public Profile getCurrent() {
+    public UserSummary getCurrent() {
         return current;
     }
 
@@ -110,7 +220,7 @@ public class AdministrativeDashboardBean {
      *
      * @param current the new currently selected user
      */
-    public void setCurrent(Profile current) {
+    public void setCurrent(UserSummary current) {
         this.current = current;
     }
 }
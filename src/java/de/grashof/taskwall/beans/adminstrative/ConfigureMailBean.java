@@ -1,22 +1,13 @@
 package de.grashof.taskwall.beans.adminstrative;
 
-import de.grashof.taskwall.beans.LoginBean;
 import de.grashof.taskwall.beans.persistence.MailPropertiesPersistence;
-import de.grashof.taskwall.beans.persistence.UserPersistence;
-import de.grashof.taskwall.beans.task.CreateTaskBean;
 import de.grashof.taskwall.entity.MailProperties;
 
-import java.io.IOException;
 import java.io.Serializable;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
-import javax.faces.context.ExternalContext;
-import javax.faces.context.FacesContext;
 import javax.faces.view.ViewScoped;
-import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
@@ -59,19 +50,6 @@ public class ConfigureMailBean implements Serializable {
      */
     private MailProperties mailProperties;
 
-    /**
-     * Used to get the username of the current user.
-     */
-    @Inject
-    private LoginBean loginBean;
-
-    /**
-     * Used to check whether the current user is allowed to configure the
-     * SMTP-service.
-     */
-    @EJB
-    private UserPersistence userPersistence;
-
     /**
      * Used to load and store the SMTP-settings in the database.
      */
@@ -79,33 +57,16 @@ public class ConfigureMailBean implements Serializable {
     private MailPropertiesPersistence mailPropertiesPersistence;
 
     /**
-     * Checks whether the current user is allowed to alter the SMTP-settings and
-     * loads all saved configuration data from the database.
+     * Loads all saved configuration data from the database.
      */
     @PostConstruct
     public void init() {
-        if (!loginBean.getLoginSuccess()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/login.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        } else if (!userPersistence.getUser(loginBean.getUsername()).isAdministrator()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/dashboard.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        } else {
-            mailProperties = mailPropertiesPersistence.getMailProperties();
-            enabled = Boolean.parseBoolean(mailProperties.getProperties().getProperty("mail.enabled"));
-            host = mailProperties.getProperties().getProperty("mail.smtp.host");
-            user = mailProperties.getProperties().getProperty("mail.smtp.user");
-            password = mailProperties.getProperties().getProperty("mail.password");
-            port = mailProperties.getProperties().getProperty("mail.smtp.port");
-        }
+        mailProperties = mailPropertiesPersistence.getMailProperties();
+        enabled = Boolean.parseBoolean(mailProperties.getProperties().getProperty("mail.enabled"));
+        host = mailProperties.getProperties().getProperty("mail.smtp.host");
+        user = mailProperties.getProperties().getProperty("mail.smtp.user");
+        password = mailProperties.getProperties().getProperty("mail.password");
+        port = mailProperties.getProperties().getProperty("mail.smtp.port");
     }
 
     /**
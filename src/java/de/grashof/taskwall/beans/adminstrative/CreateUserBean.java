@@ -1,23 +1,14 @@
 package de.grashof.taskwall.beans.adminstrative;
 
-import de.grashof.taskwall.beans.LoginBean;
 import de.grashof.taskwall.beans.persistence.UserPersistence;
-import de.grashof.taskwall.beans.task.CreateTaskBean;
 import de.grashof.taskwall.entity.Profile;
 
-import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.annotation.PostConstruct;
-
 import javax.ejb.EJB;
 import javax.enterprise.context.RequestScoped;
 import javax.faces.application.FacesMessage;
 import javax.faces.component.UIComponent;
 import javax.faces.component.UIInput;
-import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
-import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
@@ -43,41 +34,12 @@ public class CreateUserBean {
     private boolean isAdmin = false;
 
     /**
-     * Used to check whether the current user is allowed to create new users.
-     */
-    @Inject
-    private LoginBean loginBean;
-
-    /**
-     * Used to retrieve data about the current user and to store the new user
+     * Used to check whether the new user exists already and to store him
      * permanently.
      */
     @EJB
     private UserPersistence userPersistence;
 
-    /**
-     * Checks whether the current user has the right to create new users and, if
-     * not, reconnects to the login page/dashboard.
-     */
-    @PostConstruct
-    public void init() {
-        if (!loginBean.getLoginSuccess()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/login.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        } else if (!userPersistence.getUser(loginBean.getUsername()).isAdministrator()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/dashboard.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
-    }
-
     /**
      * Validates the new username. If a user with the username exists already,
      * there is an error message displayed.
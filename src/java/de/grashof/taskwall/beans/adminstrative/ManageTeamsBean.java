@@ -0,0 +1,256 @@
+package de.grashof.taskwall.beans.adminstrative;
+
+import de.grashof.taskwall.beans.PageParameters;
+import de.grashof.taskwall.beans.persistence.TeamPersistence;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
+import de.grashof.taskwall.entity.Team;
+import de.grashof.taskwall.entity.UserSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.enterprise.context.RequestScoped;
+import javax.faces.application.FacesMessage;
+import javax.faces.context.FacesContext;
+import javax.inject.Named;
+
+/**
+ * Used by administrators to create teams and to add and remove their members.
+ * The selected team is passed as the request parameter "team".
+ *
+ * @author TaskWall-Team
+ */
+@RequestScoped
+@Named
+public class ManageTeamsBean {
+
+    /**
+     * All teams.
+     */
+    private List<Team> teams = Collections.emptyList();
+
+    /**
+     * The selected team; null if none is selected.
+     */
+    private Team team;
+
+    /**
+     * The members of the selected team.
+     */
+    private List<UserSummary> members = Collections.emptyList();
+
+    /**
+     * The name of the team that should be created.
+     */
+    private String teamName;
+
+    /**
+     * The username or e-mail address of the user that should be added to the
+     * selected team.
+     */
+    private String memberName;
+
+    /**
+     * The currently selected member when the administrator uses a button in
+     * the table.
+     */
+    private UserSummary current;
+
+    /**
+     * Used to load and change the teams.
+     */
+    @EJB
+    private TeamPersistence teamPersistence;
+
+    /**
+     * Used to find the members by their names.
+     */
+    @EJB
+    private UserDirectory userDirectory;
+
+    /**
+     * Loads all teams and the members of the selected team.
+     */
+    @PostConstruct
+    public void init() {
+        teams = teamPersistence.getTeams();
+        String id = PageParameters.trim(FacesContext.getCurrentInstance().getExternalContext()
+                .getRequestParameterMap().get("team"));
+        if (id.matches("\\d{1,18}")) {
+            select(teamPersistence.getTeam(Long.parseLong(id)));
+        }
+    }
+
+    /**
+     * Creates a new team with the entered name and selects it.
+     */
+    public void createTeam() {
+        String name = PageParameters.trim(teamName);
+        if (name.isEmpty()) {
+            message("teamName", "Namen des Teams eingeben.");
+        } else if (teamPersistence.findTeam(name) != null) {
+            message("teamName", "Team existiert bereits.");
+        } else {
+            Team created = teamPersistence.createTeam(name);
+            teams = teamPersistence.getTeams();
+            teamName = null;
+            select(created);
+        }
+    }
+
+    /**
+     * Adds the user with the entered username or e-mail address to the
+     * selected team.
+     */
+    public void addMember() {
+        if (team == null) {
+            return;
+        }
+        UserSummary user = userDirectory.findUser(PageParameters.trim(memberName));
+        if (user == null) {
+            message("memberName", "Benutzer existiert nicht.");
+            return;
+        }
+        if (!teamPersistence.addMember(team.getId(), user.getId())) {
+            message("memberName", "Benutzer ist bereits Mitglied.");
+            return;
+        }
+        memberName = null;
+        select(team);
+    }
+
+    /**
+     * Removes the currently selected member from the selected team.
+     */
+    public void removeMember() {
+        if (team != null && current != null) {
+            teamPersistence.removeMember(team.getId(), current.getId());
+            select(team);
+        }
+    }
+
+    /**
+     * Builds the wall of the selected team anew.
+     */
+    public void rebuildWall() {
+        if (team != null) {
+            int count = teamPersistence.rebuildWall(team.getId());
+            message(null, "Wand neu aufgebaut: " + count + " Aufgaben.");
+        }
+    }
+
+    /**
+     * Selects a team and loads its members.
+     *
+     * @param selected the team; null to select none
+     */
+    private void select(Team selected) {
+        team = selected;
+        members = new ArrayList<>();
+        if (team == null) {
+            return;
+        }
+        for (Long id : teamPersistence.getMemberIds(team.getId())) {
+            UserSummary user = userDirectory.getUser(id);
+            if (user != null) {
+                members.add(user);
+            }
+        }
+    }
+
+    /**
+     * Displays a message.
+     *
+     * @param input the id of the input the message belongs to; null for a
+     * global message
+     * @param text the text of the message
+     */
+    private static void message(String input, String text) {
+        FacesContext.getCurrentInstance().addMessage(input == null ? null : "teams:" + input,
+                new FacesMessage(text));
+    }
+
+    /**
+     * Gets all teams.
+     *
+     * @return a List containing all teams
+     */
+    public List<Team> getTeams() {
+        return teams;
+    }
+
+    /**
+     * Gets the selected team.
+     *
+     * @return the selected team; null if none is selected
+     */
+    public Team getTeam() {
+        return team;
+    }
+
+    /**
+     * Gets the members of the selected team.
+     *
+     * @return a List containing the members
+     */
+    public List<UserSummary> getMembers() {
+        return members;
+    }
+
+    /**
+     * Gets the name of the team that should be created.
+     *
+     * @return the name of the team
+     */
+    public String getTeamName() {
+        return teamName;
+    }
+
+    /**
+     * Sets the name of the team that should be created.
+     *
+     * @param teamName the name of the team
+     */
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+    }
+
+    /**
+     * Gets the name of the user that should be added.
+     *
+     * @return the username or e-mail address
+     */
+    public String getMemberName() {
+        return memberName;
+    }
+
+    /**
+     * Sets the name of the user that should be added.
+     *
+     * @param memberName the username or e-mail address
+     */
+    public void setMemberName(String memberName) {
+        this.memberName = memberName;
+    }
+
+    /**
+     * Gets the currently selected member.
+     *
+     * @return the currently selected member
+     */
+    public UserSummary getCurrent() {
+        return current;
+    }
+
+    /**
+     * Sets the currently selected member.
+     *
+     * @param current the new currently selected member
+     */
+    public void setCurrent(UserSummary current) {
+        this.current = current;
+    }
+}
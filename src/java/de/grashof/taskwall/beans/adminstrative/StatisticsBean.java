@@ -0,0 +1,412 @@
+package de.grashof.taskwall.beans.adminstrative;
+
+import de.grashof.taskwall.archive.ArchiveTiering;
+import de.grashof.taskwall.archive.ColdStorage;
+import de.grashof.taskwall.beans.persistence.OutboxPersistence;
+import de.grashof.taskwall.beans.persistence.ProfileCache;
+import de.grashof.taskwall.beans.persistence.UsernameFilter;
+import de.grashof.taskwall.mail.MailDispatcher;
+import de.grashof.taskwall.mail.TransportPool;
+import de.grashof.taskwall.search.SearchIndex;
+import de.grashof.taskwall.security.LoginThrottle;
+import de.grashof.taskwall.security.PasswordHasher;
+import de.grashof.taskwall.setup.SchemaMigrator;
+import de.grashof.taskwall.web.ArchiveExportServlet;
+import de.grashof.taskwall.web.AuthenticationFilter;
+import de.grashof.taskwall.web.SessionRegistry;
+import de.grashof.taskwall.web.TaskImportServlet;
+
+import javax.ejb.EJB;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Named;
+
+/**
+ * Used when an administrator looks at the runtime statistics of the
+ * application.
+ *
+ * @author TaskWall-Team
+ */
+@RequestScoped
+@Named
+public class StatisticsBean {
+
+    /**
+     * Used to get the statistics of the Profile lookups.
+     */
+    @EJB
+    private ProfileCache profileCache;
+
+    /**
+     * Used to get the size of the mail outbox.
+     */
+    @EJB
+    private OutboxPersistence outboxPersistence;
+
+    /**
+     * Used to get the statistics of the mail delivery.
+     */
+    @EJB
+    private MailDispatcher mailDispatcher;
+
+    /**
+     * Used to get the statistics of the SMTP-connections.
+     */
+    @EJB
+    private TransportPool transportPool;
+
+    /**
+     * Used to get the version of the database schema.
+     */
+    @EJB
+    private SchemaMigrator schemaMigrator;
+
+    /**
+     * Used to get the size of the cold archive.
+     */
+    @EJB
+    private ColdStorage coldStorage;
+
+    /**
+     * Used to get the result of the last tiering run.
+     */
+    @EJB
+    private ArchiveTiering archiveTiering;
+
+    /**
+     * Used to read the size of the search index.
+     */
+    @EJB
+    private SearchIndex searchIndex;
+
+    /**
+     * Used to read how many lookups of unknown usernames were saved.
+     */
+    @EJB
+    private UsernameFilter usernameFilter;
+
+    /**
+     * Used to read how many login attempts were throttled.
+     */
+    @EJB
+    private LoginThrottle loginThrottle;
+
+    /**
+     * Used to read the cost and duration of password hashing.
+     */
+    @EJB
+    private PasswordHasher passwordHasher;
+
+    /**
+     * Used to read the number and size of the open sessions.
+     */
+    @EJB
+    private SessionRegistry sessionRegistry;
+
+    /**
+     * Gets the number of Profiles that were loaded from the database.
+     *
+     * @return the number of performed Profile lookups
+     */
+    public long getPerformedLookups() {
+        return profileCache.getPerformedLookups();
+    }
+
+    /**
+     * Gets the number of Profile lookups that were answered without a query.
+     *
+     * @return the number of saved Profile lookups
+     */
+    public long getSavedLookups() {
+        return profileCache.getSavedLookups();
+    }
+
+    /**
+     * Gets the number of mails waiting for their delivery.
+     *
+     * @return the number of pending mails
+     */
+    public long getPendingMails() {
+        return outboxPersistence.countPending();
+    }
+
+    /**
+     * Gets the number of mails that could not be delivered.
+     *
+     * @return the number of dead letters
+     */
+    public long getDeadMails() {
+        return outboxPersistence.countDead();
+    }
+
+    /**
+     * Gets the number of mails currently being delivered.
+     *
+     * @return the number of running deliveries
+     */
+    public int getMailsInFlight() {
+        return mailDispatcher.getInFlight();
+    }
+
+    /**
+     * Gets the number of delivered mails.
+     *
+     * @return the number of delivered mails
+     */
+    public long getDeliveredMails() {
+        return mailDispatcher.getDelivered();
+    }
+
+    /**
+     * Gets the number of failed delivery attempts.
+     *
+     * @return the number of failed delivery attempts
+     */
+    public long getFailedDeliveries() {
+        return mailDispatcher.getFailed();
+    }
+
+    /**
+     * Gets the number of mails sent per second during the last minute.
+     *
+     * @return the number of mails sent per second
+     */
+    public double getSendRate() {
+        return transportPool.getSendRate();
+    }
+
+    /**
+     * Gets the number of SMTP-connections that were opened.
+     *
+     * @return the number of opened connections
+     */
+    public long getOpenedConnections() {
+        return transportPool.getOpened();
+    }
+
+    /**
+     * Gets the number of times an idle SMTP-connection was reused.
+     *
+     * @return the number of reused connections
+     */
+    public long getReusedConnections() {
+        return transportPool.getReused();
+    }
+
+    /**
+     * Gets the number of idle SMTP-connections.
+     *
+     * @return the number of idle connections
+     */
+    public int getIdleConnections() {
+        return transportPool.getIdle();
+    }
+
+    /**
+     * Gets the version of the database schema.
+     *
+     * @return the version of the database schema
+     */
+    public int getSchemaVersion() {
+        return schemaMigrator.getVersion();
+    }
+
+    /**
+     * Gets the number of segments in the cold archive.
+     *
+     * @return the number of segments
+     */
+    public int getColdSegments() {
+        return coldStorage.getSegments();
+    }
+
+    /**
+     * Gets the number of finished Tasks in the cold archive.
+     *
+     * @return the number of finished Tasks in the cold archive
+     */
+    public long getColdEntries() {
+        return coldStorage.getEntries();
+    }
+
+    /**
+     * Gets the number of finished Tasks moved into the cold archive by the last run.
+     *
+     * @return the number of moved Tasks
+     */
+    public int getLastTiered() {
+        return archiveTiering.getLastMoved();
+    }
+
+    /**
+     * Gets the number of Tasks in the search index.
+     *
+     * @return the number of indexed Tasks
+     */
+    public long getIndexedTasks() {
+        return searchIndex.getDocuments();
+    }
+
+    /**
+     * Gets whether the search index was completely built.
+     *
+     * @return true if the search index is complete; false if not
+     */
+    public boolean getSearchIndexReady() {
+        return searchIndex.isReady();
+    }
+
+    /**
+     * Gets the number of lookups of unknown usernames that did not query the database.
+     *
+     * @return the number of rejected lookups
+     */
+    public long getRejectedUsernames() {
+        return usernameFilter.getRejected();
+    }
+
+    /**
+     * Gets the number of login attempts that were checked.
+     *
+     * @return the number of allowed login attempts
+     */
+    public long getAllowedLogins() {
+        return loginThrottle.getAllowed();
+    }
+
+    /**
+     * Gets the number of login attempts that were rejected because too many attempts were made.
+     *
+     * @return the number of throttled login attempts
+     */
+    public long getThrottledLogins() {
+        return loginThrottle.getThrottled();
+    }
+
+    /**
+     * Gets the number of usernames and addresses whose login attempts are currently limited.
+     *
+     * @return the number of active buckets
+     */
+    public int getLoginBuckets() {
+        return loginThrottle.getBuckets();
+    }
+
+    /**
+     * Gets the number of iterations new password hashes are computed with.
+     *
+     * @return the number of iterations
+     */
+    public int getPasswordIterations() {
+        return passwordHasher.getIterations();
+    }
+
+    /**
+     * Gets the average time one password hash took.
+     *
+     * @return the average time in milliseconds
+     */
+    public double getPasswordHashMillis() {
+        return passwordHasher.getAverageMillis();
+    }
+
+    /**
+     * Gets the number of password hashes computed at the moment.
+     *
+     * @return the number of running hashes
+     */
+    public int getPasswordHashesInFlight() {
+        return passwordHasher.getInFlight();
+    }
+
+    /**
+     * Gets the number of password hashes that were given up because too many
+     * passwords were hashed at the same time.
+     *
+     * @return the number of given up hashes
+     */
+    public long getPasswordChecksBusy() {
+        return passwordHasher.getBusy();
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return the number of open sessions
+     */
+    public int getSessions() {
+        return sessionRegistry.getSessions();
+    }
+
+    /**
+     * Gets the highest number of sessions open at the same time.
+     *
+     * @return the highest number of open sessions
+     */
+    public long getPeakSessions() {
+        return sessionRegistry.getPeak();
+    }
+
+    /**
+     * Gets the estimated average size of a session.
+     *
+     * @return the average size of a session in bytes
+     */
+    public long getSessionBytes() {
+        return sessionRegistry.getEstimatedBytes();
+    }
+
+    /**
+     * Gets the number of Profile copies shared by the sessions.
+     *
+     * @return the number of shared Profile copies
+     */
+    public int getSharedProfiles() {
+        return profileCache.getSnapshots();
+    }
+
+    /**
+     * Gets the number of requests the AuthenticationFilter redirected because the
+     * user was not logged in or not allowed to open the page.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejectedRequests() {
+        return AuthenticationFilter.getRejected();
+    }
+
+    /**
+     * Gets the number of Tasks imported since the start of the application.
+     *
+     * @return the number of imported Tasks
+     */
+    public long getImportedTasks() {
+        return TaskImportServlet.getImported();
+    }
+
+    /**
+     * Gets the throughput of the last finished import.
+     *
+     * @return the number of read rows per second
+     */
+    public long getImportRowsPerSecond() {
+        return TaskImportServlet.getLastRowsPerSecond();
+    }
+
+    /**
+     * Gets the number of exports of finished Tasks running at the moment.
+     *
+     * @return the number of running exports
+     */
+    public int getRunningExports() {
+        return ArchiveExportServlet.getRunning();
+    }
+
+    /**
+     * Gets the number of finished Tasks exported since the start of the application.
+     *
+     * @return the number of exported Tasks
+     */
+    public long getExportedTasks() {
+        return ArchiveExportServlet.getExported();
+    }
+}
@@ -1,12 +1,21 @@
 package de.grashof.taskwall.beans.persistence;
 
+import de.grashof.taskwall.archive.ColdStorage;
 import de.grashof.taskwall.entity.ArchivedTask;
+import de.grashof.taskwall.entity.TaskSummary;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
 
 /**
  * Represents the interface between the application and the storage of Archived
@@ -24,15 +33,174 @@ public class ArchivedTasksPersistence {
     private EntityManager entityManager;
 
     /**
-     * Returns a List containing all ArchivedTasks assigned to a user.
+     * Holds the ArchivedTasks that were moved out of the database.
+     */
+    @EJB
+    private ColdStorage coldStorage;
+
+    /**
+     * Returns the ArchivedTask with the passed id including its description,
+     * if it was assigned to the user. It is looked up in the cold archive if
+     * it is no longer in the database.
      *
-     * @param receiverId the id of the user that was assigned the Tasks
-     * @return a List containing all finished Tasks that were assigned to the
+     * @param id the id of the ArchivedTask
+     * @param receiverId the id of the user the Task has to be assigned to
+     * @return the ArchivedTask; null if there is no such Task assigned to the
      * user
      */
-    public List<ArchivedTask> getFinishedTasks(long receiverId) {
-        return entityManager.createNamedQuery("getFinishedTasks")
-                .setParameter("receiverId", receiverId)
+    public ArchivedTask getFinishedTask(long id, long receiverId) {
+        ArchivedTask task = entityManager.find(ArchivedTask.class, id);
+        if (task == null) {
+            return coldStorage.find(id, receiverId);
+        }
+        if (task.getReceiverId() != receiverId) {
+            return null;
+        }
+        task.getDescription();
+        return task;
+    }
+
+    /**
+     * Returns one page of the ArchivedTasks assigned to a user, the most
+     * recently finished first. Like the open Tasks the page is found by
+     * seeking from the Task at its border, using the index on (receiverId,
+     * finished DESC, id DESC). Only the columns shown in the list are loaded.
+     * Since the cold archive only holds Tasks finished before those in the
+     * database, it is only read once the database has no more Tasks for the
+     * page.
+     *
+     * @param receiverId the id of the user that was assigned the Tasks
+     * @param from the earliest date the Tasks were finished; null for no
+     * restriction
+     * @param until the latest date the Tasks were finished; null for no
+     * restriction
+     * @param seekFinished the date the Task at the border of the page was
+     * finished; null for the first page
+     * @param seekId the id of the Task at the border of the page; null for the
+     * first page
+     * @param backwards true if the page ends before the border Task; false if
+     * it starts after it
+     * @param size the maximum number of Tasks on the page
+     * @return the page of finished Tasks that were assigned to the user
+     */
+    public Page<TaskSummary> getFinishedTasks(long receiverId, Date from, Date until, Date seekFinished,
+            Long seekId, boolean backwards, int size) {
+        boolean seek = seekFinished != null && seekId != null;
+        List<TaskSummary> tasks = new ArrayList<>(size + 1);
+        if (backwards) {
+            tasks.addAll(coldStorage.getPage(receiverId, from, until, seekFinished, seekId, true, size + 1));
+            if (tasks.size() <= size) {
+                tasks.addAll(getHotTasks(receiverId, from, until, seekFinished, seekId, true,
+                        size + 1 - tasks.size()));
+            }
+        } else {
+            tasks.addAll(getHotTasks(receiverId, from, until, seekFinished, seekId, false, size + 1));
+            if (tasks.size() <= size) {
+                tasks.addAll(coldStorage.getPage(receiverId, from, until, seekFinished, seekId, false,
+                        size + 1 - tasks.size()));
+            }
+        }
+
+        boolean more = tasks.size() > size;
+        List<TaskSummary> items = new ArrayList<>(more ? tasks.subList(0, size) : tasks);
+        if (backwards) {
+            Collections.reverse(items);
+            return new Page<>(items, more, seek);
+        }
+        return new Page<>(items, seek, more);
+    }
+
+    /**
+     * Gives the data the search index needs of the ArchivedTasks in the
+     * database with an id greater than the passed one, ordered by id. Every
+     * row contains the id, the receiverId, the title, the description, the
+     * deadline and the finish date.
+     *
+     * @param afterId the id to continue after
+     * @param max the maximum number of rows
+     * @return a List containing the rows
+     */
+    public List<Object[]> getIndexedTasks(long afterId, int max) {
+        return entityManager.createNamedQuery("getIndexedArchivedTasks")
+                .setParameter("afterId", afterId)
+                .setMaxResults(max)
                 .getResultList();
     }
+
+    /**
+     * Gives the data the search index needs of the ArchivedTasks in the
+     * database with the passed ids, in the same form as
+     * getIndexedTasks(long, int).
+     *
+     * @param ids the ids of the ArchivedTasks
+     * @return a List containing the rows
+     */
+    public List<Object[]> getIndexedTasks(Collection<Long> ids) {
+        return entityManager.createNamedQuery("getIndexedArchivedTasksByIds")
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Gives the ids, receiverIds and finish dates of the ArchivedTasks in the
+     * database finished on or after the passed day.
+     *
+     * @param since the first day
+     * @return a List containing the rows
+     */
+    public List<Object[]> getRecentlyFinishedTasks(Date since) {
+        return entityManager.createNamedQuery("getRecentlyFinishedTasks")
+                .setParameter("since", since, TemporalType.DATE)
+                .getResultList();
+    }
+
+    /**
+     * Returns the summaries of the ArchivedTasks of a user that are still in
+     * the database, starting next to the passed finish date and id.
+     *
+     * @param receiverId the id of the user that was assigned the Tasks
+     * @param from the earliest finish date; null for no restriction
+     * @param until the latest finish date; null for no restriction
+     * @param seekFinished the finish date to start next to; null to start at
+     * the beginning
+     * @param seekId the id to start next to; null to start at the beginning
+     * @param backwards true to read against the display order
+     * @param limit the maximum number of summaries
+     * @return the summaries in the order they were read
+     */
+    private List<TaskSummary> getHotTasks(long receiverId, Date from, Date until, Date seekFinished,
+            Long seekId, boolean backwards, int limit) {
+        boolean seek = seekFinished != null && seekId != null;
+        StringBuilder jpql = new StringBuilder(
+                "SELECT NEW de.grashof.taskwall.entity.TaskSummary(tasks.id, tasks.title, tasks.due, "
+                + "tasks.finished) FROM ArchivedTask tasks WHERE tasks.receiverId = :receiverId");
+        if (from != null) {
+            jpql.append(" AND tasks.finished >= :from");
+        }
+        if (until != null) {
+            jpql.append(" AND tasks.finished <= :until");
+        }
+        if (seek) {
+            String compare = backwards ? ">" : "<";
+            jpql.append(" AND (tasks.finished ").append(compare).append(" :seekFinished")
+                    .append(" OR (tasks.finished = :seekFinished AND tasks.id ").append(compare)
+                    .append(" :seekId))");
+        }
+        String order = backwards ? " ASC" : " DESC";
+        jpql.append(" ORDER BY tasks.finished").append(order).append(", tasks.id").append(order);
+
+        TypedQuery<TaskSummary> query = entityManager.createQuery(jpql.toString(), TaskSummary.class)
+                .setParameter("receiverId", receiverId);
+        if (from != null) {
+            query.setParameter("from", from, TemporalType.DATE);
+        }
+        if (until != null) {
+            query.setParameter("until", until, TemporalType.DATE);
+        }
+        if (seek) {
+            query.setParameter("seekFinished", seekFinished, TemporalType.DATE)
+                    .setParameter("seekId", seekId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
 }
@@ -0,0 +1,47 @@
+package de.grashof.taskwall.beans.persistence;
+
+import java.util.Date;
+import java.util.UUID;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Represents the interface between the application and the persistence storage
+ * of the leases of jobs that may only run on one node of the cluster at a
+ * time.
+ *
+ * @author TaskWall-Team
+ */
+@Stateless
+public class LeasePersistence {
+
+    /**
+     * The EntityManager is the connection to the database of the application.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Takes the lease of a job if no node holds it. The lease is taken in a
+     * transaction of its own, so the row is locked only for a moment and the
+     * other nodes see the lease while the job is still running.
+     *
+     * @param name the name of the job
+     * @param duration the time in milliseconds the lease is held
+     * @return true if the lease was taken; false if another node holds it
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean claim(String name, long duration) {
+        Date now = new Date();
+        return entityManager.createNamedQuery("claimLease")
+                .setParameter("holder", UUID.randomUUID().toString())
+                .setParameter("expires", new Date(now.getTime() + duration))
+                .setParameter("name", name)
+                .setParameter("now", now)
+                .executeUpdate() > 0;
+    }
+}
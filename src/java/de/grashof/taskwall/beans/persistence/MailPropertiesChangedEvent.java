@@ -0,0 +1,38 @@
+package de.grashof.taskwall.beans.persistence;
+
+import java.util.Properties;
+
+/**
+ * Fired by the MailPropertiesPersistence whenever the SMTP-settings are
+ * altered. Observers holding settings built from the old Properties use it to
+ * replace them as soon as the change is committed.
+ *
+ * @author TaskWall-Team
+ */
+public class MailPropertiesChangedEvent {
+
+    /**
+     * A copy of the new Properties containing the mail settings.
+     */
+    private final Properties properties;
+
+    /**
+     * Constructor setting the new Properties. The Properties are copied so
+     * later changes of the passed object are not visible to observers.
+     *
+     * @param properties the new Properties containing the mail settings
+     */
+    public MailPropertiesChangedEvent(Properties properties) {
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+    }
+
+    /**
+     * Gets the new Properties.
+     *
+     * @return the new Properties containing the mail settings
+     */
+    public Properties getProperties() {
+        return properties;
+    }
+}
@@ -3,6 +3,8 @@ package de.grashof.taskwall.beans.persistence;
 import de.grashof.taskwall.entity.MailProperties;
 
 import javax.ejb.Stateless;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
@@ -21,6 +23,12 @@ public class MailPropertiesPersistence {
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * Used to announce new SMTP-settings to holders of the cached settings.
+     */
+    @Inject
+    private Event<MailPropertiesChangedEvent> mailPropertiesChanged;
+
     /**
      * Returns the Singleton MailProperties object stored in the database.
      *
@@ -42,5 +50,6 @@ public class MailPropertiesPersistence {
         entityManager.createNamedQuery("updateProperties")
                 .setParameter("properties", mailProperties.getProperties())
                 .executeUpdate();
+        mailPropertiesChanged.fire(new MailPropertiesChangedEvent(mailProperties.getProperties()));
     }
 }
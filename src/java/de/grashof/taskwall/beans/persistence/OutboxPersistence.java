@@ -0,0 +1,174 @@
+package de.grashof.taskwall.beans.persistence;
+
+import de.grashof.taskwall.entity.OutboxMail;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Represents the interface between the application and the persistence storage
+ * of notifications that still have to be sent.
+ *
+ * @author TaskWall-Team
+ */
+@Stateless
+public class OutboxPersistence {
+
+    /**
+     * The number of delivery attempts after which a mail becomes a dead
+     * letter.
+     */
+    public static final int MAX_ATTEMPTS = 8;
+
+    /**
+     * The delay before the first retry of a failed delivery in milliseconds.
+     * It is doubled with every further failed attempt.
+     */
+    private static final long RETRY_DELAY = 30 * 1000L;
+
+    /**
+     * The longest delay between two delivery attempts in milliseconds.
+     */
+    private static final long MAX_RETRY_DELAY = 60 * 60 * 1000L;
+
+    /**
+     * The EntityManager is the connection to the database of the application.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Gives the ids of the receivers that have due notifications, the longest
+     * waiting first.
+     *
+     * @param max the maximum number of receivers
+     * @return a List containing the ids of the receivers
+     */
+    public List<Long> getDue(int max) {
+        List<Object[]> rows = entityManager.createNamedQuery("getDueOutboxReceivers")
+                .setParameter("status", OutboxMail.Status.PENDING)
+                .setParameter("now", new Date())
+                .setMaxResults(max)
+                .getResultList();
+        List<Long> receiverIds = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            receiverIds.add((Long) row[0]);
+        }
+        return receiverIds;
+    }
+
+    /**
+     * Reserves all due notifications of a receiver for a worker. They are not
+     * handed to another worker until the lease expires.
+     *
+     * @param receiverId the id of the receiver
+     * @param claim the token of the worker
+     * @param lease the point in time the reservation expires
+     * @return true if notifications were reserved; false if none are due
+     * anymore
+     */
+    public boolean claim(long receiverId, String claim, Date lease) {
+        return entityManager.createNamedQuery("claimOutboxMails")
+                .setParameter("claim", claim)
+                .setParameter("lease", lease)
+                .setParameter("receiverId", receiverId)
+                .setParameter("status", OutboxMail.Status.PENDING)
+                .setParameter("now", new Date())
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * Gives the notifications of a receiver that are reserved for the worker.
+     *
+     * @param receiverId the id of the receiver
+     * @param claim the token of the worker
+     * @return a List containing the reserved notifications
+     */
+    public List<OutboxMail> getClaimed(long receiverId, String claim) {
+        return entityManager.createNamedQuery("getClaimedOutboxMails", OutboxMail.class)
+                .setParameter("receiverId", receiverId)
+                .setParameter("claim", claim)
+                .getResultList();
+    }
+
+    /**
+     * Removes the reserved notifications of a receiver after they were
+     * delivered or no longer need to be sent.
+     *
+     * @param receiverId the id of the receiver
+     * @param claim the token of the worker
+     */
+    public void delivered(long receiverId, String claim) {
+        entityManager.createNamedQuery("deleteClaimedOutboxMails")
+                .setParameter("receiverId", receiverId)
+                .setParameter("claim", claim)
+                .executeUpdate();
+    }
+
+    /**
+     * Records a failed delivery attempt for the reserved notifications of a
+     * receiver. The next attempt is scheduled with an exponentially growing
+     * delay, after too many attempts a notification becomes a dead letter.
+     * The attempt is recorded in a transaction of its own, so it is kept even
+     * if the transaction of the delivery is rolled back.
+     *
+     * @param receiverId the id of the receiver
+     * @param claim the token of the worker
+     * @param error the reason of the failure
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void failed(long receiverId, String claim, String error) {
+        if (error != null && error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        for (OutboxMail mail : getClaimed(receiverId, claim)) {
+            int attempts = mail.getAttempts() + 1;
+            mail.setAttempts(attempts);
+            mail.setClaim(null);
+            mail.setLastError(error);
+            if (attempts >= MAX_ATTEMPTS) {
+                mail.setStatus(OutboxMail.Status.DEAD);
+            } else {
+                long delay = Math.min(RETRY_DELAY << (attempts - 1), MAX_RETRY_DELAY);
+                mail.setNextAttempt(new Date(System.currentTimeMillis() + delay));
+            }
+        }
+    }
+
+    /**
+     * Counts the mails that are waiting for their delivery.
+     *
+     * @return the number of pending mails
+     */
+    public long countPending() {
+        return count(OutboxMail.Status.PENDING);
+    }
+
+    /**
+     * Counts the mails that could not be delivered.
+     *
+     * @return the number of dead letters
+     */
+    public long countDead() {
+        return count(OutboxMail.Status.DEAD);
+    }
+
+    /**
+     * Counts the mails with the passed delivery state.
+     *
+     * @param status the delivery state
+     * @return the number of mails with the delivery state
+     */
+    private long count(OutboxMail.Status status) {
+        return (Long) entityManager.createNamedQuery("countOutboxMails")
+                .setParameter("status", status)
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,98 @@
+package de.grashof.taskwall.beans.persistence;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a result that is browsed page by page. Besides the entries of
+ * the page it tells whether there are entries before and after it.
+ *
+ * @author TaskWall-Team
+ * @param <T> the type of the entries
+ */
+public class Page<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The entries of the page in their display order.
+     */
+    private final List<T> items;
+
+    /**
+     * Indicates whether there are entries before the page.
+     */
+    private final boolean previous;
+
+    /**
+     * Indicates whether there are entries after the page.
+     */
+    private final boolean next;
+
+    /**
+     * Constructor setting all fields.
+     *
+     * @param items the entries of the page in their display order
+     * @param previous true if there are entries before the page
+     * @param next true if there are entries after the page
+     */
+    public Page(List<T> items, boolean previous, boolean next) {
+        this.items = items;
+        this.previous = previous;
+        this.next = next;
+    }
+
+    /**
+     * Gets the entries of the page.
+     *
+     * @return the entries of the page
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets whether the page contains no entries.
+     *
+     * @return true if the page is empty; false if not
+     */
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * Gets the first entry of the page.
+     *
+     * @return the first entry; null if the page is empty
+     */
+    public T getFirst() {
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    /**
+     * Gets the last entry of the page.
+     *
+     * @return the last entry; null if the page is empty
+     */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+
+    /**
+     * Gets whether there are entries before the page.
+     *
+     * @return true if there is a previous page; false if not
+     */
+    public boolean hasPrevious() {
+        return previous;
+    }
+
+    /**
+     * Gets whether there are entries after the page.
+     *
+     * @return true if there is a next page; false if not
+     */
+    public boolean hasNext() {
+        return next;
+    }
+}
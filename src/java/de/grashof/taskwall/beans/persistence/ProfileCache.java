@@ -0,0 +1,220 @@
+package de.grashof.taskwall.beans.persistence;
+
+import de.grashof.taskwall.entity.Profile;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+
+/**
+ * Keeps a revision number for every user that is increased whenever the data
+ * of the user changes. Copies of a Profile are only reused as long as the
+ * revision they were loaded with is still the current one. The copies are kept
+ * here, shared by all sessions of a user, instead of in every session; copies
+ * that were not used for a while are dropped. The revisions only know the
+ * changes made on this node, so every copy also expires a short time after it
+ * was loaded, however often it is used; changes made on other nodes are seen
+ * after that time at the latest. The cached copy is never handed out itself:
+ * every caller gets a copy of its own, so no Profile object is shared between
+ * threads. Also counts how many Profile lookups were performed and how many
+ * could be saved.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ProfileCache {
+
+    /**
+     * The current revision of every user that was changed since the start of
+     * the application. Users without an entry have the revision 0.
+     */
+    private final ConcurrentMap<String, AtomicLong> revisions = new ConcurrentHashMap<>();
+
+    /**
+     * The time in milliseconds after which an unused copy of a Profile is
+     * dropped.
+     */
+    private static final long MAX_IDLE = 30 * 60 * 1000L;
+
+    /**
+     * The time in milliseconds after which a copy of a Profile is dropped,
+     * counted from when it was loaded.
+     */
+    private static final long MAX_AGE = 60 * 1000L;
+
+    /**
+     * The shared copies of the Profiles by the usernames.
+     */
+    private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * The number of Profiles that had to be loaded from the database.
+     */
+    private final AtomicLong performedLookups = new AtomicLong();
+
+    /**
+     * The number of Profile lookups that were answered by a cached copy.
+     */
+    private final AtomicLong savedLookups = new AtomicLong();
+
+    /**
+     * Gets the current revision of the user.
+     *
+     * @param username the username of the user
+     * @return the current revision of the user
+     */
+    public long getRevision(String username) {
+        AtomicLong revision = revisions.get(username);
+        return revision == null ? 0 : revision.get();
+    }
+
+    /**
+     * Gets a copy of the shared copy of the Profile of a user if it is up to
+     * date.
+     *
+     * @param username the username of the user
+     * @return a new copy of the Profile; null if there is none, it is out of
+     * date or it expired
+     */
+    public Profile getProfile(String username) {
+        Snapshot snapshot = snapshots.get(username);
+        long now = System.currentTimeMillis();
+        if (snapshot == null || snapshot.revision != getRevision(username)
+                || now - snapshot.loaded > MAX_AGE) {
+            return null;
+        }
+        snapshot.lastUsed = now;
+        return new Profile(snapshot.profile);
+    }
+
+    /**
+     * Stores the shared copy of the Profile of a user.
+     *
+     * @param profile the Profile
+     * @param revision the revision of the user the Profile was loaded with
+     */
+    public void putProfile(Profile profile, long revision) {
+        snapshots.put(profile.getUsername(), new Snapshot(new Profile(profile), revision));
+    }
+
+    /**
+     * Drops the copies that were not used for a while or expired.
+     */
+    @Schedule(hour = "*", minute = "*/10", persistent = false)
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<Snapshot> iterator = snapshots.values().iterator();
+        while (iterator.hasNext()) {
+            Snapshot snapshot = iterator.next();
+            if (now - snapshot.lastUsed > MAX_IDLE || now - snapshot.loaded > MAX_AGE) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of shared Profile copies.
+     *
+     * @return the number of copies
+     */
+    public int getSnapshots() {
+        return snapshots.size();
+    }
+
+    /**
+     * Increases the revision of the user after a change of his data was
+     * committed, so all copies loaded before become invalid.
+     *
+     * @param event the event describing the changed user
+     */
+    public void invalidate(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProfileChangedEvent event) {
+        AtomicLong revision = revisions.get(event.getUsername());
+        if (revision == null) {
+            AtomicLong created = new AtomicLong();
+            revision = revisions.putIfAbsent(event.getUsername(), created);
+            if (revision == null) {
+                revision = created;
+            }
+        }
+        revision.incrementAndGet();
+        snapshots.remove(event.getUsername());
+    }
+
+    /**
+     * Counts a Profile lookup that had to query the database.
+     */
+    public void lookupPerformed() {
+        performedLookups.incrementAndGet();
+    }
+
+    /**
+     * Counts a Profile lookup that was answered without querying the database.
+     */
+    public void lookupSaved() {
+        savedLookups.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of Profile lookups that queried the database.
+     *
+     * @return the number of performed lookups
+     */
+    public long getPerformedLookups() {
+        return performedLookups.get();
+    }
+
+    /**
+     * Gets the number of Profile lookups that were answered by a cached copy.
+     *
+     * @return the number of saved lookups
+     */
+    public long getSavedLookups() {
+        return savedLookups.get();
+    }
+
+    /**
+     * A copy of a Profile together with the revision it was loaded with.
+     */
+    private static class Snapshot {
+
+        /**
+         * The copy of the Profile.
+         */
+        private final Profile profile;
+
+        /**
+         * The revision of the user the copy was loaded with.
+         */
+        private final long revision;
+
+        /**
+         * The time the copy was loaded.
+         */
+        private final long loaded = System.currentTimeMillis();
+
+        /**
+         * The time the copy was last used.
+         */
+        private volatile long lastUsed = loaded;
+
+        /**
+         * Constructor setting the copy and its revision.
+         *
+         * @param profile the copy of the Profile; it is never changed
+         * @param revision the revision of the user
+         */
+        Snapshot(Profile profile, long revision) {
+            this.profile = profile;
+            this.revision = revision;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package de.grashof.taskwall.beans.persistence;
+
+/**
+ * Fired by the UserPersistence whenever the stored data of a user is altered.
+ * Observers keeping copies of a Profile use it to drop their copy as soon as
+ * the change is committed.
+ *
+ * @author TaskWall-Team
+ */
+public class ProfileChangedEvent {
+
+    /**
+     * The username of the user whose data was altered.
+     */
+    private final String username;
+
+    /**
+     * Constructor setting the username of the altered user.
+     *
+     * @param username the username of the user whose data was altered
+     */
+    public ProfileChangedEvent(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Gets the username of the altered user.
+     *
+     * @return the username of the user whose data was altered
+     */
+    public String getUsername() {
+        return username;
+    }
+}
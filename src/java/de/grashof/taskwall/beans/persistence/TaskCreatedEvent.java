@@ -0,0 +1,98 @@
+package de.grashof.taskwall.beans.persistence;
+
+import de.grashof.taskwall.entity.Task;
+
+import java.util.Date;
+
+/**
+ * Fired by the TaskPersistence when a new Task is stored. Observers keeping
+ * data derived from the Tasks, like the search index, use it to add the Task
+ * as soon as it is committed.
+ *
+ * @author TaskWall-Team
+ */
+public class TaskCreatedEvent {
+
+    /**
+     * The id of the new Task.
+     */
+    private final long id;
+
+    /**
+     * The id-value of the Profile-object of the assigned person.
+     */
+    private final long receiverId;
+
+    /**
+     * The title of the new Task.
+     */
+    private final String title;
+
+    /**
+     * The description of the new Task.
+     */
+    private final String description;
+
+    /**
+     * The deadline of the new Task.
+     */
+    private final Date due;
+
+    /**
+     * Constructor copying the data of the new Task.
+     *
+     * @param task the new Task
+     */
+    public TaskCreatedEvent(Task task) {
+        id = task.getId();
+        receiverId = task.getReceiverId();
+        title = task.getTitle();
+        description = task.getDescription();
+        due = task.getDue();
+    }
+
+    /**
+     * Gets the id of the new Task.
+     *
+     * @return the id of the new Task
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the receiverId.
+     *
+     * @return the receiverId
+     */
+    public long getReceiverId() {
+        return receiverId;
+    }
+
+    /**
+     * Gets the title.
+     *
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Gets the description.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Gets the deadline.
+     *
+     * @return the deadline
+     */
+    public Date getDue() {
+        return due;
+    }
+}
@@ -0,0 +1,107 @@
+package de.grashof.taskwall.beans.persistence;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The optional restrictions and the sort order for browsing the open Tasks of
+ * a user. Restrictions that are null are not applied.
+ *
+ * @author TaskWall-Team
+ */
+public class TaskFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The earliest deadline of the Tasks.
+     */
+    private Date dueFrom;
+
+    /**
+     * The latest deadline of the Tasks.
+     */
+    private Date dueUntil;
+
+    /**
+     * The id-value of the Profile-object of the author of the Tasks.
+     */
+    private Long creatorId;
+
+    /**
+     * Indicates whether the Tasks with the latest deadline come first.
+     */
+    private boolean descending = false;
+
+    /**
+     * Gets the earliest deadline.
+     *
+     * @return the earliest deadline
+     */
+    public Date getDueFrom() {
+        return dueFrom;
+    }
+
+    /**
+     * Sets the earliest deadline.
+     *
+     * @param dueFrom the new earliest deadline
+     */
+    public void setDueFrom(Date dueFrom) {
+        this.dueFrom = dueFrom;
+    }
+
+    /**
+     * Gets the latest deadline.
+     *
+     * @return the latest deadline
+     */
+    public Date getDueUntil() {
+        return dueUntil;
+    }
+
+    /**
+     * Sets the latest deadline.
+     *
+     * @param dueUntil the new latest deadline
+     */
+    public void setDueUntil(Date dueUntil) {
+        this.dueUntil = dueUntil;
+    }
+
+    /**
+     * Gets the creatorId.
+     *
+     * @return the creatorId
+     */
+    public Long getCreatorId() {
+        return creatorId;
+    }
+
+    /**
+     * Sets the creatorId.
+     *
+     * @param creatorId the new creatorId
+     */
+    public void setCreatorId(Long creatorId) {
+        this.creatorId = creatorId;
+    }
+
+    /**
+     * Gets whether the Tasks with the latest deadline come first.
+     *
+     * @return true if sorted descending; false if sorted ascending
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Sets whether the Tasks with the latest deadline come first.
+     *
+     * @param descending true to sort descending; false to sort ascending
+     */
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+}
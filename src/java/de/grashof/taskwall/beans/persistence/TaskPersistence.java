@@ -1,15 +1,34 @@
 package de.grashof.taskwall.beans.persistence;
 
 import de.grashof.taskwall.entity.ArchivedTask;
+import de.grashof.taskwall.entity.OutboxMail;
 import de.grashof.taskwall.entity.Profile;
 import de.grashof.taskwall.entity.Task;
+import de.grashof.taskwall.entity.TaskSummary;
+import de.grashof.taskwall.entity.TeamMember;
+import de.grashof.taskwall.entity.TeamWallEntry;
+import de.grashof.taskwall.mail.DigestSchedule;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.ejb.Stateless;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
 
 /**
  * Represents the interface between the appliation and the persistence storage
@@ -20,6 +39,18 @@ import javax.persistence.PersistenceContext;
 @Stateless
 public class TaskPersistence {
 
+    /**
+     * The maximum number of Tasks moved by one statement when archiving
+     * several Tasks.
+     */
+    private static final int ARCHIVE_CHUNK = 500;
+
+    /**
+     * The number of imported Tasks after which the EntityManager is flushed
+     * and cleared. It matches the JDBC batch size of the persistence unit.
+     */
+    private static final int IMPORT_FLUSH = 100;
+
     /**
      * The EntityManager is the connection to the database of the application.
      */
@@ -27,37 +58,344 @@ public class TaskPersistence {
     private EntityManager entityManager;
 
     /**
-     * Gives a List containing all Tasks assigned to the user.
+     * Announces new Tasks to observers like the search index.
+     */
+    @Inject
+    private Event<TaskCreatedEvent> taskCreated;
+
+    /**
+     * Announces finished Tasks to observers like the search index.
+     */
+    @Inject
+    private Event<TasksFinishedEvent> tasksFinished;
+
+    /**
+     * Gives the Task with the passed id including its description, if it is
+     * assigned to the user.
+     *
+     * @param id the id of the Task
+     * @param receiverId the id of the user the Task has to be assigned to
+     * @return the Task; null if there is no such Task assigned to the user
+     */
+    public Task getTask(long id, long receiverId) {
+        Task task = entityManager.find(Task.class, id);
+        if (task == null || task.getReceiverId() != receiverId) {
+            return null;
+        }
+        task.getDescription();
+        return task;
+    }
+
+    /**
+     * Gives one page of the Tasks assigned to the user, ordered by their
+     * deadline and id. The page is found by seeking from the deadline and id
+     * of the Task at its border instead of skipping the preceding Tasks, so
+     * every page is read through the index on (receiverId, due, id) and costs
+     * the same no matter how far the user browsed. Only the columns shown in
+     * the list are loaded.
+     *
+     * @param receiverId the id of the user the Tasks are assigned to
+     * @param filter the restrictions and sort order
+     * @param seekDue the deadline of the Task at the border of the page; null
+     * for the first page
+     * @param seekId the id of the Task at the border of the page; null for the
+     * first page
+     * @param backwards true if the page ends before the border Task; false if
+     * it starts after it
+     * @param size the maximum number of Tasks on the page
+     * @return the page of Tasks
+     */
+    public Page<TaskSummary> getTasks(long receiverId, TaskFilter filter, Date seekDue, Long seekId,
+            boolean backwards, int size) {
+        boolean seek = seekDue != null && seekId != null;
+        boolean descending = filter.isDescending() != backwards;
+        StringBuilder jpql = new StringBuilder("SELECT NEW de.grashof.taskwall.entity.TaskSummary(t.id, t.title, t.due) "
+                + "FROM Task t WHERE t.receiverId = :receiverId");
+        if (filter.getDueFrom() != null) {
+            jpql.append(" AND t.due >= :dueFrom");
+        }
+        if (filter.getDueUntil() != null) {
+            jpql.append(" AND t.due <= :dueUntil");
+        }
+        if (filter.getCreatorId() != null) {
+            jpql.append(" AND t.creatorId = :creatorId");
+        }
+        if (seek) {
+            String compare = descending ? "<" : ">";
+            jpql.append(" AND (t.due ").append(compare).append(" :seekDue OR (t.due = :seekDue AND t.id ")
+                    .append(compare).append(" :seekId))");
+        }
+        String order = descending ? " DESC" : " ASC";
+        jpql.append(" ORDER BY t.due").append(order).append(", t.id").append(order);
+
+        TypedQuery<TaskSummary> query = entityManager.createQuery(jpql.toString(), TaskSummary.class)
+                .setParameter("receiverId", receiverId);
+        if (filter.getDueFrom() != null) {
+            query.setParameter("dueFrom", filter.getDueFrom(), TemporalType.DATE);
+        }
+        if (filter.getDueUntil() != null) {
+            query.setParameter("dueUntil", filter.getDueUntil(), TemporalType.DATE);
+        }
+        if (filter.getCreatorId() != null) {
+            query.setParameter("creatorId", filter.getCreatorId());
+        }
+        if (seek) {
+            query.setParameter("seekDue", seekDue, TemporalType.DATE)
+                    .setParameter("seekId", seekId);
+        }
+        List<TaskSummary> tasks = query.setMaxResults(size + 1).getResultList();
+
+        boolean more = tasks.size() > size;
+        List<TaskSummary> items = new ArrayList<>(more ? tasks.subList(0, size) : tasks);
+        if (backwards) {
+            Collections.reverse(items);
+            return new Page<>(items, more, seek);
+        }
+        return new Page<>(items, seek, more);
+    }
+
+    /**
+     * Stores the same new Task for several receivers at once. The receivers
+     * are loaded with a single query, all Tasks and notifications are written
+     * in one transaction, and the inserts are sent to the database in JDBC
+     * batches. Every receiver other than the author who enabled notifications
+     * gets a notification in the outbox, scheduled according to his digest
+     * settings. The Tasks are also put on the team walls of all teams of
+     * their receivers, whose memberships are loaded with a second query. The
+     * Profiles of the receivers are locked before, so no membership can
+     * change until the Tasks are committed.
+     *
+     * @param creatorId the id of the author
+     * @param receiverIds the ids of the receivers
+     * @param title the title of the Tasks
+     * @param description the description of the Tasks
+     * @param due the deadline of the Tasks
+     * @return the stored Tasks; receivers that do not exist are skipped
+     */
+    public List<Task> storeTasks(long creatorId, Collection<Long> receiverIds, String title,
+            String description, Date due) {
+        if (receiverIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Profile> receivers = lockProfiles(receiverIds);
+        Map<Long, List<Long>> teams = getTeamIds(receiverIds);
+        Date now = new Date();
+        List<Task> tasks = new ArrayList<>(receivers.size());
+        for (Profile receiver : receivers) {
+            Task task = new Task(receiver.getId(), creatorId, title, description, due);
+            entityManager.persist(task);
+            tasks.add(task);
+            taskCreated.fire(new TaskCreatedEvent(task));
+            List<Long> teamIds = teams.get(receiver.getId());
+            if (teamIds != null) {
+                for (Long teamId : teamIds) {
+                    entityManager.persist(new TeamWallEntry(teamId, task));
+                }
+            }
+            if (receiver.getId() != creatorId && receiver.getNotificationsEnabled()) {
+                entityManager.persist(new OutboxMail(task, DigestSchedule.nextDelivery(receiver, now)));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Stores imported Tasks. The receivers of all Tasks must exist. Their
+     * Profiles are locked and their team memberships are loaded with one
+     * query each, and the Tasks and their
+     * entries on the team walls are sent to the database in JDBC batches.
+     * The EntityManager is flushed and cleared after every batch, so the
+     * persistence context does not grow with the number of Tasks. Imported
+     * Tasks cause no notifications, as they usually were assigned long ago
+     * in another tool.
      *
-     * @param user the user which tasks are requested
-     * @return a List containing all Tasks assigned to the user
+     * @param tasks the new Tasks
+     * @return the number of stored Tasks
      */
-    public List<Task> getTasks(Profile user) {
-        return entityManager.createNamedQuery("getTasks")
-                .setParameter("receiverId", user.getId())
+    public int importTasks(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        Set<Long> receiverIds = new HashSet<>();
+        for (Task task : tasks) {
+            receiverIds.add(task.getReceiverId());
+        }
+        lockProfiles(receiverIds);
+        Map<Long, List<Long>> teams = getTeamIds(receiverIds);
+        int count = 0;
+        for (Task task : tasks) {
+            entityManager.persist(task);
+            taskCreated.fire(new TaskCreatedEvent(task));
+            List<Long> teamIds = teams.get(task.getReceiverId());
+            if (teamIds != null) {
+                for (Long teamId : teamIds) {
+                    entityManager.persist(new TeamWallEntry(teamId, task));
+                }
+            }
+            if (++count % IMPORT_FLUSH == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return count;
+    }
+
+    /**
+     * Loads the Profiles of several users and locks them until the end of
+     * the transaction. Storing or archiving Tasks of a user and changing his
+     * team memberships both lock his Profile first, so they happen one after
+     * another and a team wall can neither miss a new Task nor keep a finished
+     * one. The Profiles are locked one by one in the order of their ids, so
+     * two transactions locking overlapping users cannot deadlock; Derby does
+     * not allow FOR UPDATE together with ORDER BY, so one query could lock
+     * them in any order.
+     *
+     * @param profileIds the ids of the Profiles
+     * @return a List containing the Profiles that exist, ordered by id
+     */
+    private List<Profile> lockProfiles(Collection<Long> profileIds) {
+        List<Profile> profiles = new ArrayList<>(profileIds.size());
+        for (Long profileId : new TreeSet<>(profileIds)) {
+            Profile profile = entityManager.find(Profile.class, profileId, LockModeType.PESSIMISTIC_WRITE);
+            if (profile != null) {
+                profiles.add(profile);
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * Gives the ids of the teams of several users.
+     *
+     * @param profileIds the ids of the Profiles of the users
+     * @return the ids of the teams by the id of the Profile; users without
+     * teams are left out
+     */
+    private Map<Long, List<Long>> getTeamIds(Collection<Long> profileIds) {
+        Map<Long, List<Long>> teams = new HashMap<>();
+        for (TeamMember member : entityManager.createNamedQuery("getMembershipsOfProfiles", TeamMember.class)
+                .setParameter("profileIds", profileIds)
+                .getResultList()) {
+            List<Long> teamIds = teams.get(member.getProfileId());
+            if (teamIds == null) {
+                teamIds = new ArrayList<>();
+                teams.put(member.getProfileId(), teamIds);
+            }
+            teamIds.add(member.getTeamId());
+        }
+        return teams;
+    }
+
+    /**
+     * Gives the data the search index needs of the Tasks with an id greater
+     * than the passed one, ordered by id. Every row contains the id, the
+     * receiverId, the title, the description and the deadline.
+     *
+     * @param afterId the id to continue after
+     * @param max the maximum number of rows
+     * @return a List containing the rows
+     */
+    public List<Object[]> getIndexedTasks(long afterId, int max) {
+        return entityManager.createNamedQuery("getIndexedTasks")
+                .setParameter("afterId", afterId)
+                .setMaxResults(max)
+                .getResultList();
+    }
+
+    /**
+     * Gives the data the search index needs of the Tasks with the passed ids,
+     * in the same form as getIndexedTasks(long, int).
+     *
+     * @param ids the ids of the Tasks
+     * @return a List containing the rows
+     */
+    public List<Object[]> getIndexedTasks(Collection<Long> ids) {
+        return entityManager.createNamedQuery("getIndexedTasksByIds")
+                .setParameter("ids", ids)
                 .getResultList();
     }
 
     /**
-     * Stores the new Task to the database.
+     * Gives the ids and receiverIds of the Tasks created on or after the
+     * passed day.
      *
-     * @param task the new Task
+     * @param since the first day
+     * @return a List containing the rows
      */
-    public void storeTask(Task task) {
-        entityManager.persist(task);
+    public List<Object[]> getRecentTasks(Date since) {
+        return entityManager.createNamedQuery("getRecentTasks")
+                .setParameter("since", since, TemporalType.DATE)
+                .getResultList();
     }
 
     /**
      * Removes a Task from the database and creates a new ArchivedTask and
-     * stores it in the database.
+     * stores it in the database. The Task is also removed from the team walls,
+     * with the Profile of the receiver locked like when it was stored.
      *
      * @param task the task that should be archived
      */
     public void archiveTask(Task task) {
+        lockProfiles(Collections.singletonList(task.getReceiverId()));
         ArchivedTask oldTask = new ArchivedTask(task, new Date());
         entityManager.persist(oldTask);
         entityManager.createNamedQuery("deleteTask")
                 .setParameter("id", task.getId())
                 .executeUpdate();
+        entityManager.createNamedQuery("deleteTeamWallEntries")
+                .setParameter("receiverId", task.getReceiverId())
+                .setParameter("ids", Collections.singletonList(task.getId()))
+                .executeUpdate();
+        tasksFinished.fire(new TasksFinishedEvent(task.getReceiverId(), Collections.singleton(task.getId()),
+                oldTask.getFinished()));
+    }
+
+    /**
+     * Archives several Tasks of a user at once. The Tasks are copied into the
+     * archive and removed with one INSERT ... SELECT and one DELETE per chunk
+     * of ids, all within one transaction, instead of loading and moving every
+     * Task on its own. Their entries on the team walls are removed the same
+     * way, with the Profile of the receiver locked. Ids of Tasks that do not
+     * exist or are assigned to someone else are ignored.
+     *
+     * @param ids the ids of the Tasks that should be archived
+     * @param receiverId the id of the user the Tasks are assigned to
+     * @return the number of archived Tasks
+     */
+    public int archiveTasks(Collection<Long> ids, long receiverId) {
+        lockProfiles(Collections.singletonList(receiverId));
+        List<Long> remaining = new ArrayList<>(ids);
+        Date finished = new Date();
+        int archived = 0;
+        for (int start = 0; start < remaining.size(); start += ARCHIVE_CHUNK) {
+            List<Long> chunk = remaining.subList(start, Math.min(start + ARCHIVE_CHUNK, remaining.size()));
+            StringBuilder sql = new StringBuilder("INSERT INTO ARCHIVEDTASK "
+                    + "(ID, CREATED, CREATORID, DESCRIPTION, DUE, FINISHED, RECEIVERID, TITLE) "
+                    + "SELECT ID, CREATED, CREATORID, DESCRIPTION, DUE, ?, RECEIVERID, TITLE "
+                    + "FROM TASK WHERE RECEIVERID = ? AND ID IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+            Query insert = entityManager.createNativeQuery(sql.toString())
+                    .setParameter(1, finished, TemporalType.DATE)
+                    .setParameter(2, receiverId);
+            for (int i = 0; i < chunk.size(); i++) {
+                insert.setParameter(i + 3, chunk.get(i));
+            }
+            archived += insert.executeUpdate();
+            entityManager.createNamedQuery("deleteTasks")
+                    .setParameter("receiverId", receiverId)
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+            entityManager.createNamedQuery("deleteTeamWallEntries")
+                    .setParameter("receiverId", receiverId)
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+        }
+        tasksFinished.fire(new TasksFinishedEvent(receiverId, remaining, finished));
+        return archived;
     }
 }
@@ -0,0 +1,72 @@
+package de.grashof.taskwall.beans.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Fired by the TaskPersistence when Tasks of a user are finished and moved
+ * into the archive. The ids may contain Tasks that did not exist; observers
+ * ignore those.
+ *
+ * @author TaskWall-Team
+ */
+public class TasksFinishedEvent {
+
+    /**
+     * The id-value of the Profile-object of the assigned person.
+     */
+    private final long receiverId;
+
+    /**
+     * The ids of the finished Tasks.
+     */
+    private final List<Long> ids;
+
+    /**
+     * The date the Tasks were finished.
+     */
+    private final Date finished;
+
+    /**
+     * Constructor setting the finished Tasks.
+     *
+     * @param receiverId the id of the user the Tasks were assigned to
+     * @param ids the ids of the finished Tasks
+     * @param finished the date the Tasks were finished
+     */
+    public TasksFinishedEvent(long receiverId, Collection<Long> ids, Date finished) {
+        this.receiverId = receiverId;
+        this.ids = Collections.unmodifiableList(new ArrayList<>(ids));
+        this.finished = finished;
+    }
+
+    /**
+     * Gets the receiverId.
+     *
+     * @return the receiverId
+     */
+    public long getReceiverId() {
+        return receiverId;
+    }
+
+    /**
+     * Gets the ids of the finished Tasks.
+     *
+     * @return the ids of the finished Tasks
+     */
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    /**
+     * Gets the date the Tasks were finished.
+     *
+     * @return the date the Tasks were finished
+     */
+    public Date getFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,232 @@
+package de.grashof.taskwall.beans.persistence;
+
+import de.grashof.taskwall.entity.Profile;
+import de.grashof.taskwall.entity.Team;
+import de.grashof.taskwall.entity.TeamMember;
+import de.grashof.taskwall.entity.TeamWallEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
+
+/**
+ * Represents the interface between the application and the persistence storage
+ * of teams, their members and their walls.
+ *
+ * @author TaskWall-Team
+ */
+@Stateless
+public class TeamPersistence {
+
+    /**
+     * The EntityManager is the connection to the database of the application.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Gives all teams ordered by their names.
+     *
+     * @return a List containing all teams
+     */
+    public List<Team> getTeams() {
+        return entityManager.createNamedQuery("getTeams", Team.class)
+                .getResultList();
+    }
+
+    /**
+     * Gives the team with the passed id.
+     *
+     * @param id the id of the team
+     * @return the team; null if there is no such team
+     */
+    public Team getTeam(long id) {
+        return entityManager.find(Team.class, id);
+    }
+
+    /**
+     * Gives the team with the passed name.
+     *
+     * @param name the name of the team
+     * @return the team; null if there is no such team
+     */
+    public Team findTeam(String name) {
+        List<Team> teams = entityManager.createNamedQuery("getTeamByName", Team.class)
+                .setParameter("name", name)
+                .getResultList();
+        return teams.isEmpty() ? null : teams.get(0);
+    }
+
+    /**
+     * Creates a new team without members.
+     *
+     * @param name the name of the team
+     * @return the new team
+     */
+    public Team createTeam(String name) {
+        Team team = new Team(name);
+        entityManager.persist(team);
+        return team;
+    }
+
+    /**
+     * Gives the teams a user is a member of, ordered by their names.
+     *
+     * @param profileId the id of the Profile of the user
+     * @return a List containing the teams of the user
+     */
+    public List<Team> getTeamsOf(long profileId) {
+        return entityManager.createNamedQuery("getTeamsOfMember", Team.class)
+                .setParameter("profileId", profileId)
+                .getResultList();
+    }
+
+    /**
+     * Gives the ids of the Profiles of the members of a team.
+     *
+     * @param teamId the id of the team
+     * @return a List containing the ids of the members
+     */
+    public List<Long> getMemberIds(long teamId) {
+        return entityManager.createNamedQuery("getTeamMemberIds", Long.class)
+                .setParameter("teamId", teamId)
+                .getResultList();
+    }
+
+    /**
+     * Checks whether a user is a member of a team.
+     *
+     * @param teamId the id of the team
+     * @param profileId the id of the Profile of the user
+     * @return true if the user is a member; false if not
+     */
+    public boolean isMember(long teamId, long profileId) {
+        return entityManager.createNamedQuery("countTeamMember", Long.class)
+                .setParameter("teamId", teamId)
+                .setParameter("profileId", profileId)
+                .getSingleResult() > 0;
+    }
+
+    /**
+     * Adds a user to a team. The open Tasks of the user are put on the wall
+     * of the team with one INSERT ... SELECT in the same transaction, so the
+     * wall is complete as soon as the membership is visible. The Profile of
+     * the user is locked first, like when his Tasks are stored or archived,
+     * so no Task of his can be committed between reading his Tasks and
+     * committing the membership.
+     *
+     * @param teamId the id of the team
+     * @param profileId the id of the Profile of the user
+     * @return true if the user was added; false if he already was a member
+     */
+    public boolean addMember(long teamId, long profileId) {
+        entityManager.find(Profile.class, profileId, LockModeType.PESSIMISTIC_WRITE);
+        if (isMember(teamId, profileId)) {
+            return false;
+        }
+        entityManager.persist(new TeamMember(teamId, profileId));
+        entityManager.createNativeQuery("INSERT INTO TEAMWALLENTRY (TEAMID, TASKID, RECEIVERID, TITLE, DUE) "
+                + "SELECT ?, ID, RECEIVERID, TITLE, DUE FROM TASK WHERE RECEIVERID = ?")
+                .setParameter(1, teamId)
+                .setParameter(2, profileId)
+                .executeUpdate();
+        return true;
+    }
+
+    /**
+     * Removes a user from a team together with his Tasks on the wall of the
+     * team. The Profile of the user is locked like when he is added.
+     *
+     * @param teamId the id of the team
+     * @param profileId the id of the Profile of the user
+     */
+    public void removeMember(long teamId, long profileId) {
+        entityManager.find(Profile.class, profileId, LockModeType.PESSIMISTIC_WRITE);
+        entityManager.createNamedQuery("deleteTeamMember")
+                .setParameter("teamId", teamId)
+                .setParameter("profileId", profileId)
+                .executeUpdate();
+        entityManager.createNamedQuery("deleteTeamWallEntriesOfMember")
+                .setParameter("teamId", teamId)
+                .setParameter("receiverId", profileId)
+                .executeUpdate();
+    }
+
+    /**
+     * Builds the wall of a team anew from the Tasks of its members. The wall
+     * is normally kept up to date by every change of Tasks and memberships;
+     * this repairs it should it ever disagree with the Tasks. The Profiles of
+     * the members are locked one by one in the order of their ids while the
+     * wall is built, like everywhere else, so this cannot deadlock with
+     * storing Tasks.
+     *
+     * @param teamId the id of the team
+     * @return the number of Tasks on the wall
+     */
+    public int rebuildWall(long teamId) {
+        for (Long profileId : new TreeSet<>(getMemberIds(teamId))) {
+            entityManager.find(Profile.class, profileId, LockModeType.PESSIMISTIC_WRITE);
+        }
+        entityManager.createNativeQuery("DELETE FROM TEAMWALLENTRY WHERE TEAMID = ?")
+                .setParameter(1, teamId)
+                .executeUpdate();
+        return entityManager.createNativeQuery("INSERT INTO TEAMWALLENTRY (TEAMID, TASKID, RECEIVERID, TITLE, DUE) "
+                + "SELECT m.TEAMID, t.ID, t.RECEIVERID, t.TITLE, t.DUE "
+                + "FROM TEAMMEMBER m JOIN TASK t ON t.RECEIVERID = m.PROFILEID WHERE m.TEAMID = ?")
+                .setParameter(1, teamId)
+                .executeUpdate();
+    }
+
+    /**
+     * Gives one page of the wall of a team, ordered by deadline and id of the
+     * Tasks. Like the Tasks of a user, the page is found by seeking from the
+     * entry at its border, so it is read from the index on (teamId, due,
+     * taskId) alone, however many members the team has.
+     *
+     * @param teamId the id of the team
+     * @param seekDue the deadline of the Task at the border of the page; null
+     * for the first page
+     * @param seekId the id of the Task at the border of the page; null for the
+     * first page
+     * @param backwards true if the page ends before the border Task; false if
+     * it starts after it
+     * @param size the maximum number of Tasks on the page
+     * @return the page of the wall
+     */
+    public Page<TeamWallEntry> getWall(long teamId, Date seekDue, Long seekId, boolean backwards, int size) {
+        boolean seek = seekDue != null && seekId != null;
+        StringBuilder jpql = new StringBuilder("SELECT entry FROM TeamWallEntry entry WHERE entry.teamId = :teamId");
+        if (seek) {
+            String compare = backwards ? "<" : ">";
+            jpql.append(" AND (entry.due ").append(compare).append(" :seekDue OR (entry.due = :seekDue AND entry.taskId ")
+                    .append(compare).append(" :seekId))");
+        }
+        String order = backwards ? " DESC" : " ASC";
+        jpql.append(" ORDER BY entry.due").append(order).append(", entry.taskId").append(order);
+
+        TypedQuery<TeamWallEntry> query = entityManager.createQuery(jpql.toString(), TeamWallEntry.class)
+                .setParameter("teamId", teamId);
+        if (seek) {
+            query.setParameter("seekDue", seekDue, TemporalType.DATE)
+                    .setParameter("seekId", seekId);
+        }
+        List<TeamWallEntry> entries = query.setMaxResults(size + 1).getResultList();
+
+        boolean more = entries.size() > size;
+        List<TeamWallEntry> items = new ArrayList<>(more ? entries.subList(0, size) : entries);
+        if (backwards) {
+            Collections.reverse(items);
+            return new Page<>(items, more, seek);
+        }
+        return new Page<>(items, seek, more);
+    }
+}
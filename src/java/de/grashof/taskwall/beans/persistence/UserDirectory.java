@@ -0,0 +1,432 @@
+package de.grashof.taskwall.beans.persistence;
+
+import de.grashof.taskwall.entity.UserSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * The list of all users shown to the administrators, kept in memory and sorted
+ * by username and by e-mail address. A page of the list, optionally restricted
+ * to the users whose username or e-mail address starts with a prefix, is read
+ * from the sorted maps without a query and in the same time no matter how
+ * many users there are. The list is loaded at startup; every committed change
+ * of a user on this node is applied by reloading only this user. Changes made
+ * on other nodes are picked up by reloading the whole list every few minutes,
+ * and a user that is looked up by id or name but not yet known is loaded from
+ * the database right away, so a new user can be assigned Tasks on every node
+ * at once. A lookup that found nothing is remembered for a minute, so
+ * repeated lookups of unknown users, like those of invalid import rows, do not
+ * query the database each time.
+ * <p>
+ * Reading needs no locks. Changes are applied one after another, so the two
+ * sort orders never disagree about a user for longer than a single update.
+ * Every change is numbered; reloading the whole list neither replaces nor
+ * removes a user that was changed after the reload started, because its rows
+ * may be older than that change.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@Startup
+@DependsOn("SetupBean")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UserDirectory {
+
+    /**
+     * The orders the list can be browsed in.
+     */
+    public enum Field {
+
+        /**
+         * Sorted and searched by username.
+         */
+        USERNAME,
+        /**
+         * Sorted and searched by e-mail address. Users without an address are
+         * not listed.
+         */
+        EMAIL
+    }
+
+    /**
+     * Separates the sorted value from the id in a key, sorting before every
+     * other character.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * The time in milliseconds a lookup that found nothing is remembered.
+     */
+    private static final long MISS_AGE = 60 * 1000L;
+
+    /**
+     * The maximum number of remembered lookups that found nothing.
+     */
+    private static final int MAX_MISSES = 10000;
+
+    /**
+     * The users by the id of their Profile.
+     */
+    private final ConcurrentMap<Long, UserSummary> users = new ConcurrentHashMap<>();
+
+    /**
+     * The users sorted by username.
+     */
+    private final ConcurrentSkipListMap<String, UserSummary> byUsername = new ConcurrentSkipListMap<>();
+
+    /**
+     * The users having an e-mail address sorted by it.
+     */
+    private final ConcurrentSkipListMap<String, UserSummary> byEmail = new ConcurrentSkipListMap<>();
+
+    /**
+     * The number of the last change, by the id of the changed user.
+     */
+    private final ConcurrentMap<Long, Long> changed = new ConcurrentHashMap<>();
+
+    /**
+     * The number of changes applied so far.
+     */
+    private long changes = 0;
+
+    /**
+     * The points in time lookups that found nothing expire, by the query and
+     * the looked up value.
+     */
+    private final ConcurrentMap<String, Long> misses = new ConcurrentHashMap<>();
+
+    /**
+     * The EntityManager is the connection to the database of the application.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Loads all users from the database at startup.
+     */
+    @PostConstruct
+    public void init() {
+        load();
+    }
+
+    /**
+     * Loads all users from the database and removes the users that no longer
+     * exist. Users changed since the load started are left as they are.
+     */
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public void load() {
+        long start;
+        synchronized (this) {
+            start = changes;
+        }
+        misses.clear();
+        Set<Long> ids = new HashSet<>();
+        for (UserSummary user : entityManager.createNamedQuery("getUserSummaries", UserSummary.class)
+                .getResultList()) {
+            put(user, start);
+            ids.add(user.getId());
+        }
+        for (UserSummary user : users.values()) {
+            if (!ids.contains(user.getId())) {
+                remove(user, start);
+            }
+        }
+    }
+
+    /**
+     * Reloads a user after a change of his data, or his creation, was
+     * committed.
+     *
+     * @param event the event describing the changed user
+     */
+    public void update(@Observes(during = TransactionPhase.AFTER_SUCCESS) ProfileChangedEvent event) {
+        List<UserSummary> found = entityManager.createNamedQuery("getUserSummaryByUsername", UserSummary.class)
+                .setParameter("username", event.getUsername())
+                .getResultList();
+        if (!found.isEmpty()) {
+            misses.clear();
+            put(found.get(0), Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Gets one page of the users. The page starts after or ends before the
+     * user with the passed id; if neither is passed, or the user is not known,
+     * the first page is returned.
+     *
+     * @param field the order of the list
+     * @param prefix only users whose username or e-mail address, depending on
+     * the order, starts with it are listed; the case is ignored
+     * @param after the id of the user the page starts after; may be null
+     * @param before the id of the user the page ends before; may be null
+     * @param size the maximum number of users on the page
+     * @return the page
+     */
+    public Page<UserSummary> getPage(Field field, String prefix, Long after, Long before, int size) {
+        NavigableMap<String, UserSummary> list = field == Field.EMAIL ? byEmail : byUsername;
+        String from = "";
+        if (prefix != null && !prefix.isEmpty()) {
+            from = normalize(prefix);
+            list = list.subMap(from, true, from + Character.MAX_VALUE, false);
+        }
+        UserSummary cursor = before != null ? users.get(before) : after != null ? users.get(after) : null;
+        String key = cursor == null ? null : key(field, cursor);
+        if (key == null || !key.startsWith(from)) {
+            List<UserSummary> items = take(list, size + 1);
+            return new Page<>(items, false, trim(items, size));
+        }
+        if (before != null) {
+            List<UserSummary> items = take(list.headMap(key, false).descendingMap(), size + 1);
+            boolean previous = trim(items, size);
+            Collections.reverse(items);
+            return new Page<>(items, previous, list.ceilingKey(key) != null);
+        }
+        List<UserSummary> items = take(list.tailMap(key, false), size + 1);
+        return new Page<>(items, list.floorKey(key) != null, trim(items, size));
+    }
+
+    /**
+     * Gets the users whose username or e-mail address starts with a prefix,
+     * for suggesting them while a name is typed. E-mail addresses are only
+     * searched once the prefix contains an "@", so nobody can list the
+     * addresses of all users by typing single letters. Users matching by
+     * username come first, both parts are sorted. A user matching by both is
+     * only listed once.
+     *
+     * @param prefix the beginning of the username or e-mail address; the
+     * case is ignored
+     * @param max the maximum number of users
+     * @return a new List with the found users
+     */
+    public List<UserSummary> suggest(String prefix, int max) {
+        if (prefix == null || prefix.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String from = normalize(prefix);
+        String to = from + Character.MAX_VALUE;
+        List<UserSummary> found = take(byUsername.subMap(from, true, to, false), max);
+        if (from.indexOf('@') < 0) {
+            return found;
+        }
+        Iterator<UserSummary> emails = byEmail.subMap(from, true, to, false).values().iterator();
+        while (found.size() < max && emails.hasNext()) {
+            UserSummary user = emails.next();
+            if (!normalize(user.getUsername()).startsWith(from)) {
+                found.add(user);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets a user by the id of his Profile. A user that is not known yet is
+     * looked up in the database.
+     *
+     * @param id the id
+     * @return the user; null if there is no such user
+     */
+    public UserSummary getUser(long id) {
+        UserSummary user = users.get(id);
+        return user != null ? user : fetch("getUserSummaryById", "id", id);
+    }
+
+    /**
+     * Finds the user with exactly the passed username or, if there is none,
+     * e-mail address. A name that is not known yet is looked up in the
+     * database.
+     *
+     * @param name the username or e-mail address
+     * @return the user; null if there is no such user
+     */
+    public UserSummary findUser(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        String from = normalize(name) + SEPARATOR;
+        String to = from + Character.MAX_VALUE;
+        for (UserSummary user : byUsername.subMap(from, true, to, false).values()) {
+            if (name.equals(user.getUsername())) {
+                return user;
+            }
+        }
+        for (UserSummary user : byEmail.subMap(from, true, to, false).values()) {
+            if (name.equals(user.getEmail())) {
+                return user;
+            }
+        }
+        UserSummary user = fetch("getUserSummaryByUsername", "username", name);
+        return user != null ? user : fetch("getUserSummaryByEmail", "email", name);
+    }
+
+    /**
+     * Gets the number of users.
+     *
+     * @return the number of users
+     */
+    public int getSize() {
+        return users.size();
+    }
+
+    /**
+     * Looks up a single user in the database and adds him to the list. A
+     * lookup that found nothing is not repeated for a minute.
+     *
+     * @param query the name of the query
+     * @param parameter the name of its parameter
+     * @param value the value of the parameter
+     * @return the user; null if there is no such user
+     */
+    private UserSummary fetch(String query, String parameter, Object value) {
+        String miss = query + SEPARATOR + value;
+        Long expires = misses.get(miss);
+        long now = System.currentTimeMillis();
+        if (expires != null && expires > now) {
+            return null;
+        }
+        List<UserSummary> found = entityManager.createNamedQuery(query, UserSummary.class)
+                .setParameter(parameter, value)
+                .setMaxResults(1)
+                .getResultList();
+        if (found.isEmpty()) {
+            if (misses.size() >= MAX_MISSES) {
+                misses.clear();
+            }
+            misses.put(miss, now + MISS_AGE);
+            return null;
+        }
+        put(found.get(0), Long.MAX_VALUE);
+        return found.get(0);
+    }
+
+    /**
+     * Removes a user that no longer exists, unless he was changed after the
+     * passed change.
+     *
+     * @param user the user
+     * @param start the number of the last change the caller knows of
+     */
+    private synchronized void remove(UserSummary user, long start) {
+        Long last = changed.get(user.getId());
+        if (last != null && last > start) {
+            return;
+        }
+        if (users.remove(user.getId(), user)) {
+            changed.remove(user.getId());
+            byUsername.remove(key(Field.USERNAME, user));
+            String email = key(Field.EMAIL, user);
+            if (email != null) {
+                byEmail.remove(email);
+            }
+        }
+    }
+
+    /**
+     * Adds a user or replaces the entries of a changed user, unless he was
+     * changed after the passed change.
+     *
+     * @param user the user
+     * @param start the number of the last change the caller knows of;
+     * Long.MAX_VALUE if the user was just read on his own
+     */
+    private synchronized void put(UserSummary user, long start) {
+        Long last = changed.get(user.getId());
+        if (last != null && last > start) {
+            return;
+        }
+        changed.put(user.getId(), ++changes);
+        UserSummary old = users.put(user.getId(), user);
+        if (old != null) {
+            byUsername.remove(key(Field.USERNAME, old));
+            String email = key(Field.EMAIL, old);
+            if (email != null) {
+                byEmail.remove(email);
+            }
+        }
+        byUsername.put(key(Field.USERNAME, user), user);
+        String email = key(Field.EMAIL, user);
+        if (email != null) {
+            byEmail.put(email, user);
+        }
+    }
+
+    /**
+     * Builds the key of a user in one of the sorted maps. Users with values
+     * differing only in case are kept apart by their ids.
+     *
+     * @param field the order
+     * @param user the user
+     * @return the key; null if the user has no e-mail address and the order
+     * is by e-mail address
+     */
+    private static String key(Field field, UserSummary user) {
+        String value = field == Field.EMAIL ? user.getEmail() : user.getUsername();
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return normalize(value) + SEPARATOR + user.getId();
+    }
+
+    /**
+     * Brings a value into the form it is sorted and searched in.
+     *
+     * @param value the username, e-mail address or prefix
+     * @return the value in lower case
+     */
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Takes the first users of a sorted map.
+     *
+     * @param list the sorted map
+     * @param size the maximum number of users
+     * @return a new List with the users in the order of the map
+     */
+    private static List<UserSummary> take(NavigableMap<String, UserSummary> list, int size) {
+        List<UserSummary> items = new ArrayList<>(size);
+        Iterator<UserSummary> iterator = list.values().iterator();
+        while (items.size() < size && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        return items;
+    }
+
+    /**
+     * Removes the users beyond the size of a page. One user more than fits
+     * on the page is taken, so it is known whether there are further users.
+     *
+     * @param items the taken users
+     * @param size the maximum number of users on the page
+     * @return true if users were removed; false if all of them fit
+     */
+    private static boolean trim(List<UserSummary> items, int size) {
+        if (items.size() <= size) {
+            return false;
+        }
+        items.subList(size, items.size()).clear();
+        return true;
+    }
+}
@@ -1,10 +1,17 @@
 package de.grashof.taskwall.beans.persistence;
 
+import de.grashof.taskwall.entity.OutboxMail;
 import de.grashof.taskwall.entity.Profile;
+import de.grashof.taskwall.mail.DigestSchedule;
+import de.grashof.taskwall.security.PasswordHasher;
 
+import java.util.Date;
 import java.util.List;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
@@ -24,14 +31,22 @@ public class UserPersistence {
     private EntityManager entityManager;
 
     /**
-     * Gives a List with all users.
-     *
-     * @return a List containing all users
+     * Used to announce changes of a user to holders of cached Profiles.
      */
-    public List<Profile> getUsers() {
-        return entityManager.createNamedQuery("getAllUsers")
-                .getResultList();
-    }
+    @Inject
+    private Event<ProfileChangedEvent> profileChanged;
+
+    /**
+     * Used to answer lookups of unknown usernames without a query.
+     */
+    @EJB
+    private UsernameFilter usernameFilter;
+
+    /**
+     * Used to hash new passwords.
+     */
+    @EJB
+    private PasswordHasher passwordHasher;
 
     /**
      * Gives the user with the passed username.
@@ -45,6 +60,23 @@ public class UserPersistence {
                 .getSingleResult();
     }
 
+    /**
+     * Gives the user with the passed username, or null if there is none. The
+     * database is only queried if the username may exist.
+     *
+     * @param username the username of the user that is requested
+     * @return the Profile of the user; null if the user does not exist
+     */
+    public Profile findUser(String username) {
+        if (!usernameFilter.mightExist(username)) {
+            return null;
+        }
+        List<Profile> users = entityManager.createNamedQuery("getUserByUsername", Profile.class)
+                .setParameter("username", username)
+                .getResultList();
+        return users.isEmpty() ? null : users.get(0);
+    }
+
     /**
      * Gives the user with the passed email.
      *
@@ -76,7 +108,7 @@ public class UserPersistence {
      * @return true if the user exists; false if the user does not exist
      */
     public boolean userExists(String username) {
-        return !entityManager.createNamedQuery("getUserByUsername")
+        return usernameFilter.mightExist(username) && !entityManager.createNamedQuery("getUserByUsername")
                 .setParameter("username", username)
                 .getResultList().isEmpty();
     }
@@ -100,21 +132,52 @@ public class UserPersistence {
      */
     public void createUser(Profile user) {
         entityManager.persist(user);
+        usernameFilter.add(user.getUsername());
+        profileChanged.fire(new ProfileChangedEvent(user.getUsername()));
     }
 
     /**
-     * Updates the password of the user.
+     * Updates the password of the user. Only the hash of the password is
+     * stored.
      *
      * @param username the username of the user thats password should be updated
      * @param newPassword the new password of the user
+     * @return true if the password was updated; false if it could not be
+     * hashed because the server is busy
      */
-    public void updatePassword(String username, String newPassword) {
+    public boolean updatePassword(String username, String newPassword) {
+        String hash = passwordHasher.hash(newPassword);
+        if (hash == null) {
+            return false;
+        }
         entityManager.createNamedQuery("updatePw")
-                .setParameter("username", username).setParameter("password", newPassword)
+                .setParameter("username", username).setParameter("password", hash)
                 .executeUpdate();
         entityManager.createNamedQuery("updateChangePw")
                 .setParameter("username", username).setParameter("changePassword", false)
                 .executeUpdate();
+        profileChanged.fire(new ProfileChangedEvent(username));
+        return true;
+    }
+
+    /**
+     * Replaces the stored password of the user by a new hash of the same
+     * password. Used after a login with a password that is stored in plain
+     * text or hashed with too few iterations. If the server is too busy to
+     * hash it, the password is upgraded on a later login.
+     *
+     * @param username the username of the user
+     * @param password the password of the user
+     */
+    public void upgradePassword(String username, String password) {
+        String hash = passwordHasher.hash(password);
+        if (hash == null) {
+            return;
+        }
+        entityManager.createNamedQuery("updatePw")
+                .setParameter("username", username).setParameter("password", hash)
+                .executeUpdate();
+        profileChanged.fire(new ProfileChangedEvent(username));
     }
 
     /**
@@ -127,6 +190,7 @@ public class UserPersistence {
         entityManager.createNamedQuery("updateEmail")
                 .setParameter("username", username).setParameter("email", newEmail)
                 .executeUpdate();
+        profileChanged.fire(new ProfileChangedEvent(username));
     }
 
     /**
@@ -140,6 +204,36 @@ public class UserPersistence {
         entityManager.createNamedQuery("updateEmailEnabled")
                 .setParameter("username", username).setParameter("emailEnabled", enabled)
                 .executeUpdate();
+        profileChanged.fire(new ProfileChangedEvent(username));
+    }
+
+    /**
+     * Updates how the user receives his notifications. The notifications that
+     * are still waiting for their first delivery attempt are rescheduled
+     * according to the new settings in the same transaction.
+     *
+     * @param username the username
+     * @param mode the digest mode
+     * @param interval the length of a digest window in minutes
+     * @param hour the hour of the day the daily digest is sent
+     * @param quietFrom the hour the quiet hours begin; null if there are none
+     * @param quietUntil the hour the quiet hours end; null if there are none
+     */
+    public void updateDigest(String username, Profile.DigestMode mode, int interval, int hour,
+            Integer quietFrom, Integer quietUntil) {
+        entityManager.createNamedQuery("updateDigest")
+                .setParameter("username", username).setParameter("digestMode", mode)
+                .setParameter("digestInterval", interval).setParameter("digestHour", hour)
+                .setParameter("quietFrom", quietFrom).setParameter("quietUntil", quietUntil)
+                .executeUpdate();
+        Profile user = getUser(username);
+        entityManager.refresh(user);
+        entityManager.createNamedQuery("rescheduleOutboxMails")
+                .setParameter("nextAttempt", DigestSchedule.nextDelivery(user, new Date()))
+                .setParameter("receiverId", user.getId())
+                .setParameter("status", OutboxMail.Status.PENDING)
+                .executeUpdate();
+        profileChanged.fire(new ProfileChangedEvent(username));
     }
 
     /**
@@ -152,5 +246,6 @@ public class UserPersistence {
         entityManager.createNamedQuery("resetPassword")
                 .setParameter("username", username)
                 .executeUpdate();
+        profileChanged.fire(new ProfileChangedEvent(username));
     }
 }
@@ -0,0 +1,248 @@
+package de.grashof.taskwall.beans.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * A Bloom filter of all usernames. It answers "definitely unknown" for almost
+ * every username that does not exist, so lookups of unknown usernames - like
+ * mistyped or guessed logins - do not have to query the database. A username
+ * that is reported as possibly known still has to be looked up. The filter is
+ * filled from the database at startup and every new user is added by the
+ * UserPersistence of this node.
+ * <p>
+ * Users created on other nodes are only known after the filter was rebuilt
+ * from the database, which happens every minute. A rebuild never loses a
+ * username: the bits of the previous filter are merged into the new one, so
+ * users added on this node whose transaction was not committed while the
+ * database was read stay known. The filter grows by doubling its size, which
+ * keeps the old bits mergeable.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@Startup
+@DependsOn("SetupBean")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UsernameFilter {
+
+    /**
+     * The number of bits per expected username. Together with the number of
+     * hash functions it gives a false positive rate of about one percent.
+     */
+    private static final int BITS_PER_NAME = 10;
+
+    /**
+     * The number of bits set for every username.
+     */
+    private static final int HASHES = 7;
+
+    /**
+     * The smallest number of usernames the filter is sized for.
+     */
+    private static final int MIN_CAPACITY = 1024;
+
+    /**
+     * The current bits. Replaced as a whole when the filter is rebuilt.
+     */
+    private volatile Bits bits = new Bits(MIN_CAPACITY);
+
+    /**
+     * The number of lookups that were answered without querying the database.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * The EntityManager is the connection to the database of the application.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Fills the filter with the usernames in the database at startup.
+     */
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the filter from the usernames in the database and merges the
+     * bits of the previous filter into it. The size is doubled as long as the
+     * filter would be more than half full.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void rebuild() {
+        List<String> usernames = entityManager.createNamedQuery("getAllUsernames", String.class)
+                .getResultList();
+        int capacity = bits.capacity;
+        while (capacity < usernames.size() * 2L) {
+            capacity *= 2;
+        }
+        Bits rebuilt = new Bits(capacity);
+        for (String username : usernames) {
+            rebuilt.add(username);
+        }
+        synchronized (this) {
+            rebuilt.merge(bits);
+            bits = rebuilt;
+        }
+    }
+
+    /**
+     * Adds a username. The new user does not have to be committed yet.
+     *
+     * @param username the username
+     */
+    public synchronized void add(String username) {
+        bits.add(username);
+    }
+
+    /**
+     * Checks whether a username may exist. A negative answer is always
+     * correct, a positive one has to be confirmed by the database.
+     *
+     * @param username the username
+     * @return true if the username may exist; false if it definitely does not
+     */
+    public boolean mightExist(String username) {
+        if (username == null || !bits.mightContain(username)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of lookups of unknown usernames that did not need to
+     * query the database.
+     *
+     * @return the number of rejected lookups
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * The bit array of the filter, sized for a fixed number of usernames.
+     */
+    private static class Bits {
+
+        /**
+         * The bits, 64 per entry.
+         */
+        private final AtomicLongArray words;
+
+        /**
+         * The number of bits.
+         */
+        private final int size;
+
+        /**
+         * The number of usernames the bits are sized for.
+         */
+        private final int capacity;
+
+        /**
+         * Constructor creating empty bits for the passed number of usernames.
+         *
+         * @param capacity the number of usernames
+         */
+        Bits(int capacity) {
+            this.capacity = capacity;
+            size = capacity * BITS_PER_NAME;
+            words = new AtomicLongArray((size + 63) / 64);
+        }
+
+        /**
+         * Sets the bits of a username.
+         *
+         * @param username the username
+         */
+        void add(String username) {
+            int first = username.hashCode();
+            int second = secondHash(username);
+            for (int i = 0; i < HASHES; i++) {
+                set(((first + i * second) & Integer.MAX_VALUE) % size);
+            }
+        }
+
+        /**
+         * Checks whether all bits of a username are set.
+         *
+         * @param username the username
+         * @return true if all bits are set
+         */
+        boolean mightContain(String username) {
+            int first = username.hashCode();
+            int second = secondHash(username);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = ((first + i * second) & Integer.MAX_VALUE) % size;
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Sets every bit that is set in other bits of the same or a smaller
+         * size. The sizes have to be a power of two apart. A username whose
+         * bit is b in the smaller bits has the bit b plus a multiple of the
+         * smaller size here, so all those bits are set.
+         *
+         * @param other the other bits
+         */
+        void merge(Bits other) {
+            for (int bit = 0; bit < other.size; bit++) {
+                if ((other.words.get(bit >>> 6) & (1L << bit)) != 0) {
+                    for (int target = bit; target < size; target += other.size) {
+                        set(target);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sets a single bit.
+         *
+         * @param bit the index of the bit
+         */
+        private void set(int bit) {
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(bit >>> 6);
+            } while ((word & mask) == 0 && !words.compareAndSet(bit >>> 6, word, word | mask));
+        }
+
+        /**
+         * A second hash of the username independent of String.hashCode(),
+         * the 32 bit FNV-1a hash of its UTF-8 bytes. It is made odd so the
+         * combined hashes never repeat early.
+         *
+         * @param username the username
+         * @return the hash
+         */
+        private static int secondHash(String username) {
+            int hash = 0x811C9DC5;
+            for (byte b : username.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xFF;
+                hash *= 0x01000193;
+            }
+            return hash | 1;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package de.grashof.taskwall.beans.settings;
 
+import de.grashof.taskwall.beans.CurrentUser;
 import de.grashof.taskwall.beans.LoginBean;
 import de.grashof.taskwall.beans.persistence.UserPersistence;
+import de.grashof.taskwall.security.PasswordHasher;
 
 import javax.ejb.EJB;
 import javax.enterprise.context.RequestScoped;
@@ -44,14 +46,31 @@ public class ChangePasswordBean {
     @EJB
     private UserPersistence userPersistence;
 
+    /**
+     * Used to retrieve the stored password of the user.
+     */
+    @Inject
+    private CurrentUser currentUser;
+
+    /**
+     * Used to compare the new password with the old one.
+     */
+    @EJB
+    private PasswordHasher passwordHasher;
+
     /**
      * Alters the password of the user to its new value and navigates forward to
-     * the Dashbaord.
+     * the Dashbaord. If the server is too busy, the page is displayed again
+     * with an error message.
      *
-     * @return the String navigating to the Dashboard
+     * @return the String navigating to the Dashboard; null to stay on the page
      */
     public String change() {
-        userPersistence.updatePassword(loginBean.getUsername(), newPassword);
+        if (!userPersistence.updatePassword(loginBean.getUsername(), newPassword)) {
+            FacesContext.getCurrentInstance().addMessage("changePasswordForm:newPassword2",
+                    new FacesMessage("Der Server ist ausgelastet, bitte versuchen Sie es erneut."));
+            return null;
+        }
         return "dashboard";
     }
 
@@ -64,7 +83,8 @@ public class ChangePasswordBean {
      * @param value
      */
     public void validateNewPassword(FacesContext context, UIComponent toValidate, Object value) {
-        if (((String) value).equals(loginBean.getPassword())) {
+        if (passwordHasher.check((String) value, currentUser.getProfile().getPassword())
+                == PasswordHasher.Check.MATCH) {
             ((UIInput) toValidate).setValid(false);
             FacesMessage message = new FacesMessage("Bitte wählen Sie ein neues Passwort.");
             context.addMessage(toValidate.getClientId(context), message);
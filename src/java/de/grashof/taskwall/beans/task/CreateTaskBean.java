@@ -1,12 +1,22 @@
 package de.grashof.taskwall.beans.task;
 
-import de.grashof.taskwall.beans.LoginBean;
+import de.grashof.taskwall.beans.CurrentUser;
+import de.grashof.taskwall.beans.PageParameters;
 import de.grashof.taskwall.beans.persistence.TaskPersistence;
-import de.grashof.taskwall.beans.persistence.UserPersistence;
-import de.grashof.taskwall.entity.Task;
-import de.grashof.taskwall.mail.MailUtils;
+import de.grashof.taskwall.beans.persistence.TeamPersistence;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
+import de.grashof.taskwall.entity.Team;
+import de.grashof.taskwall.entity.UserSummary;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.ejb.EJB;
 import javax.enterprise.context.RequestScoped;
@@ -18,8 +28,11 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
- * This bean is used when a user creates a new task. It validates his inputs,
- * sends an email to the recipient and stores the new Task in the database.
+ * This bean is used when a user creates a new task. It validates his inputs and
+ * stores the new Task in the database together with an email to the recipient.
+ * A Task can be assigned to several recipients at once; each of them gets his
+ * own copy, and all copies are stored in one transaction. A team is named as a
+ * recipient by "@" and its name and stands for all of its members.
  *
  * @author TaskWall-Team
  */
@@ -27,6 +40,17 @@ import javax.inject.Named;
 @Named("createTaskBean")
 public class CreateTaskBean {
 
+    /**
+     * The maximum number of recipients of one Task, counted after the teams
+     * were replaced by their members.
+     */
+    private static final int MAX_RECIPIENTS = 500;
+
+    /**
+     * Marks a recipient as the name of a team.
+     */
+    private static final String TEAM_PREFIX = "@";
+
     /**
      * The title of the new Task.
      */
@@ -38,78 +62,180 @@ public class CreateTaskBean {
     private String description;
 
     /**
-     * The recipient's username or email adress.
+     * The recipients' usernames, email adresses or team names, separated by
+     * commas or semicolons.
      */
     private String recipient;
 
+    /**
+     * The ids of the recipients chosen from the suggestions, separated by
+     * commas.
+     */
+    private String recipientIds;
+
     /**
      * The deadline of the new Task. Initialized with the current date.
      */
     private Date due = new Date();
 
     /**
-     * Used to get the creator's username.
+     * Used to get the creator's id.
      */
     @Inject
-    private LoginBean loginBean;
+    private CurrentUser currentUser;
 
     /**
-     * Used to check whether the recipient exists and to retrieve his and the
-     * creator's id.
+     * Used to check whether the recipients exist and to retrieve their ids
+     * without querying the database.
      */
     @EJB
-    private UserPersistence userPersistence;
+    private UserDirectory userDirectory;
 
     /**
-     * Used to store the new Task.
+     * Used to store the new Tasks and the notifications of the recipients.
      */
     @EJB
     private TaskPersistence service;
 
     /**
-     * Used to send an email to the recipient.
+     * Used to replace teams by their members.
      */
     @EJB
-    private MailUtils mailUtils;
+    private TeamPersistence teamPersistence;
 
     /**
-     * Creates the new Task, stores it in the database, sends an email to the
-     * recipient and redirects back to the dashboard.
+     * Creates the new Task for every recipient, stores them in the database
+     * together with emails to the recipients and redirects back to the
+     * dashboard. A recipient is taken by the id of the chosen suggestion, as
+     * long as the entered name still belongs to it.
      *
      * @return the navigation outcome redirecting to the dashboard
      */
     public String create() {
-        long creatorId = userPersistence.getUser(loginBean.getUsername()).getId();
-        long recipientId;
-        if (userPersistence.userExists(recipient)) {
-            recipientId = userPersistence.getUser(recipient).getId();
-        } else {
-            recipientId = userPersistence.getUserByEmail(recipient).getId();
-        }
-        Task newTask = new Task(recipientId, creatorId, title, description, due);
-        service.storeTask(newTask);
-        if (!recipient.equals(loginBean.getUsername())) {
-            mailUtils.sendMail(newTask);
+        Set<Long> receiverIds = new LinkedHashSet<>();
+        for (List<UserSummary> receivers : resolveRecipients(recipient, getChosen()).values()) {
+            if (receivers == null) {
+                return null;
+            }
+            for (UserSummary receiver : receivers) {
+                receiverIds.add(receiver.getId());
+            }
         }
+        service.storeTasks(currentUser.getId(), receiverIds, title, description, due);
         return "return";
     }
 
     /**
-     * Validates whether the recipient of the Task exists and displays an error
-     * message if not.
+     * Validates whether the recipients of the Task exist and displays an
+     * error message naming the unknown ones if not. Teams without members
+     * are refused as well.
      *
      * @param context
      * @param toValidate
      * @param value
      */
     public void validateRecipient(FacesContext context, UIComponent toValidate, Object value) {
-        if (!userPersistence.userExists((String) value) && !userPersistence.userExistsEmail((String) value)) {
+        Map<String, List<UserSummary>> recipients = resolveRecipients((String) value,
+                new ArrayList<UserSummary>());
+        StringBuilder unknown = new StringBuilder();
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Map.Entry<String, List<UserSummary>> entry : recipients.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                unknown.append(unknown.length() == 0 ? "" : ", ").append(entry.getKey());
+            } else {
+                for (UserSummary user : entry.getValue()) {
+                    ids.add(user.getId());
+                }
+            }
+        }
+        String error = null;
+        if (recipients.isEmpty()) {
+            error = "Bitte nennen Sie die zuständige Person.";
+        } else if (unknown.length() > 0) {
+            error = "Benutzer oder Team existiert nicht: " + unknown;
+        } else if (ids.size() > MAX_RECIPIENTS) {
+            error = "Bitte nennen Sie höchstens " + MAX_RECIPIENTS + " Personen.";
+        }
+        if (error != null) {
             ((UIInput) toValidate).setValid(false);
-            FacesMessage message = new FacesMessage("Benutzer existiert nicht.");
+            FacesMessage message = new FacesMessage(error);
             context.addMessage(toValidate.getClientId(context), message);
         }
     }
 
+    /**
+     * Finds the recipients named in the entered text. Every recipient is
+     * taken from the chosen suggestions if one of them has the entered name,
+     * and looked up by the name if not. A team is replaced by its members.
+     *
+     * @param names the entered usernames, e-mail addresses or team names
+     * @param chosen the users chosen from the suggestions
+     * @return the recipients by the entered names in their order; the value
+     * is null for names of users or teams that do not exist
+     */
+    private Map<String, List<UserSummary>> resolveRecipients(String names, Collection<UserSummary> chosen) {
+        Map<String, List<UserSummary>> recipients = new LinkedHashMap<>();
+        for (String name : PageParameters.trim(names).split("[,;]")) {
+            name = name.trim();
+            if (name.isEmpty() || recipients.containsKey(name)) {
+                continue;
+            }
+            if (name.startsWith(TEAM_PREFIX)) {
+                recipients.put(name, getMembers(name.substring(TEAM_PREFIX.length()).trim()));
+                continue;
+            }
+            UserSummary found = null;
+            for (UserSummary user : chosen) {
+                if (name.equals(user.getUsername()) || name.equals(user.getEmail())) {
+                    found = user;
+                    break;
+                }
+            }
+            if (found == null) {
+                found = userDirectory.findUser(name);
+            }
+            recipients.put(name, found == null ? null : Collections.singletonList(found));
+        }
+        return recipients;
+    }
+
+    /**
+     * Gets the members of a team.
+     *
+     * @param teamName the name of the team
+     * @return a List containing the members; null if there is no such team
+     */
+    private List<UserSummary> getMembers(String teamName) {
+        Team team = teamName.isEmpty() ? null : teamPersistence.findTeam(teamName);
+        if (team == null) {
+            return null;
+        }
+        List<UserSummary> members = new ArrayList<>();
+        for (Long id : teamPersistence.getMemberIds(team.getId())) {
+            UserSummary user = userDirectory.getUser(id);
+            if (user != null) {
+                members.add(user);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Gets the users chosen from the suggestions.
+     *
+     * @return a List containing the chosen users that still exist
+     */
+    private List<UserSummary> getChosen() {
+        List<UserSummary> chosen = new ArrayList<>();
+        for (String id : PageParameters.trim(recipientIds).split("\\s*,\\s*")) {
+            UserSummary user = id.matches("\\d{1,18}") ? userDirectory.getUser(Long.parseLong(id)) : null;
+            if (user != null) {
+                chosen.add(user);
+            }
+        }
+        return chosen;
+    }
+
     /**
      * Gets the title of the new Task.
      *
@@ -147,23 +273,41 @@ public class CreateTaskBean {
     }
 
     /**
-     * Gets the recipient of the new Task.
+     * Gets the recipients of the new Task.
      *
-     * @return the recipient of the new Task
+     * @return the recipients of the new Task
      */
     public String getRecipient() {
         return recipient;
     }
 
     /**
-     * Sets the recipient of the new Task.
+     * Sets the recipients of the new Task.
      *
-     * @param recipient the recipient of the new Task
+     * @param recipient the recipients of the new Task
      */
     public void setRecipient(String recipient) {
         this.recipient = recipient;
     }
 
+    /**
+     * Gets the ids of the recipients chosen from the suggestions.
+     *
+     * @return the ids separated by commas
+     */
+    public String getRecipientIds() {
+        return recipientIds;
+    }
+
+    /**
+     * Sets the ids of the recipients chosen from the suggestions.
+     *
+     * @param recipientIds the ids separated by commas
+     */
+    public void setRecipientIds(String recipientIds) {
+        this.recipientIds = recipientIds;
+    }
+
     /**
      * Gets the deadline of the new Task.
      *
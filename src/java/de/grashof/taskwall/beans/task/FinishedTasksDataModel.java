@@ -0,0 +1,187 @@
+package de.grashof.taskwall.beans.task;
+
+import de.grashof.taskwall.beans.persistence.ArchivedTasksPersistence;
+import de.grashof.taskwall.beans.persistence.Page;
+import de.grashof.taskwall.entity.TaskSummary;
+
+import java.util.Date;
+
+import javax.faces.model.DataModel;
+
+/**
+ * A DataModel holding one page of the finished Tasks of a user. The page is
+ * not loaded before the table actually asks for its rows, so a request that
+ * does not render the table does not touch the database, and a rendered table
+ * never holds more than one page.
+ *
+ * @author TaskWall-Team
+ */
+public class FinishedTasksDataModel extends DataModel<TaskSummary> {
+
+    /**
+     * Used to load the page.
+     */
+    private final ArchivedTasksPersistence archivedTasksPersistence;
+
+    /**
+     * The id of the user that was assigned the Tasks.
+     */
+    private final long receiverId;
+
+    /**
+     * The earliest date the Tasks were finished.
+     */
+    private final Date from;
+
+    /**
+     * The latest date the Tasks were finished.
+     */
+    private final Date until;
+
+    /**
+     * The date the Task at the border of the page was finished.
+     */
+    private final Date seekFinished;
+
+    /**
+     * The id of the Task at the border of the page.
+     */
+    private final Long seekId;
+
+    /**
+     * Indicates whether the page ends before the border Task.
+     */
+    private final boolean backwards;
+
+    /**
+     * The maximum number of Tasks on the page.
+     */
+    private final int size;
+
+    /**
+     * The loaded page; null until the first access.
+     */
+    private Page<TaskSummary> page;
+
+    /**
+     * The index of the selected row.
+     */
+    private int rowIndex = -1;
+
+    /**
+     * Constructor setting which page is loaded on the first access.
+     *
+     * @param archivedTasksPersistence used to load the page
+     * @param receiverId the id of the user that was assigned the Tasks
+     * @param from the earliest date the Tasks were finished; may be null
+     * @param until the latest date the Tasks were finished; may be null
+     * @param seekFinished the date the Task at the border of the page was
+     * finished; null for the first page
+     * @param seekId the id of the Task at the border of the page; null for the
+     * first page
+     * @param backwards true if the page ends before the border Task
+     * @param size the maximum number of Tasks on the page
+     */
+    public FinishedTasksDataModel(ArchivedTasksPersistence archivedTasksPersistence, long receiverId,
+            Date from, Date until, Date seekFinished, Long seekId, boolean backwards, int size) {
+        this.archivedTasksPersistence = archivedTasksPersistence;
+        this.receiverId = receiverId;
+        this.from = from;
+        this.until = until;
+        this.seekFinished = seekFinished;
+        this.seekId = seekId;
+        this.backwards = backwards;
+        this.size = size;
+    }
+
+    /**
+     * Gets the page, loading it on the first access.
+     *
+     * @return the page
+     */
+    public Page<TaskSummary> getPage() {
+        if (page == null) {
+            page = archivedTasksPersistence.getFinishedTasks(receiverId, from, until, seekFinished, seekId,
+                    backwards, size);
+        }
+        return page;
+    }
+
+    /**
+     * Indicates whether the selected row exists.
+     *
+     * @return true if the selected row exists; false if not
+     */
+    @Override
+    public boolean isRowAvailable() {
+        return rowIndex >= 0 && rowIndex < getRowCount();
+    }
+
+    /**
+     * Gets the number of rows on the page.
+     *
+     * @return the number of rows
+     */
+    @Override
+    public int getRowCount() {
+        return getPage().getItems().size();
+    }
+
+    /**
+     * Gets the Task in the selected row.
+     *
+     * @return the Task in the selected row
+     */
+    @Override
+    public TaskSummary getRowData() {
+        if (!isRowAvailable()) {
+            throw new IllegalArgumentException("No row available at index " + rowIndex);
+        }
+        return getPage().getItems().get(rowIndex);
+    }
+
+    /**
+     * Gets the index of the selected row.
+     *
+     * @return the index of the selected row; -1 if none is selected
+     */
+    @Override
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    /**
+     * Selects a row.
+     *
+     * @param rowIndex the index of the row; -1 to select none
+     */
+    @Override
+    public void setRowIndex(int rowIndex) {
+        if (rowIndex < -1) {
+            throw new IllegalArgumentException("Invalid row index " + rowIndex);
+        }
+        this.rowIndex = rowIndex;
+    }
+
+    /**
+     * Gets the loaded page.
+     *
+     * @return the page
+     */
+    @Override
+    public Object getWrappedData() {
+        return getPage();
+    }
+
+    /**
+     * Replaces the page.
+     *
+     * @param data the new page
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setWrappedData(Object data) {
+        page = (Page<TaskSummary>) data;
+        rowIndex = -1;
+    }
+}
@@ -0,0 +1,104 @@
+package de.grashof.taskwall.beans.task;
+
+import de.grashof.taskwall.beans.CurrentUser;
+import de.grashof.taskwall.beans.PageParameters;
+import de.grashof.taskwall.entity.TaskSummary;
+import de.grashof.taskwall.search.SearchIndex;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.enterprise.context.RequestScoped;
+import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * This bean is used to search the open and finished Tasks of the user for
+ * words in their titles and descriptions.
+ *
+ * @author TaskWall-Team
+ */
+@Named("searchTasksBean")
+@RequestScoped
+public class SearchTasksBean {
+
+    /**
+     * The maximum number of Tasks shown as result.
+     */
+    private static final int MAX_RESULTS = 50;
+
+    /**
+     * The words searched for as passed in the request.
+     */
+    private String query = "";
+
+    /**
+     * The found Tasks.
+     */
+    private List<TaskSummary> tasks = Collections.emptyList();
+
+    /**
+     * Used to retrieve the id of the user.
+     */
+    @Inject
+    private CurrentUser currentUser;
+
+    /**
+     * Used to find the Tasks.
+     */
+    @EJB
+    private SearchIndex searchIndex;
+
+    /**
+     * Searches the Tasks of the user for the words passed in the request, if
+     * there are any.
+     */
+    @PostConstruct
+    public void init() {
+        query = PageParameters.trim(FacesContext.getCurrentInstance().getExternalContext()
+                .getRequestParameterMap().get("q"));
+        if (!query.isEmpty()) {
+            tasks = searchIndex.search(currentUser.getId(), query, MAX_RESULTS);
+        }
+    }
+
+    /**
+     * Gets the found Tasks.
+     *
+     * @return a List containing the summaries of the found Tasks
+     */
+    public List<TaskSummary> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Gets the words searched for.
+     *
+     * @return the words searched for
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Gets whether a search was made.
+     *
+     * @return true if the user searched for something; false if not
+     */
+    public boolean getSearched() {
+        return !query.isEmpty();
+    }
+
+    /**
+     * Gets whether the search index is still built, so not all Tasks can be
+     * found yet.
+     *
+     * @return true if the index is incomplete; false if not
+     */
+    public boolean getIndexing() {
+        return !searchIndex.isReady();
+    }
+}
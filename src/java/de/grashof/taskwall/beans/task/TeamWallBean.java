@@ -0,0 +1,220 @@
+package de.grashof.taskwall.beans.task;
+
+import de.grashof.taskwall.beans.CurrentUser;
+import de.grashof.taskwall.beans.PageParameters;
+import de.grashof.taskwall.beans.persistence.Page;
+import de.grashof.taskwall.beans.persistence.TeamPersistence;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
+import de.grashof.taskwall.entity.Team;
+import de.grashof.taskwall.entity.TeamWallEntry;
+import de.grashof.taskwall.entity.UserSummary;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.enterprise.context.RequestScoped;
+import javax.faces.context.FacesContext;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * Shows the wall of a team: one page of the open Tasks of all its members,
+ * ordered by their deadline. The teams of the user are listed above the wall;
+ * administrators can open the walls of all teams. The team and the page are
+ * passed as request parameters, so every page has its own URL.
+ *
+ * @author TaskWall-Team
+ */
+@RequestScoped
+@Named
+public class TeamWallBean {
+
+    /**
+     * The number of Tasks shown on one page.
+     */
+    private static final int PAGE_SIZE = 25;
+
+    /**
+     * The teams the user can open the walls of.
+     */
+    private List<Team> teams = Collections.emptyList();
+
+    /**
+     * The team whose wall is shown; null if the user may open no wall.
+     */
+    private Team team;
+
+    /**
+     * The page of the wall that is shown.
+     */
+    private Page<TeamWallEntry> page = new Page<>(Collections.<TeamWallEntry>emptyList(), false, false);
+
+    /**
+     * The cursor the shown page starts after as passed in the request.
+     */
+    private String after = "";
+
+    /**
+     * The cursor the shown page ends before as passed in the request.
+     */
+    private String before = "";
+
+    /**
+     * Used to check the teams of the user.
+     */
+    @Inject
+    private CurrentUser currentUser;
+
+    /**
+     * Used to load the teams and the wall.
+     */
+    @EJB
+    private TeamPersistence teamPersistence;
+
+    /**
+     * Used to show the usernames of the receivers.
+     */
+    @EJB
+    private UserDirectory userDirectory;
+
+    /**
+     * Loads the teams of the user and the requested page of the wall of the
+     * requested team. Without a team in the request, the wall of the first
+     * team is shown.
+     */
+    @PostConstruct
+    public void init() {
+        Map<String, String> parameters = FacesContext.getCurrentInstance().getExternalContext()
+                .getRequestParameterMap();
+        teams = currentUser.isAdministrator() ? teamPersistence.getTeams()
+                : teamPersistence.getTeamsOf(currentUser.getId());
+        if (teams.isEmpty()) {
+            return;
+        }
+        String id = PageParameters.trim(parameters.get("team"));
+        team = teams.get(0);
+        for (Team candidate : teams) {
+            if (String.valueOf(candidate.getId()).equals(id)) {
+                team = candidate;
+            }
+        }
+
+        before = PageParameters.trim(parameters.get("before"));
+        after = before.isEmpty() ? PageParameters.trim(parameters.get("after")) : "";
+        long[] cursor = PageParameters.parseCursor(before.isEmpty() ? after : before);
+        Date seekDue = null;
+        Long seekId = null;
+        if (cursor != null) {
+            seekDue = new Date(cursor[0]);
+            seekId = cursor[1];
+        }
+        page = teamPersistence.getWall(team.getId(), seekDue, seekId,
+                cursor != null && !before.isEmpty(), PAGE_SIZE);
+    }
+
+    /**
+     * Gives the username of the receiver of a Task on the wall.
+     *
+     * @param receiverId the id of the Profile of the receiver
+     * @return the username; an empty String if the user is not known
+     */
+    public String receiver(Long receiverId) {
+        UserSummary user = userDirectory.getUser(receiverId);
+        return user == null ? "" : user.getUsername();
+    }
+
+    /**
+     * Builds the cursor pointing at an entry of the wall.
+     *
+     * @param entry the entry
+     * @return the cursor of the form "deadline_id"
+     */
+    private static String cursor(TeamWallEntry entry) {
+        return PageParameters.cursor(entry.getDue(), entry.getTaskId());
+    }
+
+    /**
+     * Gets the teams the user can open the walls of.
+     *
+     * @return a List containing the teams
+     */
+    public List<Team> getTeams() {
+        return teams;
+    }
+
+    /**
+     * Gets the team whose wall is shown.
+     *
+     * @return the team; null if the user is in no team
+     */
+    public Team getTeam() {
+        return team;
+    }
+
+    /**
+     * Gets the Tasks on the shown page of the wall.
+     *
+     * @return a List containing the entries on the shown page
+     */
+    public List<TeamWallEntry> getEntries() {
+        return page.getItems();
+    }
+
+    /**
+     * Gets whether there is a page before the shown one.
+     *
+     * @return true if there is a previous page; false if not
+     */
+    public boolean getHasPrevious() {
+        return page.hasPrevious();
+    }
+
+    /**
+     * Gets whether there is a page after the shown one.
+     *
+     * @return true if there is a next page; false if not
+     */
+    public boolean getHasNext() {
+        return page.hasNext();
+    }
+
+    /**
+     * Gets the cursor of the page before the shown one.
+     *
+     * @return the cursor of the previous page; null if the page is empty
+     */
+    public String getPreviousCursor() {
+        return page.isEmpty() ? null : cursor(page.getFirst());
+    }
+
+    /**
+     * Gets the cursor of the page after the shown one.
+     *
+     * @return the cursor of the next page; null if the page is empty
+     */
+    public String getNextCursor() {
+        return page.isEmpty() ? null : cursor(page.getLast());
+    }
+
+    /**
+     * Gets the cursor the shown page starts after.
+     *
+     * @return the cursor the shown page starts after
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * Gets the cursor the shown page ends before.
+     *
+     * @return the cursor the shown page ends before
+     */
+    public String getBefore() {
+        return before;
+    }
+}
@@ -1,25 +1,25 @@
 package de.grashof.taskwall.beans.task;
 
-import de.grashof.taskwall.beans.LoginBean;
+import de.grashof.taskwall.beans.CurrentUser;
+import de.grashof.taskwall.beans.PageParameters;
 import de.grashof.taskwall.beans.persistence.ArchivedTasksPersistence;
-import de.grashof.taskwall.beans.persistence.UserPersistence;
-import de.grashof.taskwall.entity.ArchivedTask;
-import java.io.IOException;
+import de.grashof.taskwall.entity.TaskSummary;
 
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Date;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.enterprise.context.RequestScoped;
-import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
+import javax.faces.model.DataModel;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
  * This bean is used to display a list of the Tasks the user already finished.
+ * The list is shown page by page, the most recently finished Tasks first, and
+ * may be restricted to a period of time.
  *
  * @author TaskWall-Team
  */
@@ -28,22 +28,42 @@ import javax.inject.Named;
 public class ViewFinishedTasksBean {
 
     /**
-     * A list containing all finished Tasks that were assigned to the user.
+     * The number of Tasks shown on one page.
      */
-    private List<ArchivedTask> tasks;
+    private static final int PAGE_SIZE = 25;
 
     /**
-     * Used to check whether the user is allowed to see this site and to
-     * retrieve his username to get the list of Tasks.
+     * The page of finished Tasks that is shown. Loaded when the table is
+     * rendered.
      */
-    @Inject
-    private LoginBean loginBean;
+    private FinishedTasksDataModel tasks;
 
     /**
-     * The UserPersistence used to retrieve the id of the user.
+     * The earliest date the shown Tasks were finished as passed in the
+     * request.
      */
-    @EJB
-    private UserPersistence userPersistence;
+    private String from = "";
+
+    /**
+     * The latest date the shown Tasks were finished as passed in the request.
+     */
+    private String until = "";
+
+    /**
+     * The cursor the shown page starts after as passed in the request.
+     */
+    private String after = "";
+
+    /**
+     * The cursor the shown page ends before as passed in the request.
+     */
+    private String before = "";
+
+    /**
+     * Used to retrieve the id of the user.
+     */
+    @Inject
+    private CurrentUser currentUser;
 
     /**
      * Used to get the List with the Tasks the user finished.
@@ -52,31 +72,108 @@ public class ViewFinishedTasksBean {
     private ArchivedTasksPersistence archivedTasksPersistence;
 
     /**
-     * Redirects to the login page if the user is not logged in and sets the
-     * tasks list if he is.
+     * Prepares the requested page of finished Tasks.
      */
     @PostConstruct
     public void init() {
-        if (!loginBean.getLoginSuccess()) {
-            try {
-                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
-                context.redirect(context.getApplicationContextPath() + "/login.xhtml");
-            } catch (IOException ex) {
-                Logger.getLogger(CreateTaskBean.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        } else {
-            tasks = archivedTasksPersistence.getFinishedTasks(
-                    userPersistence.getUser(loginBean.getUsername()).getId());
-
+        Map<String, String> parameters = FacesContext.getCurrentInstance().getExternalContext()
+                .getRequestParameterMap();
+        from = PageParameters.trim(parameters.get("from"));
+        until = PageParameters.trim(parameters.get("until"));
+        before = PageParameters.trim(parameters.get("before"));
+        after = before.isEmpty() ? PageParameters.trim(parameters.get("after")) : "";
+        long[] cursor = PageParameters.parseCursor(before.isEmpty() ? after : before);
+        Date seekFinished = null;
+        Long seekId = null;
+        if (cursor != null) {
+            seekFinished = new Date(cursor[0]);
+            seekId = cursor[1];
         }
+        tasks = new FinishedTasksDataModel(archivedTasksPersistence, currentUser.getId(),
+                PageParameters.parseDate(from), PageParameters.parseDate(until), seekFinished, seekId,
+                cursor != null && !before.isEmpty(), PAGE_SIZE);
     }
 
     /**
-     * Gets the List containing the finished Tasks
+     * Gets the DataModel containing the shown page of finished Tasks.
      *
-     * @return the Tasks list
+     * @return the Tasks of the shown page
      */
-    public List<ArchivedTask> getTasks() {
+    public DataModel<TaskSummary> getTasks() {
         return tasks;
     }
+
+    /**
+     * Gets whether there is a page before the shown one.
+     *
+     * @return true if there is a previous page; false if not
+     */
+    public boolean getHasPrevious() {
+        return tasks != null && tasks.getPage().hasPrevious();
+    }
+
+    /**
+     * Gets whether there is a page after the shown one.
+     *
+     * @return true if there is a next page; false if not
+     */
+    public boolean getHasNext() {
+        return tasks != null && tasks.getPage().hasNext();
+    }
+
+    /**
+     * Gets the cursor of the page before the shown one.
+     *
+     * @return the cursor of the previous page; null if the page is empty
+     */
+    public String getPreviousCursor() {
+        TaskSummary first = tasks == null ? null : tasks.getPage().getFirst();
+        return first == null ? null : PageParameters.cursor(first.getFinished(), first.getId());
+    }
+
+    /**
+     * Gets the cursor of the page after the shown one.
+     *
+     * @return the cursor of the next page; null if the page is empty
+     */
+    public String getNextCursor() {
+        TaskSummary last = tasks == null ? null : tasks.getPage().getLast();
+        return last == null ? null : PageParameters.cursor(last.getFinished(), last.getId());
+    }
+
+    /**
+     * Gets the cursor the shown page starts after.
+     *
+     * @return the cursor the shown page starts after
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * Gets the cursor the shown page ends before.
+     *
+     * @return the cursor the shown page ends before
+     */
+    public String getBefore() {
+        return before;
+    }
+
+    /**
+     * Gets the earliest date the Tasks are filtered by.
+     *
+     * @return the earliest date in the format yyyy-MM-dd
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets the latest date the Tasks are filtered by.
+     *
+     * @return the latest date in the format yyyy-MM-dd
+     */
+    public String getUntil() {
+        return until;
+    }
 }
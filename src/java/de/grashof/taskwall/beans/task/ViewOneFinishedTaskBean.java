@@ -1,19 +1,26 @@
 package de.grashof.taskwall.beans.task;
 
-import de.grashof.taskwall.beans.LoginBean;
+import de.grashof.taskwall.beans.CurrentUser;
+import de.grashof.taskwall.beans.persistence.ArchivedTasksPersistence;
 import de.grashof.taskwall.beans.persistence.UserPersistence;
 import de.grashof.taskwall.entity.ArchivedTask;
 
+import java.io.IOException;
 import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.enterprise.context.RequestScoped;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
  * This bean is used when a user looks at the details of a single finished Task.
+ * The Task is addressed by the view parameter "id", so the page can be
+ * bookmarked.
  *
  * @author TaskWall-Team
  */
@@ -21,6 +28,11 @@ import javax.inject.Named;
 @Named("viewOneFinishedTaskBean")
 public class ViewOneFinishedTaskBean {
 
+    /**
+     * The id of the finished Task, as passed in the request.
+     */
+    private Long id;
+
     /**
      * The title of the Task.
      */
@@ -52,10 +64,10 @@ public class ViewOneFinishedTaskBean {
     private Date due;
 
     /**
-     * The bean containing the information which bean the user wants to see.
+     * Used to make sure the Task was assigned to the logged in user.
      */
     @Inject
-    private LoginBean loginBean;
+    private CurrentUser currentUser;
 
     /**
      * Used to retrieve the creator's username.
@@ -64,12 +76,27 @@ public class ViewOneFinishedTaskBean {
     private UserPersistence userPersistence;
 
     /**
-     * Sets all field values according to the data retrieved from the
-     * viewFinishedTasksBean.
+     * Used to load the finished Task together with its description.
      */
-    @PostConstruct
-    public void init() {
-        ArchivedTask current = loginBean.getCurrentFinished();
+    @EJB
+    private ArchivedTasksPersistence archivedTasksPersistence;
+
+    /**
+     * Sets all field values according to the finished Task with the requested
+     * id. Redirects to the list of finished Tasks if there is no such Task.
+     */
+    public void load() {
+        ArchivedTask current = id == null ? null
+                : archivedTasksPersistence.getFinishedTask(id, currentUser.getId());
+        if (current == null) {
+            try {
+                ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
+                context.redirect(context.getApplicationContextPath() + "/task/viewFinishedTasks.xhtml");
+            } catch (IOException ex) {
+                Logger.getLogger(ViewOneFinishedTaskBean.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            return;
+        }
         title = current.getTitle();
         description = current.getDescription();
         creator = userPersistence.getUser(current.getCreatorId())
@@ -79,6 +106,24 @@ public class ViewOneFinishedTaskBean {
         due = current.getDue();
     }
 
+    /**
+     * Gets the id of the finished Task.
+     *
+     * @return the id of the finished Task
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of the finished Task.
+     *
+     * @param id the id of the finished Task
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     /**
      * Gets the title of the Task.
      *
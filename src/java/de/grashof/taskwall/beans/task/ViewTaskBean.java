@@ -1,33 +1,38 @@
 package de.grashof.taskwall.beans.task;
 
-import de.grashof.taskwall.beans.LoginBean;
+import de.grashof.taskwall.beans.CurrentUser;
 import de.grashof.taskwall.beans.persistence.TaskPersistence;
 import de.grashof.taskwall.beans.persistence.UserPersistence;
 import de.grashof.taskwall.entity.Task;
 
-import java.io.Serializable;
+import java.io.IOException;
 import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
-import javax.faces.view.ViewScoped;
+import javax.enterprise.context.RequestScoped;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 /**
- * This bean is requested when a user views the details of a Task. It is view
- * scoped so the bean "remembers" the task the user is looking at.
+ * This bean is requested when a user views the details of a Task. The Task is
+ * addressed by the view parameter "id", so the page can be bookmarked. The
+ * view itself keeps its state, because the view state token is what protects
+ * the form finishing the Task against requests forged by other sites.
  *
  * @author TaskWall-Team
  */
-@ViewScoped
+@RequestScoped
 @Named("viewTaskBean")
-public class ViewTaskBean implements Serializable {
+public class ViewTaskBean {
 
     /**
-     * The task the user is looking at.
+     * The id of the Task the user is looking at, as passed in the request.
      */
-    private Task task;
+    private Long id;
 
     /**
      * The title of the task and value of an outputText-field.
@@ -55,16 +60,10 @@ public class ViewTaskBean implements Serializable {
     private Date created;
 
     /**
-     * Checks whether the bean is already initialized. If it is not the values
-     * for all fields are loaded from the DashboardBean.
-     */
-    private boolean initialized = false;
-
-    /**
-     * The LoginBean containing the Task the user wants to see.
+     * Used to make sure the Task is assigned to the logged in user.
      */
     @Inject
-    private LoginBean loginBean;
+    private CurrentUser currentUser;
 
     /**
      * The UserPersistence used to retrieve the username of the creator.
@@ -73,26 +72,27 @@ public class ViewTaskBean implements Serializable {
     private UserPersistence userPersistence;
 
     /**
-     * The TaskPersistence used to archive the Task.
+     * The TaskPersistence used to load and archive the Task.
      */
     @EJB
     private TaskPersistence taskPersistence;
 
     /**
-     * Initializes the bean if it is not already. Retrieves all field values
-     * from the current Task in the DashbaordBean.
+     * Loads the Task with the requested id together with its description.
+     * Redirects to the dashboard if the Task does not exist or is assigned to
+     * someone else.
      */
-    @PostConstruct
-    public void init() {
-        if (!initialized) {
-            task = loginBean.getCurrent();
-            title = task.getTitle();
-            description = task.getDescription();
-            creator = userPersistence.getUser(task.getCreatorId()).getUsername();
-            due = task.getDue();
-            created = task.getCreated();
-            initialized = true;
+    public void load() {
+        Task task = id == null ? null : taskPersistence.getTask(id, currentUser.getId());
+        if (task == null) {
+            redirect("/dashboard.xhtml");
+            return;
         }
+        title = task.getTitle();
+        description = task.getDescription();
+        creator = userPersistence.getUser(task.getCreatorId()).getUsername();
+        due = task.getDue();
+        created = task.getCreated();
     }
 
     /**
@@ -101,10 +101,33 @@ public class ViewTaskBean implements Serializable {
      * @return the navigation outcome redirecting to the dashboard
      */
     public String finish() {
-        taskPersistence.archiveTask(task);
+        if (id != null) {
+            Task task = taskPersistence.getTask(id, currentUser.getId());
+            if (task != null) {
+                taskPersistence.archiveTask(task);
+            }
+        }
         return "return";
     }
 
+    /**
+     * Gets the id of the Task.
+     *
+     * @return the id of the Task
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of the Task.
+     *
+     * @param id the id of the Task
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     /**
      * Gets the title of the Task.
      *
@@ -149,4 +172,18 @@ public class ViewTaskBean implements Serializable {
     public Date getCreated() {
         return created;
     }
+
+    /**
+     * Redirects to a page of the application.
+     *
+     * @param page the path of the page within the application
+     */
+    private static void redirect(String page) {
+        try {
+            ExternalContext context = FacesContext.getCurrentInstance().getExternalContext();
+            context.redirect(context.getApplicationContextPath() + page);
+        } catch (IOException ex) {
+            Logger.getLogger(ViewTaskBean.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
 }
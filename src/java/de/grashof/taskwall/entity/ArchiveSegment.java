@@ -0,0 +1,175 @@
+package de.grashof.taskwall.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents a segment file of the cold archive in the database. A segment
+ * holds ArchivedTasks that were moved out of the database. It is registered in
+ * the same transaction that removes those ArchivedTasks, so a segment file
+ * without a registration is incomplete and can be deleted.
+ *
+ * @author TaskWall-Team
+ */
+@Entity
+@NamedQuery(
+        name = "getArchiveSegments",
+        query = "SELECT segment FROM ArchiveSegment segment ORDER BY segment.id")
+public class ArchiveSegment implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * An auto-generated id as the primary key. Segments with a higher id hold
+     * more recently finished Tasks.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ArchiveSegmentIds")
+    private Long id;
+
+    /**
+     * The name of the segment files without their extension.
+     */
+    private String name;
+
+    /**
+     * The number of ArchivedTasks in the segment.
+     */
+    private int entries;
+
+    /**
+     * The point in time the segment was written.
+     */
+    @NotNull
+    @Temporal(javax.persistence.TemporalType.TIMESTAMP)
+    private Date created;
+
+    /**
+     * Standard empty constructor necessary for all Entity-classes.
+     */
+    public ArchiveSegment() {
+    }
+
+    /**
+     * Constructor setting the creation time to now.
+     *
+     * @param entries the number of ArchivedTasks in the segment
+     */
+    public ArchiveSegment(int entries) {
+        this.entries = entries;
+        created = new Date();
+    }
+
+    /**
+     * Gets the name of the segment files.
+     *
+     * @return the name of the segment files
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the segment files.
+     *
+     * @param name the new name of the segment files
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the number of ArchivedTasks in the segment.
+     *
+     * @return the number of ArchivedTasks
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Sets the number of ArchivedTasks in the segment.
+     *
+     * @param entries the new number of ArchivedTasks
+     */
+    public void setEntries(int entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Gets the point in time the segment was written.
+     *
+     * @return the point in time the segment was written
+     */
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * Sets the point in time the segment was written.
+     *
+     * @param created the new point in time the segment was written
+     */
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id.
+     *
+     * @param id the new id
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (id != null ? id.hashCode() : 0);
+        return hash;
+    }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param object the reference object with which to compare
+     * @return true if this object is the same as the passed object argument;
+     * false otherwise
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof ArchiveSegment)) {
+            return false;
+        }
+        ArchiveSegment other = (ArchiveSegment) object;
+        return !((this.id == null && other.id != null) || (this.id != null && !this.id.equals(other.id)));
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object
+     */
+    @Override
+    public String toString() {
+        return "de.grashof.taskwall.entity.ArchiveSegment[ id=" + id + " ]";
+    }
+}
@@ -3,8 +3,12 @@ package de.grashof.taskwall.entity;
 import java.io.Serializable;
 import java.util.Date;
 
+import javax.persistence.Basic;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Temporal;
 import javax.validation.constraints.NotNull;
@@ -13,14 +17,33 @@ import javax.validation.constraints.NotNull;
  * Represents an ArchivedTask in the database. Contains all necessary data to
  * archive a finished task. At runtime the class is instantiated when a finished
  * Task is finished and archived or an old finished Task is loaded from the
- * database.
+ * database. ArchivedTasks that were finished long ago are moved into the cold
+ * archive by the ArchiveTiering.
  *
  * @author TaskWall-Team
  */
 @Entity
-@NamedQuery(
-        name = "getFinishedTasks",
-        query = "SELECT tasks FROM ArchivedTask tasks WHERE tasks.receiverId = :receiverId")
+@NamedQueries({
+    @NamedQuery(
+            name = "getArchivedTasksBefore",
+            query = "SELECT tasks FROM ArchivedTask tasks WHERE tasks.finished < :cutoff "
+            + "ORDER BY tasks.finished, tasks.id"),
+    @NamedQuery(
+            name = "deleteArchivedTasks",
+            query = "DELETE FROM ArchivedTask tasks WHERE tasks.id IN :ids"),
+    @NamedQuery(
+            name = "getIndexedArchivedTasks",
+            query = "SELECT tasks.id, tasks.receiverId, tasks.title, tasks.description, tasks.due, tasks.finished "
+            + "FROM ArchivedTask tasks WHERE tasks.id > :afterId ORDER BY tasks.id"),
+    @NamedQuery(
+            name = "getIndexedArchivedTasksByIds",
+            query = "SELECT tasks.id, tasks.receiverId, tasks.title, tasks.description, tasks.due, tasks.finished "
+            + "FROM ArchivedTask tasks WHERE tasks.id IN :ids"),
+    @NamedQuery(
+            name = "getRecentlyFinishedTasks",
+            query = "SELECT tasks.id, tasks.receiverId, tasks.finished FROM ArchivedTask tasks "
+            + "WHERE tasks.finished >= :since")
+})
 public class ArchivedTask implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -50,9 +73,12 @@ public class ArchivedTask implements Serializable {
     private String title;
 
     /**
-     * The description of the Task.
+     * The description of the Task. It is only loaded when it is accessed,
+     * since lists never show it.
      */
     @NotNull
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
     private String description;
 
     /**
@@ -0,0 +1,136 @@
+package de.grashof.taskwall.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.*;
+
+/**
+ * Represents a job that may only run on one node of the cluster at a time. A
+ * node runs the job only after it took the lease; it is kept until it expires,
+ * so the other nodes skip the job in the meantime.
+ *
+ * @author TaskWall-Team
+ */
+@Entity
+@NamedQuery(
+        name = "claimLease",
+        query = "UPDATE Lease lease SET lease.holder = :holder, lease.expires = :expires "
+        + "WHERE lease.name = :name AND (lease.expires IS NULL OR lease.expires < :now)")
+public class Lease implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the job as the primary key.
+     */
+    @Id
+    private String name;
+
+    /**
+     * The token of the node that took the lease last.
+     */
+    private String holder;
+
+    /**
+     * The point in time the lease expires.
+     */
+    @Temporal(javax.persistence.TemporalType.TIMESTAMP)
+    private Date expires;
+
+    /**
+     * Standard empty constructor necessary for all Entity-classes.
+     */
+    public Lease() {
+    }
+
+    /**
+     * Gets the name of the job.
+     *
+     * @return the name of the job
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the job.
+     *
+     * @param name the new name of the job
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the token of the node that took the lease last.
+     *
+     * @return the token of the node
+     */
+    public String getHolder() {
+        return holder;
+    }
+
+    /**
+     * Sets the token of the node that took the lease.
+     *
+     * @param holder the new token of the node
+     */
+    public void setHolder(String holder) {
+        this.holder = holder;
+    }
+
+    /**
+     * Gets the point in time the lease expires.
+     *
+     * @return the point in time the lease expires
+     */
+    public Date getExpires() {
+        return expires;
+    }
+
+    /**
+     * Sets the point in time the lease expires.
+     *
+     * @param expires the new point in time the lease expires
+     */
+    public void setExpires(Date expires) {
+        this.expires = expires;
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value
+     */
+    @Override
+    public int hashCode() {
+        return name != null ? name.hashCode() : 0;
+    }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param object the reference object with which to compare
+     * @return true if this object is the same as the passed object argument;
+     * false otherwise
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof Lease)) {
+            return false;
+        }
+        Lease other = (Lease) object;
+        return !((this.name == null && other.name != null) || (this.name != null && !this.name.equals(other.name)));
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object
+     */
+    @Override
+    public String toString() {
+        return "de.grashof.taskwall.entity.Lease[ name=" + name + " ]";
+    }
+}
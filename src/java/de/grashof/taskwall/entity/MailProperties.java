@@ -36,7 +36,7 @@ public class MailProperties implements Serializable {
      * An auto-generated id as the primary key.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "MailPropertiesIds")
     private Long id;
 
     /**
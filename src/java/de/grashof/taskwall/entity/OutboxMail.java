@@ -0,0 +1,363 @@
+package de.grashof.taskwall.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents a notification in the database that still has to be sent. It is
+ * stored together with the Task it announces and removed as soon as it was
+ * delivered. All notifications of a receiver that are due at the same time are
+ * sent in one mail. Notifications that could not be delivered after several
+ * attempts are kept as dead letters.
+ *
+ * @author TaskWall-Team
+ */
+@Entity
+@NamedQueries({
+    @NamedQuery(
+            name = "getDueOutboxReceivers",
+            query = "SELECT mail.receiverId, MIN(mail.nextAttempt) AS firstAttempt FROM OutboxMail mail "
+            + "WHERE mail.status = :status AND mail.nextAttempt <= :now "
+            + "GROUP BY mail.receiverId ORDER BY firstAttempt"),
+    @NamedQuery(
+            name = "claimOutboxMails",
+            query = "UPDATE OutboxMail mail SET mail.claim = :claim, mail.nextAttempt = :lease "
+            + "WHERE mail.receiverId = :receiverId AND mail.status = :status AND mail.nextAttempt <= :now"),
+    @NamedQuery(
+            name = "getClaimedOutboxMails",
+            query = "SELECT mail FROM OutboxMail mail WHERE mail.receiverId = :receiverId AND mail.claim = :claim "
+            + "ORDER BY mail.due, mail.id"),
+    @NamedQuery(
+            name = "deleteClaimedOutboxMails",
+            query = "DELETE FROM OutboxMail mail WHERE mail.receiverId = :receiverId AND mail.claim = :claim"),
+    @NamedQuery(
+            name = "rescheduleOutboxMails",
+            query = "UPDATE OutboxMail mail SET mail.nextAttempt = :nextAttempt "
+            + "WHERE mail.receiverId = :receiverId AND mail.status = :status AND mail.attempts = 0 "
+            + "AND mail.claim IS NULL"),
+    @NamedQuery(
+            name = "countOutboxMails",
+            query = "SELECT COUNT(mail) FROM OutboxMail mail WHERE mail.status = :status")
+})
+public class OutboxMail implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The delivery states of an OutboxMail.
+     */
+    public enum Status {
+
+        /**
+         * The mail still has to be delivered.
+         */
+        PENDING,
+        /**
+         * The delivery failed too often and is not attempted again.
+         */
+        DEAD
+    }
+
+    /**
+     * An auto-generated id as the primary key.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "OutboxMailIds")
+    private Long id;
+
+    /**
+     * The id-value of the Profile-object of the person receiving the mail.
+     */
+    @NotNull
+    private Long receiverId;
+
+    /**
+     * The id-value of the Profile-object of the author of the Task.
+     */
+    @NotNull
+    private Long creatorId;
+
+    /**
+     * The title of the announced Task.
+     */
+    @NotNull
+    private String title;
+
+    /**
+     * The deadline of the announced Task.
+     */
+    @NotNull
+    @Temporal(javax.persistence.TemporalType.DATE)
+    private Date due;
+
+    /**
+     * The delivery state of the mail.
+     */
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.PENDING;
+
+    /**
+     * The number of failed delivery attempts.
+     */
+    private int attempts = 0;
+
+    /**
+     * The point in time from which on the next delivery attempt may be made.
+     */
+    @NotNull
+    @Temporal(javax.persistence.TemporalType.TIMESTAMP)
+    private Date nextAttempt;
+
+    /**
+     * The token of the worker that currently delivers the mail.
+     */
+    private String claim;
+
+    /**
+     * The error message of the last failed delivery attempt.
+     */
+    @Column(length = 1000)
+    private String lastError;
+
+    /**
+     * Standard empty constructor necessary for all Entity-classes.
+     */
+    public OutboxMail() {
+    }
+
+    /**
+     * Constructor creating the notification announcing the passed Task.
+     *
+     * @param task the Task that should be announced
+     * @param nextAttempt the point in time the notification is sent
+     */
+    public OutboxMail(Task task, Date nextAttempt) {
+        receiverId = task.getReceiverId();
+        creatorId = task.getCreatorId();
+        title = task.getTitle();
+        due = task.getDue();
+        this.nextAttempt = nextAttempt;
+    }
+
+    /**
+     * Gets the receiverId.
+     *
+     * @return the receiverId
+     */
+    public Long getReceiverId() {
+        return receiverId;
+    }
+
+    /**
+     * Sets the receiverId.
+     *
+     * @param receiverId the new receiverId
+     */
+    public void setReceiverId(Long receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    /**
+     * Gets the creatorId.
+     *
+     * @return the creatorId
+     */
+    public Long getCreatorId() {
+        return creatorId;
+    }
+
+    /**
+     * Sets the creatorId.
+     *
+     * @param creatorId the new creatorId
+     */
+    public void setCreatorId(Long creatorId) {
+        this.creatorId = creatorId;
+    }
+
+    /**
+     * Gets the title.
+     *
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Sets the title.
+     *
+     * @param title the new title
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Gets the deadline.
+     *
+     * @return the deadline
+     */
+    public Date getDue() {
+        return due;
+    }
+
+    /**
+     * Sets the deadline.
+     *
+     * @param due the new deadline
+     */
+    public void setDue(Date due) {
+        this.due = due;
+    }
+
+    /**
+     * Gets the delivery state.
+     *
+     * @return the delivery state
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the delivery state.
+     *
+     * @param status the new delivery state
+     */
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the number of failed delivery attempts.
+     *
+     * @return the number of failed delivery attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Sets the number of failed delivery attempts.
+     *
+     * @param attempts the new number of failed delivery attempts
+     */
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Gets the point in time of the next delivery attempt.
+     *
+     * @return the point in time of the next delivery attempt
+     */
+    public Date getNextAttempt() {
+        return nextAttempt;
+    }
+
+    /**
+     * Sets the point in time of the next delivery attempt.
+     *
+     * @param nextAttempt the new point in time of the next delivery attempt
+     */
+    public void setNextAttempt(Date nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    /**
+     * Gets the token of the worker delivering the mail.
+     *
+     * @return the token of the worker delivering the mail
+     */
+    public String getClaim() {
+        return claim;
+    }
+
+    /**
+     * Sets the token of the worker delivering the mail.
+     *
+     * @param claim the new token of the worker delivering the mail
+     */
+    public void setClaim(String claim) {
+        this.claim = claim;
+    }
+
+    /**
+     * Gets the error message of the last failed delivery attempt.
+     *
+     * @return the error message of the last failed delivery attempt
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Sets the error message of the last failed delivery attempt.
+     *
+     * @param lastError the new error message
+     */
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id.
+     *
+     * @param id the new id
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (id != null ? id.hashCode() : 0);
+        return hash;
+    }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param object the reference object with which to compare
+     * @return true if this object is the same as the passed object argument;
+     * false otherwise
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof OutboxMail)) {
+            return false;
+        }
+        OutboxMail other = (OutboxMail) object;
+        return !((this.id == null && other.id != null) || (this.id != null && !this.id.equals(other.id)));
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object
+     */
+    @Override
+    public String toString() {
+        return "de.grashof.taskwall.entity.OutboxMail[ id=" + id + " ]";
+    }
+}
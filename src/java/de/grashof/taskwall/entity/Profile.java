@@ -16,8 +16,24 @@ import javax.validation.constraints.Pattern;
 @Entity
 @NamedQueries({
     @NamedQuery(
-            name = "getAllUsers",
-            query = "SELECT user FROM Profile user"),
+            name = "getUserSummaries",
+            query = "SELECT NEW de.grashof.taskwall.entity.UserSummary(user.id, user.username, user.email, "
+            + "user.notificationsEnabled, user.administrator) FROM Profile user"),
+    @NamedQuery(
+            name = "getUserSummaryByUsername",
+            query = "SELECT NEW de.grashof.taskwall.entity.UserSummary(user.id, user.username, user.email, "
+            + "user.notificationsEnabled, user.administrator) FROM Profile user WHERE user.username = :username"),
+    @NamedQuery(
+            name = "getUserSummaryByEmail",
+            query = "SELECT NEW de.grashof.taskwall.entity.UserSummary(user.id, user.username, user.email, "
+            + "user.notificationsEnabled, user.administrator) FROM Profile user WHERE user.email = :email"),
+    @NamedQuery(
+            name = "getUserSummaryById",
+            query = "SELECT NEW de.grashof.taskwall.entity.UserSummary(user.id, user.username, user.email, "
+            + "user.notificationsEnabled, user.administrator) FROM Profile user WHERE user.id = :id"),
+    @NamedQuery(
+            name = "getAllUsernames",
+            query = "SELECT user.username FROM Profile user"),
     @NamedQuery(
             name = "getUserByUsername",
             query = "SELECT user FROM Profile user WHERE user.username = :username"),
@@ -39,6 +55,11 @@ import javax.validation.constraints.Pattern;
     @NamedQuery(
             name = "updateEmailEnabled",
             query = "UPDATE Profile user SET user.notificationsEnabled = :emailEnabled WHERE user.username = :username"),
+    @NamedQuery(
+            name = "updateDigest",
+            query = "UPDATE Profile user SET user.digestMode = :digestMode, user.digestInterval = :digestInterval, "
+            + "user.digestHour = :digestHour, user.quietFrom = :quietFrom, user.quietUntil = :quietUntil "
+            + "WHERE user.username = :username"),
     @NamedQuery(
             name = "resetPassword",
             query = "UPDATE Profile user SET user.password = 'start', user.changePassword = true WHERE user.username = :username")
@@ -47,11 +68,30 @@ public class Profile implements Serializable {
 
     private static final long serialVersionUID = 3L;
 
+    /**
+     * The ways in which a user can receive his notifications.
+     */
+    public enum DigestMode {
+
+        /**
+         * One mail is sent for every new Task.
+         */
+        IMMEDIATE,
+        /**
+         * All new Tasks of a number of minutes are collected in one mail.
+         */
+        INTERVAL,
+        /**
+         * All new Tasks of a day are collected in one mail.
+         */
+        DAILY
+    }
+
     /**
      * An auto-generated id as the primary key.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ProfileIds")
     private Long id;
 
     /**
@@ -95,6 +135,36 @@ public class Profile implements Serializable {
      */
     private boolean administrator = false;
 
+    /**
+     * Decides whether the user gets one mail per new Task or a digest.
+     */
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    private DigestMode digestMode = DigestMode.IMMEDIATE;
+
+    /**
+     * The length in minutes of the window collected in one digest when the
+     * digest mode is INTERVAL.
+     */
+    private int digestInterval = 60;
+
+    /**
+     * The hour of the day the digest is sent when the digest mode is DAILY.
+     */
+    private int digestHour = 8;
+
+    /**
+     * The hour of the day from which on no mails are sent to the user. No
+     * quiet hours apply if it is null.
+     */
+    private Integer quietFrom;
+
+    /**
+     * The hour of the day until which no mails are sent to the user. No quiet
+     * hours apply if it is null.
+     */
+    private Integer quietUntil;
+
     /**
      * Standard empty constructor necessary for all Entity-classes.
      */
@@ -112,6 +182,27 @@ public class Profile implements Serializable {
         password = "start";
     }
 
+    /**
+     * Copy constructor creating a detached copy of another Profile with the
+     * same id and data.
+     *
+     * @param other the Profile to be copied
+     */
+    public Profile(Profile other) {
+        id = other.id;
+        username = other.username;
+        password = other.password;
+        email = other.email;
+        changePassword = other.changePassword;
+        notificationsEnabled = other.notificationsEnabled;
+        administrator = other.administrator;
+        digestMode = other.digestMode;
+        digestInterval = other.digestInterval;
+        digestHour = other.digestHour;
+        quietFrom = other.quietFrom;
+        quietUntil = other.quietUntil;
+    }
+
     /**
      * Gets the username.
      *
@@ -225,6 +316,96 @@ public class Profile implements Serializable {
         this.administrator = administrator;
     }
 
+    /**
+     * Gets the digest mode.
+     *
+     * @return the digest mode
+     */
+    public DigestMode getDigestMode() {
+        return digestMode;
+    }
+
+    /**
+     * Sets the digest mode.
+     *
+     * @param digestMode the new digest mode
+     */
+    public void setDigestMode(DigestMode digestMode) {
+        this.digestMode = digestMode;
+    }
+
+    /**
+     * Gets the length of a digest window in minutes.
+     *
+     * @return the length of a digest window in minutes
+     */
+    public int getDigestInterval() {
+        return digestInterval;
+    }
+
+    /**
+     * Sets the length of a digest window in minutes.
+     *
+     * @param digestInterval the new length of a digest window in minutes
+     */
+    public void setDigestInterval(int digestInterval) {
+        this.digestInterval = digestInterval;
+    }
+
+    /**
+     * Gets the hour of the day the daily digest is sent.
+     *
+     * @return the hour of the day the daily digest is sent
+     */
+    public int getDigestHour() {
+        return digestHour;
+    }
+
+    /**
+     * Sets the hour of the day the daily digest is sent.
+     *
+     * @param digestHour the new hour of the day the daily digest is sent
+     */
+    public void setDigestHour(int digestHour) {
+        this.digestHour = digestHour;
+    }
+
+    /**
+     * Gets the hour the quiet hours begin.
+     *
+     * @return the hour the quiet hours begin; null if there are none
+     */
+    public Integer getQuietFrom() {
+        return quietFrom;
+    }
+
+    /**
+     * Sets the hour the quiet hours begin.
+     *
+     * @param quietFrom the new hour the quiet hours begin
+     */
+    public void setQuietFrom(Integer quietFrom) {
+        this.quietFrom = quietFrom;
+    }
+
+    /**
+     * Gets the hour the quiet hours end.
+     *
+     * @return the hour the quiet hours end; null if there are none
+     */
+    public Integer getQuietUntil() {
+        return quietUntil;
+    }
+
+    /**
+     * Sets the hour the quiet hours end.
+     *
+     * @param quietUntil the new hour the quiet hours end
+     */
+    public void setQuietUntil(Integer quietUntil) {
+        this.quietUntil = quietUntil;
+    }
+
     /**
      * Gets the id.
      *
@@ -15,22 +15,33 @@ import javax.validation.constraints.NotNull;
  */
 @Entity
 @NamedQueries({
-    @NamedQuery(
-            name = "getTasks",
-            query = "SELECT t FROM Task t WHERE t.receiverId = :receiverId"),
     @NamedQuery(
             name = "deleteTask",
-            query = "DELETE FROM Task t WHERE t.id = :id")
+            query = "DELETE FROM Task t WHERE t.id = :id"),
+    @NamedQuery(
+            name = "deleteTasks",
+            query = "DELETE FROM Task t WHERE t.receiverId = :receiverId AND t.id IN :ids"),
+    @NamedQuery(
+            name = "getIndexedTasks",
+            query = "SELECT t.id, t.receiverId, t.title, t.description, t.due FROM Task t "
+            + "WHERE t.id > :afterId ORDER BY t.id"),
+    @NamedQuery(
+            name = "getIndexedTasksByIds",
+            query = "SELECT t.id, t.receiverId, t.title, t.description, t.due FROM Task t WHERE t.id IN :ids"),
+    @NamedQuery(
+            name = "getRecentTasks",
+            query = "SELECT t.id, t.receiverId FROM Task t WHERE t.created >= :since")
 })
 public class Task implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     /**
-     * An auto-generated id as the primary key.
+     * An auto-generated id as the primary key, taken from a block of ids
+     * reserved by the generator TaskIds in META-INF/orm.xml.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "TaskIds")
     private Long id;
 
     /**
@@ -52,9 +63,12 @@ public class Task implements Serializable {
     private String title;
 
     /**
-     * The description of the Task.
+     * The description of the Task. It is only loaded when it is accessed,
+     * since lists never show it.
      */
     @NotNull
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
     private String description;
 
     /**
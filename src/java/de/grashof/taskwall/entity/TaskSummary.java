@@ -0,0 +1,98 @@
+package de.grashof.taskwall.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The part of a Task or ArchivedTask that is shown in lists. It is filled
+ * directly by the list queries, so the description and the other columns that
+ * are only needed on the detail pages are not loaded for every entry.
+ *
+ * @author TaskWall-Team
+ */
+public class TaskSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the Task.
+     */
+    private final Long id;
+
+    /**
+     * The title of the Task.
+     */
+    private final String title;
+
+    /**
+     * The Date until the Task has to be finished.
+     */
+    private final Date due;
+
+    /**
+     * The Date the Task was finished; null if it is still open.
+     */
+    private final Date finished;
+
+    /**
+     * Constructor used for open Tasks.
+     *
+     * @param id the id of the Task
+     * @param title the title of the Task
+     * @param due the Date until the Task has to be finished
+     */
+    public TaskSummary(Long id, String title, Date due) {
+        this(id, title, due, null);
+    }
+
+    /**
+     * Constructor used for finished Tasks.
+     *
+     * @param id the id of the Task
+     * @param title the title of the Task
+     * @param due the Date until the Task had to be finished
+     * @param finished the Date the Task was finished
+     */
+    public TaskSummary(Long id, String title, Date due, Date finished) {
+        this.id = id;
+        this.title = title;
+        this.due = due;
+        this.finished = finished;
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the title.
+     *
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Gets the deadline.
+     *
+     * @return the deadline
+     */
+    public Date getDue() {
+        return due;
+    }
+
+    /**
+     * Gets the date the Task was finished.
+     *
+     * @return the date the Task was finished; null if it is still open
+     */
+    public Date getFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,133 @@
+package de.grashof.taskwall.entity;
+
+import java.io.Serializable;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents a team in the database. A team is a named group of users that
+ * shares a team wall, on which the open Tasks of all its members are shown.
+ * Tasks can also be assigned to all members of a team at once.
+ *
+ * @author TaskWall-Team
+ */
+@Entity
+@NamedQueries({
+    @NamedQuery(
+            name = "getTeams",
+            query = "SELECT team FROM Team team ORDER BY team.name"),
+    @NamedQuery(
+            name = "getTeamByName",
+            query = "SELECT team FROM Team team WHERE team.name = :name"),
+    @NamedQuery(
+            name = "getTeamsOfMember",
+            query = "SELECT team FROM Team team, TeamMember member "
+            + "WHERE member.teamId = team.id AND member.profileId = :profileId ORDER BY team.name")
+})
+public class Team implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * An auto-generated id as the primary key.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "TeamIds")
+    private Long id;
+
+    /**
+     * The unique name of the team.
+     */
+    @NotNull
+    private String name;
+
+    /**
+     * Standard empty constructor necessary for all Entity-classes.
+     */
+    public Team() {
+    }
+
+    /**
+     * Constructor setting the name.
+     *
+     * @param name the name of the team
+     */
+    public Team(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name.
+     *
+     * @param name the new name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id.
+     *
+     * @param id the new id
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (id != null ? id.hashCode() : 0);
+        return hash;
+    }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param object the reference object with which to compare
+     * @return true if this object is the same as the passed object argument;
+     * false otherwise
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof Team)) {
+            return false;
+        }
+        Team other = (Team) object;
+        return !((this.id == null && other.id != null) || (this.id != null && !this.id.equals(other.id)));
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object
+     */
+    @Override
+    public String toString() {
+        return "de.grashof.taskwall.entity.Team[ id=" + id + " ]";
+    }
+}
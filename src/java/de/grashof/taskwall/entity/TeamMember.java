@@ -0,0 +1,144 @@
+package de.grashof.taskwall.entity;
+
+import java.io.Serializable;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents the membership of a user in a team. Like the Tasks, it refers to
+ * the team and the Profile by their ids.
+ *
+ * @author TaskWall-Team
+ */
+@Entity
+@NamedQueries({
+    @NamedQuery(
+            name = "getTeamMemberIds",
+            query = "SELECT member.profileId FROM TeamMember member WHERE member.teamId = :teamId"),
+    @NamedQuery(
+            name = "getMembershipsOfProfiles",
+            query = "SELECT member FROM TeamMember member WHERE member.profileId IN :profileIds"),
+    @NamedQuery(
+            name = "countTeamMember",
+            query = "SELECT COUNT(member) FROM TeamMember member "
+            + "WHERE member.teamId = :teamId AND member.profileId = :profileId"),
+    @NamedQuery(
+            name = "deleteTeamMember",
+            query = "DELETE FROM TeamMember member "
+            + "WHERE member.teamId = :teamId AND member.profileId = :profileId")
+})
+public class TeamMember implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * An auto-generated id as the primary key.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "TeamMemberIds")
+    private Long id;
+
+    /**
+     * The id-value of the Team.
+     */
+    @NotNull
+    private Long teamId;
+
+    /**
+     * The id-value of the Profile-object of the member.
+     */
+    @NotNull
+    private Long profileId;
+
+    /**
+     * Standard empty constructor necessary for all Entity-classes.
+     */
+    public TeamMember() {
+    }
+
+    /**
+     * Constructor setting the team and the member.
+     *
+     * @param teamId the id-value of the Team
+     * @param profileId the id-value of the Profile-object of the member
+     */
+    public TeamMember(Long teamId, Long profileId) {
+        this.teamId = teamId;
+        this.profileId = profileId;
+    }
+
+    /**
+     * Gets the teamId.
+     *
+     * @return the teamId
+     */
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    /**
+     * Gets the profileId.
+     *
+     * @return the profileId
+     */
+    public Long getProfileId() {
+        return profileId;
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id.
+     *
+     * @param id the new id
+     */
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (id != null ? id.hashCode() : 0);
+        return hash;
+    }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param object the reference object with which to compare
+     * @return true if this object is the same as the passed object argument;
+     * false otherwise
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof TeamMember)) {
+            return false;
+        }
+        TeamMember other = (TeamMember) object;
+        return !((this.id == null && other.id != null) || (this.id != null && !this.id.equals(other.id)));
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object
+     */
+    @Override
+    public String toString() {
+        return "de.grashof.taskwall.entity.TeamMember[ id=" + id + " ]";
+    }
+}
@@ -0,0 +1,225 @@
+package de.grashof.taskwall.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+
+/**
+ * One open Task on the wall of a team. The team walls are kept as a listing of
+ * their own: an entry is written for every team of the receiver when a Task
+ * is stored and removed when the Task is finished. A page of a team wall is
+ * therefore read from one index on (teamId, due, taskId), instead of
+ * collecting the Tasks of all members. The entry holds a copy of what the wall
+ * shows, as Tasks are not changed after they were created.
+ *
+ * @author TaskWall-Team
+ */
+@Entity
+@IdClass(TeamWallEntry.Key.class)
+@NamedQueries({
+    @NamedQuery(
+            name = "deleteTeamWallEntries",
+            query = "DELETE FROM TeamWallEntry entry WHERE entry.receiverId = :receiverId AND entry.taskId IN :ids"),
+    @NamedQuery(
+            name = "deleteTeamWallEntriesOfMember",
+            query = "DELETE FROM TeamWallEntry entry WHERE entry.teamId = :teamId AND entry.receiverId = :receiverId")
+})
+public class TeamWallEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id-value of the Team whose wall shows the Task.
+     */
+    @Id
+    private Long teamId;
+
+    /**
+     * The id-value of the Task.
+     */
+    @Id
+    private Long taskId;
+
+    /**
+     * The id-value of the Profile-object of the assigned person.
+     */
+    @NotNull
+    private Long receiverId;
+
+    /**
+     * The title of the Task.
+     */
+    @NotNull
+    private String title;
+
+    /**
+     * The Date until the Task has to be finished.
+     */
+    @NotNull
+    @Temporal(javax.persistence.TemporalType.DATE)
+    private Date due;
+
+    /**
+     * Standard empty constructor necessary for all Entity-classes.
+     */
+    public TeamWallEntry() {
+    }
+
+    /**
+     * Constructor creating the entry of a Task on the wall of a team.
+     *
+     * @param teamId the id-value of the Team
+     * @param task the Task
+     */
+    public TeamWallEntry(Long teamId, Task task) {
+        this.teamId = teamId;
+        taskId = task.getId();
+        receiverId = task.getReceiverId();
+        title = task.getTitle();
+        due = task.getDue();
+    }
+
+    /**
+     * Gets the teamId.
+     *
+     * @return the teamId
+     */
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    /**
+     * Gets the taskId.
+     *
+     * @return the taskId
+     */
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Gets the receiverId.
+     *
+     * @return the receiverId
+     */
+    public Long getReceiverId() {
+        return receiverId;
+    }
+
+    /**
+     * Gets the title.
+     *
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Gets the deadline.
+     *
+     * @return the deadline
+     */
+    public Date getDue() {
+        return due;
+    }
+
+    /**
+     * Returns a hash code value for the object.
+     *
+     * @return a hash code value
+     */
+    @Override
+    public int hashCode() {
+        return new Key(teamId, taskId).hashCode();
+    }
+
+    /**
+     * Indicates whether some other object is "equal to" this one.
+     *
+     * @param object the reference object with which to compare
+     * @return true if this object is the same as the passed object argument;
+     * false otherwise
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof TeamWallEntry)) {
+            return false;
+        }
+        TeamWallEntry other = (TeamWallEntry) object;
+        return new Key(teamId, taskId).equals(new Key(other.teamId, other.taskId));
+    }
+
+    /**
+     * Returns a string representation of the object.
+     *
+     * @return a string representation of the object
+     */
+    @Override
+    public String toString() {
+        return "de.grashof.taskwall.entity.TeamWallEntry[ teamId=" + teamId + ", taskId=" + taskId + " ]";
+    }
+
+    /**
+     * The primary key of an entry: the team and the Task.
+     */
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The id-value of the Team.
+         */
+        private Long teamId;
+
+        /**
+         * The id-value of the Task.
+         */
+        private Long taskId;
+
+        /**
+         * Standard empty constructor necessary for all id classes.
+         */
+        public Key() {
+        }
+
+        /**
+         * Constructor setting both parts of the key.
+         *
+         * @param teamId the id-value of the Team
+         * @param taskId the id-value of the Task
+         */
+        public Key(Long teamId, Long taskId) {
+            this.teamId = teamId;
+            this.taskId = taskId;
+        }
+
+        /**
+         * Returns a hash code value for the object.
+         *
+         * @return a hash code value
+         */
+        @Override
+        public int hashCode() {
+            return 31 * (teamId != null ? teamId.hashCode() : 0) + (taskId != null ? taskId.hashCode() : 0);
+        }
+
+        /**
+         * Indicates whether some other object is "equal to" this one.
+         *
+         * @param object the reference object with which to compare
+         * @return true if both parts of the keys are equal
+         */
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) object;
+            return (teamId == null ? other.teamId == null : teamId.equals(other.teamId))
+                    && (taskId == null ? other.taskId == null : taskId.equals(other.taskId));
+        }
+    }
+}
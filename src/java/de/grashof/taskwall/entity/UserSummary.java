@@ -0,0 +1,103 @@
+package de.grashof.taskwall.entity;
+
+import java.io.Serializable;
+
+/**
+ * The part of a Profile that is shown in the user list of the administrators.
+ * It is filled directly by the queries of the UserDirectory, so the password
+ * and the notification settings are never loaded for the list.
+ *
+ * @author TaskWall-Team
+ */
+public class UserSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The id of the Profile.
+     */
+    private final Long id;
+
+    /**
+     * The username.
+     */
+    private final String username;
+
+    /**
+     * The e-mail address; null if the user has none.
+     */
+    private final String email;
+
+    /**
+     * Indicates whether the user gets notifications about new Tasks.
+     */
+    private final boolean notificationsEnabled;
+
+    /**
+     * Indicates whether the user is an administrator.
+     */
+    private final boolean administrator;
+
+    /**
+     * Constructor setting all fields.
+     *
+     * @param id the id of the Profile
+     * @param username the username
+     * @param email the e-mail address; null if the user has none
+     * @param notificationsEnabled true if the user gets notifications
+     * @param administrator true if the user is an administrator
+     */
+    public UserSummary(Long id, String username, String email, boolean notificationsEnabled,
+            boolean administrator) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.notificationsEnabled = notificationsEnabled;
+        this.administrator = administrator;
+    }
+
+    /**
+     * Gets the id.
+     *
+     * @return the id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the username.
+     *
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Gets the e-mail address.
+     *
+     * @return the e-mail address; null if the user has none
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Gets whether the user gets notifications about new Tasks.
+     *
+     * @return true if notifications are enabled; false if not
+     */
+    public boolean getNotificationsEnabled() {
+        return notificationsEnabled;
+    }
+
+    /**
+     * Gets whether the user is an administrator.
+     *
+     * @return true if the user is an administrator; false if not
+     */
+    public boolean isAdministrator() {
+        return administrator;
+    }
+}
@@ -0,0 +1,83 @@
+package de.grashof.taskwall.mail;
+
+import de.grashof.taskwall.entity.Profile;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Calculates when a notification for a user is sent, according to his digest
+ * mode and quiet hours. All notifications that fall into the same digest
+ * window get the same point in time and are therefore sent in one mail.
+ *
+ * @author TaskWall-Team
+ */
+public final class DigestSchedule {
+
+    /**
+     * Not instantiable; only provides static methods.
+     */
+    private DigestSchedule() {
+    }
+
+    /**
+     * Gives the point in time a notification created now is sent to the user.
+     *
+     * @param receiver the Profile of the receiving user
+     * @param now the current point in time
+     * @return the point in time the notification is sent
+     */
+    public static Date nextDelivery(Profile receiver, Date now) {
+        Calendar delivery = Calendar.getInstance();
+        delivery.setTime(now);
+        switch (receiver.getDigestMode()) {
+            case INTERVAL:
+                long window = Math.max(1, receiver.getDigestInterval()) * 60 * 1000L;
+                delivery.setTimeInMillis((now.getTime() / window + 1) * window);
+                break;
+            case DAILY:
+                delivery.set(Calendar.HOUR_OF_DAY, receiver.getDigestHour());
+                delivery.set(Calendar.MINUTE, 0);
+                delivery.set(Calendar.SECOND, 0);
+                delivery.set(Calendar.MILLISECOND, 0);
+                if (!delivery.getTime().after(now)) {
+                    delivery.add(Calendar.DAY_OF_MONTH, 1);
+                }
+                break;
+            default:
+                break;
+        }
+        skipQuietHours(delivery, receiver.getQuietFrom(), receiver.getQuietUntil());
+        return delivery.getTime();
+    }
+
+    /**
+     * Moves the point in time to the end of the quiet hours if it falls into
+     * them. Quiet hours may span midnight.
+     *
+     * @param delivery the point in time
+     * @param from the hour the quiet hours begin; null if there are none
+     * @param until the hour the quiet hours end; null if there are none
+     */
+    private static void skipQuietHours(Calendar delivery, Integer from, Integer until) {
+        if (from == null || until == null || from.equals(until)) {
+            return;
+        }
+        int hour = delivery.get(Calendar.HOUR_OF_DAY);
+        boolean quiet;
+        if (from < until) {
+            quiet = hour >= from && hour < until;
+        } else {
+            quiet = hour >= from || hour < until;
+        }
+        if (quiet) {
+            if (hour >= until) {
+                delivery.add(Calendar.DAY_OF_MONTH, 1);
+            }
+            delivery.set(Calendar.HOUR_OF_DAY, until);
+            delivery.set(Calendar.MINUTE, 0);
+            delivery.set(Calendar.SECOND, 0);
+            delivery.set(Calendar.MILLISECOND, 0);
+        }
+    }
+}
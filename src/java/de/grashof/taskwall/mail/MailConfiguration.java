@@ -0,0 +1,85 @@
+package de.grashof.taskwall.mail;
+
+import de.grashof.taskwall.beans.persistence.MailPropertiesChangedEvent;
+import de.grashof.taskwall.beans.persistence.MailPropertiesPersistence;
+
+import java.util.Properties;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+
+/**
+ * Holds the current SMTP-settings and the Mail-session built from them. The
+ * settings are loaded from the database once and replaced as a whole after a
+ * change of the MailProperties was committed.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MailConfiguration {
+
+    /**
+     * The current snapshot of the settings; null until it is needed for the
+     * first time.
+     */
+    private volatile MailSettings settings;
+
+    /**
+     * The generation of the last snapshot that was built.
+     */
+    private long generation = 0;
+
+    /**
+     * Used to load the settings when they are needed for the first time.
+     */
+    @EJB
+    private MailPropertiesPersistence mailPropertiesPersistence;
+
+    /**
+     * Gets the current snapshot of the settings. The settings are only loaded
+     * from the database if no snapshot was built yet.
+     *
+     * @return the current snapshot of the SMTP-settings
+     */
+    public MailSettings getSettings() {
+        MailSettings current = settings;
+        if (current == null) {
+            synchronized (this) {
+                current = settings;
+                if (current == null) {
+                    current = build(mailPropertiesPersistence.getMailProperties().getProperties());
+                    settings = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the snapshot after a change of the settings was committed.
+     *
+     * @param event the event containing the new settings
+     */
+    public void reload(@Observes(during = TransactionPhase.AFTER_SUCCESS) MailPropertiesChangedEvent event) {
+        synchronized (this) {
+            settings = build(event.getProperties());
+        }
+    }
+
+    /**
+     * Builds a new snapshot from the passed Properties. Must be called while
+     * holding the lock of this object.
+     *
+     * @param properties the Properties containing the SMTP-settings
+     * @return the new snapshot
+     */
+    private MailSettings build(Properties properties) {
+        generation++;
+        return new MailSettings(properties, generation);
+    }
+}
@@ -0,0 +1,189 @@
+package de.grashof.taskwall.mail;
+
+import de.grashof.taskwall.beans.persistence.OutboxPersistence;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+
+/**
+ * Drains the outbox of notifications in the background. The due notifications
+ * of a receiver are reserved together and handed to one of a limited number of
+ * workers, so creating a Task never has to wait for the SMTP-server.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MailDispatcher {
+
+    /**
+     * The maximum number of receivers whose mails are delivered at the same
+     * time.
+     */
+    private static final int WORKERS = 4;
+
+    /**
+     * The time in milliseconds a worker may take for a delivery before the
+     * mail is handed to another worker.
+     */
+    private static final long LEASE = 5 * 60 * 1000L;
+
+    /**
+     * The number of deliveries currently running.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The number of mails that were delivered or did not need to be sent.
+     */
+    private final AtomicLong delivered = new AtomicLong();
+
+    /**
+     * The number of failed delivery attempts.
+     */
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * The executor running the workers.
+     */
+    @Resource
+    private ManagedExecutorService executor;
+
+    /**
+     * Used to find and reserve the due notifications.
+     */
+    @EJB
+    private OutboxPersistence outboxPersistence;
+
+    /**
+     * Used to deliver the mail of a receiver.
+     */
+    @EJB
+    private MailUtils mailUtils;
+
+    /**
+     * Reserves the due notifications of as many receivers as there are idle
+     * workers and hands them to the workers. Every reservation is committed on
+     * its own before the worker starts.
+     */
+    @Schedule(hour = "*", minute = "*", second = "*/10", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void dispatch() {
+        int idle = WORKERS - inFlight.get();
+        if (idle <= 0) {
+            return;
+        }
+        for (Long receiverId : outboxPersistence.getDue(idle)) {
+            String claim = UUID.randomUUID().toString();
+            if (outboxPersistence.claim(receiverId, claim, new Date(System.currentTimeMillis() + LEASE))) {
+                inFlight.incrementAndGet();
+                try {
+                    executor.submit(new Delivery(receiverId, claim));
+                } catch (RejectedExecutionException ex) {
+                    inFlight.decrementAndGet();
+                    Logger.getLogger(MailDispatcher.class.getName()).log(Level.WARNING, null, ex);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of deliveries currently running.
+     *
+     * @return the number of running deliveries
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the number of mails that were delivered since the start of the
+     * application.
+     *
+     * @return the number of delivered mails
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * Gets the number of failed delivery attempts since the start of the
+     * application.
+     *
+     * @return the number of failed delivery attempts
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * The work of a single worker: delivers the reserved notifications of one
+     * receiver.
+     */
+    private class Delivery implements Runnable {
+
+        /**
+         * The id of the receiver.
+         */
+        private final long receiverId;
+
+        /**
+         * The token the notifications were reserved with.
+         */
+        private final String claim;
+
+        /**
+         * Constructor setting the reserved notifications.
+         *
+         * @param receiverId the id of the receiver
+         * @param claim the token the notifications were reserved with
+         */
+        Delivery(long receiverId, String claim) {
+            this.receiverId = receiverId;
+            this.claim = claim;
+        }
+
+        /**
+         * Delivers the notifications and counts the outcome. If the delivery
+         * throws, its transaction is rolled back, so the failed attempt is
+         * recorded separately; otherwise the notifications would be retried
+         * forever once the lease expires.
+         */
+        @Override
+        public void run() {
+            try {
+                if (mailUtils.deliver(receiverId, claim)) {
+                    delivered.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (RuntimeException ex) {
+                failed.incrementAndGet();
+                Logger.getLogger(MailDispatcher.class.getName()).log(Level.SEVERE, null, ex);
+                try {
+                    outboxPersistence.failed(receiverId, claim, String.valueOf(ex));
+                } catch (RuntimeException failure) {
+                    Logger.getLogger(MailDispatcher.class.getName()).log(Level.SEVERE, null, failure);
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package de.grashof.taskwall.mail;
+
+import java.util.Properties;
+
+import javax.mail.PasswordAuthentication;
+import javax.mail.Session;
+
+/**
+ * An immutable snapshot of the SMTP-settings together with the Mail-session
+ * built from them. A new snapshot is built whenever the settings change, so a
+ * sender always sees one consistent configuration.
+ *
+ * @author TaskWall-Team
+ */
+public final class MailSettings {
+
+    /**
+     * A private copy of the Properties containing the SMTP-settings.
+     */
+    private final Properties properties;
+
+    /**
+     * The Mail-session built from the Properties.
+     */
+    private final Session session;
+
+    /**
+     * A number identifying the snapshot. Every new snapshot gets a higher
+     * number than the ones built before.
+     */
+    private final long generation;
+
+    /**
+     * Constructor building the Mail-session from the passed Properties. The
+     * Properties are copied, so later changes of the passed object have no
+     * effect on the snapshot.
+     *
+     * @param properties the Properties containing the SMTP-settings
+     * @param generation the number identifying the snapshot
+     */
+    MailSettings(Properties properties, long generation) {
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+        this.generation = generation;
+        final String user = this.properties.getProperty("mail.smtp.user");
+        final String password = this.properties.getProperty("mail.password");
+        session = Session.getInstance(this.properties, new javax.mail.Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(user, password);
+            }
+        });
+    }
+
+    /**
+     * Gets whether the SMTP-service is enabled.
+     *
+     * @return true if the service is enabled; false if not
+     */
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("mail.enabled"));
+    }
+
+    /**
+     * Gets the value of a single setting.
+     *
+     * @param key the name of the setting
+     * @return the value of the setting; null if it is not set
+     */
+    public String getProperty(String key) {
+        return properties.getProperty(key);
+    }
+
+    /**
+     * Gets the Mail-session.
+     *
+     * @return the Mail-session built from the settings
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Gets the number identifying the snapshot.
+     *
+     * @return the number identifying the snapshot
+     */
+    public long getGeneration() {
+        return generation;
+    }
+}
@@ -1,13 +1,15 @@
 package de.grashof.taskwall.mail;
 
-import de.grashof.taskwall.beans.persistence.MailPropertiesPersistence;
+import de.grashof.taskwall.beans.persistence.OutboxPersistence;
 import de.grashof.taskwall.beans.persistence.UserPersistence;
+import de.grashof.taskwall.entity.OutboxMail;
 import de.grashof.taskwall.entity.Profile;
-import de.grashof.taskwall.entity.Task;
 
 import java.io.UnsupportedEncodingException;
 import java.text.SimpleDateFormat;
-import java.util.Properties;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,11 +26,6 @@ import javax.mail.internet.*;
 @Stateless
 public class MailUtils {
 
-    /**
-     * The Mail-properties used to determine the SMTP-settings.
-     */
-    private Properties properties;
-
     /**
      * The UserPersistence used to get the username of the creator of a task.
      */
@@ -36,71 +33,87 @@ public class MailUtils {
     private UserPersistence userPersistence;
 
     /**
-     * Used to get the Properties containing the SMTP-settings.
+     * Used to get the current SMTP-settings and the Mail-session.
      */
     @EJB
-    private MailPropertiesPersistence mailPropertiesPersistence;
+    private MailConfiguration mailConfiguration;
 
     /**
-     * The Mail-session.
+     * Used to send the mails through pooled SMTP-connections.
      */
-    private Session session;
+    @EJB
+    private TransportPool transportPool;
 
     /**
-     * Creates a new session. A new session is created even if an old one exists
-     * so that a change in Properties of the SMTP-service is factored in as fast
-     * as possible.
+     * Used to load the mails that have to be sent and to record the outcome of
+     * their delivery.
      */
-    public void createSession() {
-        properties = mailPropertiesPersistence.getMailProperties().getProperties();
-        session = Session.getInstance(properties, new javax.mail.Authenticator() {
-            @Override
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(properties.getProperty("mail.smtp.user"),
-                        properties.getProperty("mail.password"));
-            }
-        });
-    }
+    @EJB
+    private OutboxPersistence outboxPersistence;
 
     /**
-     * Sends an E-Mail to the recipient of the task if he enabled notifications.
+     * Delivers the reserved notifications of a receiver in one mail if he
+     * enabled notifications. A single notification announces its Task, several
+     * notifications are collected in a digest. The notifications are removed
+     * from the outbox if they were sent or do not need to be sent; a failed
+     * attempt is recorded so they are retried later.
      *
-     * @param task the task containing the details used for the E-Mail
+     * @param receiverId the id of the receiver
+     * @param claim the token the notifications were reserved with
+     * @return false if the delivery failed; true otherwise
      */
-    public void sendMail(Task task) {
-        createSession();
-        if (Boolean.parseBoolean(properties.getProperty("mail.enabled"))) {
+    public boolean deliver(long receiverId, String claim) {
+        List<OutboxMail> mails = outboxPersistence.getClaimed(receiverId, claim);
+        if (mails.isEmpty()) {
+            return true;
+        }
+        MailSettings settings = mailConfiguration.getSettings();
+        if (settings.isEnabled()) {
             try {
-                Message msg = new MimeMessage(session);
-                Profile receiver = userPersistence.getUser(task.getReceiverId());
+                Profile receiver = userPersistence.getUser(receiverId);
                 if (receiver.getNotificationsEnabled()) {
+                    Message msg = new MimeMessage(settings.getSession());
                     InternetAddress addressTo = new InternetAddress(receiver.getEmail());
                     msg.setRecipient(Message.RecipientType.TO, addressTo);
 
-                    InternetAddress addressFrom = new InternetAddress(properties.getProperty("mail.smtp.user"), "TaskWall");
+                    InternetAddress addressFrom = new InternetAddress(settings.getProperty("mail.smtp.user"), "TaskWall");
                     msg.setFrom(addressFrom);
 
-                    msg.setSubject("Neue Aufgabe bei TaskWall");
-                    String message = "Sie haben eine neue Aufgabe von ";
-                    message += userPersistence.getUser(task.getCreatorId()).getUsername();
-                    message += " erhalten.\n\n";
-                    message += "Titel: " + task.getTitle();
-                    message += "\nFrist: " + new SimpleDateFormat("dd.MM.yyyy").format(task.getDue());
+                    SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy");
+                    String message;
+                    if (mails.size() == 1) {
+                        OutboxMail mail = mails.get(0);
+                        msg.setSubject("Neue Aufgabe bei TaskWall");
+                        message = "Sie haben eine neue Aufgabe von ";
+                        message += userPersistence.getUser(mail.getCreatorId()).getUsername();
+                        message += " erhalten.\n\n";
+                        message += "Titel: " + mail.getTitle();
+                        message += "\nFrist: " + format.format(mail.getDue());
+                    } else {
+                        msg.setSubject(mails.size() + " neue Aufgaben bei TaskWall");
+                        message = "Sie haben " + mails.size() + " neue Aufgaben erhalten.\n";
+                        Map<Long, String> creators = new HashMap<>();
+                        for (OutboxMail mail : mails) {
+                            String creator = creators.get(mail.getCreatorId());
+                            if (creator == null) {
+                                creator = userPersistence.getUser(mail.getCreatorId()).getUsername();
+                                creators.put(mail.getCreatorId(), creator);
+                            }
+                            message += "\nTitel: " + mail.getTitle();
+                            message += "\nFrist: " + format.format(mail.getDue());
+                            message += "\nVon: " + creator + "\n";
+                        }
+                    }
                     msg.setContent(message, "text/plain");
-                    Transport.send(msg);
+                    transportPool.send(settings, msg);
                 }
             } catch (MessagingException | UnsupportedEncodingException ex) {
-                Logger.getLogger(MailUtils.class.getName()).log(Level.SEVERE, null, ex);
+                Logger.getLogger(MailUtils.class.getName()).log(Level.WARNING, null, ex);
+                outboxPersistence.failed(receiverId, claim, ex.getMessage());
+                return false;
             }
         }
-    }
-
-    /**
-     * Sets the session.
-     *
-     * @param session the new session object
-     */
-    public void setSession(Session session) {
-        this.session = session;
+        outboxPersistence.delivered(receiverId, claim);
+        return true;
     }
 }
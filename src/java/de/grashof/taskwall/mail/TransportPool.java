@@ -0,0 +1,322 @@
+package de.grashof.taskwall.mail;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+
+/**
+ * Keeps connected SMTP-transports for reuse, so not every mail has to open,
+ * authenticate and close its own connection. The number of connections to the
+ * SMTP-server is limited; connections that were idle for too long or belong to
+ * outdated settings are closed.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class TransportPool {
+
+    /**
+     * The maximum number of connections to the SMTP-server at the same time.
+     */
+    private static final int MAX_CONNECTIONS = 4;
+
+    /**
+     * The time in milliseconds a connection may stay idle before it is
+     * closed.
+     */
+    private static final long MAX_IDLE = 60 * 1000L;
+
+    /**
+     * The time in seconds a sender waits for a free connection.
+     */
+    private static final long BORROW_TIMEOUT = 30;
+
+    /**
+     * The idle connections. The most recently used connection is at the head,
+     * so the connections at the tail are the first to be evicted.
+     */
+    private final Deque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+
+    /**
+     * Limits the number of connections in use.
+     */
+    private final Semaphore permits = new Semaphore(MAX_CONNECTIONS, true);
+
+    /**
+     * The number of mails sent through the pool.
+     */
+    private final AtomicLong sent = new AtomicLong();
+
+    /**
+     * The number of connections that were opened.
+     */
+    private final AtomicLong opened = new AtomicLong();
+
+    /**
+     * The number of times an idle connection was reused.
+     */
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * The number of mails sent until the last eviction run.
+     */
+    private long sentAtLastRun = 0;
+
+    /**
+     * The time of the last eviction run.
+     */
+    private long lastRun = System.currentTimeMillis();
+
+    /**
+     * The average number of mails sent per second between the last two
+     * eviction runs.
+     */
+    private volatile double sendRate = 0;
+
+    /**
+     * Sends the message through a pooled connection. If a reused connection
+     * turns out to be broken, the message is sent once more through a new
+     * connection. If the server rejected the message or its recipients, the
+     * connection is still intact: it is kept and the message is not sent
+     * again.
+     *
+     * @param settings the settings the connection has to belong to
+     * @param msg the message
+     * @throws MessagingException if the message could not be sent
+     */
+    public void send(MailSettings settings, Message msg) throws MessagingException {
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new MessagingException("No SMTP connection available");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", ex);
+        }
+        try {
+            msg.saveChanges();
+            PooledTransport pooled = borrow(settings);
+            try {
+                pooled.transport.sendMessage(msg, msg.getAllRecipients());
+            } catch (MessagingException ex) {
+                if (ex instanceof SendFailedException || pooled.transport.isConnected()) {
+                    giveBack(pooled);
+                    throw ex;
+                }
+                close(pooled);
+                if (!pooled.used) {
+                    throw ex;
+                }
+                pooled = open(settings);
+                try {
+                    pooled.transport.sendMessage(msg, msg.getAllRecipients());
+                } catch (MessagingException retryEx) {
+                    if (retryEx instanceof SendFailedException || pooled.transport.isConnected()) {
+                        giveBack(pooled);
+                    } else {
+                        close(pooled);
+                    }
+                    throw retryEx;
+                }
+            }
+            sent.incrementAndGet();
+            giveBack(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes connections that were idle for too long and updates the send
+     * rate.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (PooledTransport pooled : idle) {
+            if (now - pooled.lastUsed > MAX_IDLE && idle.remove(pooled)) {
+                close(pooled);
+            }
+        }
+        long total = sent.get();
+        synchronized (this) {
+            if (now > lastRun) {
+                sendRate = (total - sentAtLastRun) * 1000.0 / (now - lastRun);
+            }
+            sentAtLastRun = total;
+            lastRun = now;
+        }
+    }
+
+    /**
+     * Closes all idle connections when the application is shut down.
+     */
+    @PreDestroy
+    public void closeAll() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            close(pooled);
+        }
+    }
+
+    /**
+     * Gets the number of mails sent through the pool.
+     *
+     * @return the number of sent mails
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * Gets the number of connections that were opened.
+     *
+     * @return the number of opened connections
+     */
+    public long getOpened() {
+        return opened.get();
+    }
+
+    /**
+     * Gets the number of times an idle connection was reused.
+     *
+     * @return the number of reused connections
+     */
+    public long getReused() {
+        return reused.get();
+    }
+
+    /**
+     * Gets the number of idle connections.
+     *
+     * @return the number of idle connections
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * Gets the average number of mails sent per second during the last
+     * minute.
+     *
+     * @return the number of mails sent per second
+     */
+    public double getSendRate() {
+        return sendRate;
+    }
+
+    /**
+     * Takes an idle connection belonging to the passed settings or opens a new
+     * one. Idle connections that are outdated, expired or no longer connected
+     * are closed on the way.
+     *
+     * @param settings the settings the connection has to belong to
+     * @return a connected transport
+     * @throws MessagingException if a new connection could not be opened
+     */
+    private PooledTransport borrow(MailSettings settings) throws MessagingException {
+        long now = System.currentTimeMillis();
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.generation == settings.getGeneration()
+                    && now - pooled.lastUsed <= MAX_IDLE
+                    && pooled.transport.isConnected()) {
+                reused.incrementAndGet();
+                return pooled;
+            }
+            close(pooled);
+        }
+        return open(settings);
+    }
+
+    /**
+     * Opens and authenticates a new connection to the SMTP-server.
+     *
+     * @param settings the settings used for the connection
+     * @return the new connection
+     * @throws MessagingException if the connection could not be opened
+     */
+    private PooledTransport open(MailSettings settings) throws MessagingException {
+        Transport transport = settings.getSession().getTransport("smtp");
+        transport.connect();
+        opened.incrementAndGet();
+        return new PooledTransport(transport, settings.getGeneration());
+    }
+
+    /**
+     * Puts a connection that is still usable back into the idle connections.
+     *
+     * @param pooled the connection
+     */
+    private void giveBack(PooledTransport pooled) {
+        pooled.lastUsed = System.currentTimeMillis();
+        pooled.used = true;
+        idle.offerFirst(pooled);
+    }
+
+    /**
+     * Closes a connection and ignores errors while doing so.
+     *
+     * @param pooled the connection to be closed
+     */
+    private void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException ex) {
+            Logger.getLogger(TransportPool.class.getName()).log(Level.FINE, null, ex);
+        }
+    }
+
+    /**
+     * A connected transport together with the data needed to decide whether
+     * it may be reused.
+     */
+    private static class PooledTransport {
+
+        /**
+         * The connected transport.
+         */
+        private final Transport transport;
+
+        /**
+         * The generation of the settings the transport was connected with.
+         */
+        private final long generation;
+
+        /**
+         * The time the transport was last used.
+         */
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        /**
+         * Indicates whether the transport was used for a mail before.
+         */
+        private boolean used = false;
+
+        /**
+         * Constructor setting the transport and its generation.
+         *
+         * @param transport the connected transport
+         * @param generation the generation of the settings
+         */
+        PooledTransport(Transport transport, long generation) {
+            this.transport = transport;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package de.grashof.taskwall.search;
+
+import java.util.Arrays;
+
+/**
+ * The ascending ids of the Tasks containing a term. The ids are kept in a
+ * plain array, which needs far less memory than a collection of Long objects.
+ * Ids are usually added in ascending order, so adding is an append in most
+ * cases. Not thread-safe; guarded by the index of the user.
+ *
+ * @author TaskWall-Team
+ */
+class Postings {
+
+    /**
+     * The ids; only the first size entries are used.
+     */
+    private long[] ids = new long[4];
+
+    /**
+     * The number of ids.
+     */
+    private int size = 0;
+
+    /**
+     * Adds an id unless it is already contained.
+     *
+     * @param id the id of the Task
+     */
+    void add(long id) {
+        if (size > 0 && ids[size - 1] >= id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            insert(-position - 1, id);
+        } else {
+            insert(size, id);
+        }
+    }
+
+    /**
+     * Checks whether an id is contained.
+     *
+     * @param id the id of the Task
+     * @return true if the id is contained; false if not
+     */
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * Gets the number of ids.
+     *
+     * @return the number of ids
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets an id.
+     *
+     * @param position the position of the id
+     * @return the id at the position
+     */
+    long get(int position) {
+        return ids[position];
+    }
+
+    /**
+     * Inserts an id at a position, growing the array if necessary.
+     *
+     * @param position the position
+     * @param id the id
+     */
+    private void insert(int position, long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+}
@@ -0,0 +1,498 @@
+package de.grashof.taskwall.search;
+
+import de.grashof.taskwall.archive.ColdStorage;
+import de.grashof.taskwall.beans.persistence.ArchivedTasksPersistence;
+import de.grashof.taskwall.beans.persistence.TaskCreatedEvent;
+import de.grashof.taskwall.beans.persistence.TaskPersistence;
+import de.grashof.taskwall.beans.persistence.TasksFinishedEvent;
+import de.grashof.taskwall.entity.ArchivedTask;
+import de.grashof.taskwall.entity.TaskSummary;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+
+/**
+ * An inverted index over the titles and descriptions of the open and finished
+ * Tasks, kept in memory so a search does not have to scan the Task tables with
+ * LIKE. Every user has an index of his own, because users only search their
+ * own Tasks. The index is built from the database and the cold archive in the
+ * background when the application starts and afterwards kept up to date by
+ * the events the TaskPersistence fires after every commit. Those events only
+ * reach the node that made the change, so every few minutes the Tasks created
+ * or finished since yesterday are read from the database and the ones the
+ * index does not know yet are added. Tasks in the cold archive are only
+ * indexed by their titles, so their descriptions are not kept on the heap.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@Startup
+@DependsOn({"SchemaMigrator", "ColdStorage"})
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SearchIndex {
+
+    /**
+     * The number of rows read from the database at once while the index is
+     * built.
+     */
+    private static final int CHUNK = 1000;
+
+    /**
+     * The indexes of the users by the ids of their Profiles.
+     */
+    private final ConcurrentMap<Long, ReceiverIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * The number of indexed Tasks.
+     */
+    private final AtomicLong documents = new AtomicLong();
+
+    /**
+     * Indicates whether the index was completely built.
+     */
+    private volatile boolean ready = false;
+
+    /**
+     * The executor building the index.
+     */
+    @Resource
+    private ManagedExecutorService executor;
+
+    /**
+     * Used to read the open Tasks.
+     */
+    @EJB
+    private TaskPersistence taskPersistence;
+
+    /**
+     * Used to read the finished Tasks in the database.
+     */
+    @EJB
+    private ArchivedTasksPersistence archivedTasksPersistence;
+
+    /**
+     * Used to read the finished Tasks in the cold archive.
+     */
+    @EJB
+    private ColdStorage coldStorage;
+
+    /**
+     * Starts building the index in the background, so the start of the
+     * application does not wait for it.
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            executor.submit(new Rebuild());
+        } catch (RejectedExecutionException ex) {
+            Logger.getLogger(SearchIndex.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Adds a new Task to the index as soon as it was committed.
+     *
+     * @param event the event describing the new Task
+     */
+    public void taskCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) TaskCreatedEvent event) {
+        add(event.getReceiverId(), event.getId(), event.getTitle(), event.getDescription(), event.getDue(), null);
+    }
+
+    /**
+     * Marks Tasks as finished as soon as their archiving was committed.
+     *
+     * @param event the event naming the finished Tasks
+     */
+    public void tasksFinished(@Observes(during = TransactionPhase.AFTER_SUCCESS) TasksFinishedEvent event) {
+        ReceiverIndex index = getIndex(event.getReceiverId());
+        boolean building = !ready;
+        for (Long id : event.getIds()) {
+            index.finish(id, event.getFinished(), building);
+        }
+    }
+
+    /**
+     * Adds the Tasks created or finished since yesterday that the index does
+     * not know yet, in particular those changed on other nodes of a cluster.
+     * Only the ids are read for all of them; the full rows only for the
+     * missing ones.
+     */
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public void catchUp() {
+        if (!ready) {
+            return;
+        }
+        Calendar yesterday = Calendar.getInstance();
+        yesterday.add(Calendar.DAY_OF_MONTH, -1);
+        List<Long> missing = new ArrayList<>();
+        for (Object[] row : taskPersistence.getRecentTasks(yesterday.getTime())) {
+            if (getIndex((Long) row[1]).get((Long) row[0]) == null) {
+                missing.add((Long) row[0]);
+            }
+        }
+        for (int start = 0; start < missing.size(); start += CHUNK) {
+            List<Long> chunk = missing.subList(start, Math.min(start + CHUNK, missing.size()));
+            for (Object[] row : taskPersistence.getIndexedTasks(chunk)) {
+                add((Long) row[1], (Long) row[0], (String) row[2], (String) row[3], (Date) row[4], null);
+            }
+        }
+        missing.clear();
+        for (Object[] row : archivedTasksPersistence.getRecentlyFinishedTasks(yesterday.getTime())) {
+            ReceiverIndex index = getIndex((Long) row[1]);
+            TaskSummary summary = index.get((Long) row[0]);
+            if (summary == null) {
+                missing.add((Long) row[0]);
+            } else if (summary.getFinished() == null) {
+                index.finish((Long) row[0], (Date) row[2], false);
+            }
+        }
+        for (int start = 0; start < missing.size(); start += CHUNK) {
+            List<Long> chunk = missing.subList(start, Math.min(start + CHUNK, missing.size()));
+            for (Object[] row : archivedTasksPersistence.getIndexedTasks(chunk)) {
+                add((Long) row[1], (Long) row[0], (String) row[2], (String) row[3], (Date) row[4], (Date) row[5]);
+            }
+        }
+    }
+
+    /**
+     * Gives the Tasks of a user containing all words of the query, the newest
+     * first. The last word also matches longer words starting with it, so
+     * results already appear while the user is typing.
+     *
+     * @param receiverId the id of the user that was assigned the Tasks
+     * @param query the words to search for
+     * @param max the maximum number of results
+     * @return a List containing the summaries of the found Tasks; finished
+     * Tasks have a finish date
+     */
+    public List<TaskSummary> search(long receiverId, String query, int max) {
+        List<String> terms = new ArrayList<>(Tokenizer.terms(query));
+        ReceiverIndex index = indexes.get(receiverId);
+        if (terms.isEmpty() || index == null) {
+            return Collections.emptyList();
+        }
+        return index.search(terms, max);
+    }
+
+    /**
+     * Gets the number of indexed Tasks.
+     *
+     * @return the number of indexed Tasks
+     */
+    public long getDocuments() {
+        return documents.get();
+    }
+
+    /**
+     * Checks whether the index was completely built. Until then searches may
+     * miss older Tasks.
+     *
+     * @return true if the index is complete; false if it is still built
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Adds a Task to the index of its receiver.
+     *
+     * @param receiverId the id of the user that was assigned the Task
+     * @param id the id of the Task
+     * @param title the title of the Task
+     * @param description the description of the Task; null to index the
+     * title only
+     * @param due the deadline of the Task
+     * @param finished the date the Task was finished; null if it is open
+     */
+    private void add(long receiverId, long id, String title, String description, Date due, Date finished) {
+        if (getIndex(receiverId).add(id, Tokenizer.terms(title, description),
+                new TaskSummary(id, title, due, finished))) {
+            documents.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gives the index of a user, creating it if necessary.
+     *
+     * @param receiverId the id of the user
+     * @return the index of the user
+     */
+    private ReceiverIndex getIndex(long receiverId) {
+        ReceiverIndex index = indexes.get(receiverId);
+        if (index == null) {
+            ReceiverIndex created = new ReceiverIndex();
+            index = indexes.putIfAbsent(receiverId, created);
+            if (index == null) {
+                index = created;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Builds the index from the open Tasks, the finished Tasks in the database
+     * and the finished Tasks in the cold archive, in this order. Every table is
+     * read in chunks ordered by id, so no long running query or transaction is
+     * needed. The Tasks in the cold archive are indexed by their titles only.
+     * Tasks created or finished meanwhile are added by the events and the
+     * catch-up; adding a Task twice does no harm and a finished Task is never
+     * turned back into an open one.
+     */
+    private class Rebuild implements Runnable {
+
+        /**
+         * Reads all Tasks and adds them to the index.
+         */
+        @Override
+        public void run() {
+            try {
+                long afterId = Long.MIN_VALUE;
+                List<Object[]> rows;
+                do {
+                    rows = taskPersistence.getIndexedTasks(afterId, CHUNK);
+                    for (Object[] row : rows) {
+                        afterId = (Long) row[0];
+                        add((Long) row[1], afterId, (String) row[2], (String) row[3], (Date) row[4], null);
+                    }
+                } while (rows.size() == CHUNK);
+                afterId = Long.MIN_VALUE;
+                do {
+                    rows = archivedTasksPersistence.getIndexedTasks(afterId, CHUNK);
+                    for (Object[] row : rows) {
+                        afterId = (Long) row[0];
+                        add((Long) row[1], afterId, (String) row[2], (String) row[3], (Date) row[4], (Date) row[5]);
+                    }
+                } while (rows.size() == CHUNK);
+                coldStorage.visit(new ColdStorage.Visitor() {
+                    @Override
+                    public boolean visit(ArchivedTask task) {
+                        add(task.getReceiverId(), task.getId(), task.getTitle(), null, task.getDue(),
+                                task.getFinished());
+                        return true;
+                    }
+                });
+                ready = true;
+                for (ReceiverIndex index : indexes.values()) {
+                    index.forgetFinishedEarly();
+                }
+                Logger.getLogger(SearchIndex.class.getName()).log(Level.INFO,
+                        "The search index contains {0} Tasks", documents.get());
+            } catch (RuntimeException ex) {
+                Logger.getLogger(SearchIndex.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * The index of a single user: the postings of every term and the
+     * summaries of the indexed Tasks. The terms are sorted, so the words
+     * starting with a prefix are next to each other.
+     */
+    private static class ReceiverIndex {
+
+        /**
+         * The ids of the Tasks containing a term, by the term.
+         */
+        private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+        /**
+         * The summaries of the indexed Tasks by their ids.
+         */
+        private final Map<Long, TaskSummary> summaries = new HashMap<>();
+
+        /**
+         * The finish dates of Tasks that were finished before they were
+         * added, which can only happen while the index is built.
+         */
+        private final Map<Long, Date> finishedEarly = new HashMap<>();
+
+        /**
+         * Adds a Task. An open Task does not replace a finished one.
+         *
+         * @param id the id of the Task
+         * @param words the terms of the title and the description
+         * @param summary the summary of the Task
+         * @return true if the Task was not indexed before; false otherwise
+         */
+        synchronized boolean add(long id, Set<String> words, TaskSummary summary) {
+            if (summary.getFinished() == null) {
+                Date finished = finishedEarly.remove(id);
+                if (finished != null) {
+                    summary = new TaskSummary(id, summary.getTitle(), summary.getDue(), finished);
+                }
+            }
+            TaskSummary old = summaries.get(id);
+            if (old == null || (old.getFinished() == null && summary.getFinished() != null)) {
+                summaries.put(id, summary);
+            }
+            if (old != null) {
+                return false;
+            }
+            for (String word : words) {
+                Postings postings = terms.get(word);
+                if (postings == null) {
+                    postings = new Postings();
+                    terms.put(word, postings);
+                }
+                postings.add(id);
+            }
+            return true;
+        }
+
+        /**
+         * Gives the summary of an indexed Task.
+         *
+         * @param id the id of the Task
+         * @return the summary; null if the Task is not indexed
+         */
+        synchronized TaskSummary get(long id) {
+            return summaries.get(id);
+        }
+
+        /**
+         * Marks a Task as finished.
+         *
+         * @param id the id of the Task
+         * @param finished the date the Task was finished
+         * @param building true if the index is still built and the Task may
+         * be added later
+         */
+        synchronized void finish(long id, Date finished, boolean building) {
+            TaskSummary old = summaries.get(id);
+            if (old == null) {
+                if (building) {
+                    finishedEarly.put(id, finished);
+                }
+            } else if (old.getFinished() == null) {
+                summaries.put(id, new TaskSummary(id, old.getTitle(), old.getDue(), finished));
+            }
+        }
+
+        /**
+         * Drops the remembered finish dates once the index is built, because
+         * the Tasks they belong to will not be added anymore.
+         */
+        synchronized void forgetFinishedEarly() {
+            finishedEarly.clear();
+        }
+
+        /**
+         * Gives the Tasks containing all terms, the last one as a prefix.
+         * The candidates are taken from the shortest postings and checked
+         * against the others.
+         *
+         * @param words the terms of the query
+         * @param max the maximum number of results
+         * @return a List containing the summaries, the newest Task first
+         */
+        synchronized List<TaskSummary> search(List<String> words, int max) {
+            List<Postings> required = new ArrayList<>();
+            for (String word : words.subList(0, words.size() - 1)) {
+                Postings postings = terms.get(word);
+                if (postings == null) {
+                    return Collections.emptyList();
+                }
+                required.add(postings);
+            }
+            String prefix = words.get(words.size() - 1);
+            SortedMap<String, Postings> completions = terms.subMap(prefix, prefix + Character.MAX_VALUE);
+            if (completions.size() == 1) {
+                required.add(completions.values().iterator().next());
+                completions = new TreeMap<>();
+            } else if (completions.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<TaskSummary> results = new ArrayList<>();
+            if (required.isEmpty()) {
+                Set<Long> ids = new HashSet<>();
+                for (Postings postings : completions.values()) {
+                    for (int p = 0; p < postings.size(); p++) {
+                        ids.add(postings.get(p));
+                    }
+                }
+                List<Long> sorted = new ArrayList<>(ids);
+                Collections.sort(sorted, Collections.reverseOrder());
+                for (Long id : sorted.subList(0, Math.min(max, sorted.size()))) {
+                    results.add(summaries.get(id));
+                }
+                return results;
+            }
+            Postings shortest = required.get(0);
+            for (Postings postings : required) {
+                if (postings.size() < shortest.size()) {
+                    shortest = postings;
+                }
+            }
+            for (int p = shortest.size() - 1; p >= 0 && results.size() < max; p--) {
+                long id = shortest.get(p);
+                if (containsAll(required, id) && containsAny(completions.values(), id)) {
+                    results.add(summaries.get(id));
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Checks whether all postings contain an id.
+         *
+         * @param postings the postings
+         * @param id the id
+         * @return true if every postings contains the id
+         */
+        private static boolean containsAll(List<Postings> postings, long id) {
+            for (Postings candidate : postings) {
+                if (!candidate.contains(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Checks whether one of the postings contains an id. No postings means
+         * no restriction.
+         *
+         * @param postings the postings
+         * @param id the id
+         * @return true if there are no postings or one of them contains the id
+         */
+        private static boolean containsAny(Iterable<Postings> postings, long id) {
+            boolean empty = true;
+            for (Postings candidate : postings) {
+                empty = false;
+                if (candidate.contains(id)) {
+                    return true;
+                }
+            }
+            return empty;
+        }
+    }
+}
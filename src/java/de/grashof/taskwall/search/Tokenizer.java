@@ -0,0 +1,58 @@
+package de.grashof.taskwall.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits texts into the terms of the search index. A term is a lower case
+ * sequence of letters and digits; single characters are ignored and very long
+ * words are cut.
+ *
+ * @author TaskWall-Team
+ */
+public final class Tokenizer {
+
+    /**
+     * The characters separating the terms.
+     */
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * The shortest term that is indexed.
+     */
+    private static final int MIN_LENGTH = 2;
+
+    /**
+     * The length a term is cut to.
+     */
+    private static final int MAX_LENGTH = 40;
+
+    /**
+     * Not instantiable; only provides static methods.
+     */
+    private Tokenizer() {
+    }
+
+    /**
+     * Gives the distinct terms of the passed texts in the order they appear.
+     *
+     * @param texts the texts; null values are ignored
+     * @return the distinct terms
+     */
+    public static Set<String> terms(String... texts) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (String word : SEPARATOR.split(text.toLowerCase(Locale.GERMAN))) {
+                if (word.length() >= MIN_LENGTH) {
+                    terms.add(word.length() > MAX_LENGTH ? word.substring(0, MAX_LENGTH) : word);
+                }
+            }
+        }
+        return terms;
+    }
+}
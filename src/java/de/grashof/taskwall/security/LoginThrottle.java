@@ -0,0 +1,186 @@
+package de.grashof.taskwall.security;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+
+/**
+ * Limits how often a login may be attempted for a username and from a client
+ * address, so guessing passwords cannot be turned into load on the database.
+ * Every username and every address has a token bucket: a number of attempts
+ * may be made at once, afterwards one further attempt becomes possible after
+ * every refill interval. An attempt is only allowed if both buckets have a
+ * token left.
+ * <p>
+ * A bucket is stored as a single number, the point in time at which it will
+ * be full again, and updated with compare-and-set, so concurrent attempts
+ * never wait for each other. Buckets that are full are removed regularly.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class LoginThrottle {
+
+    /**
+     * The number of attempts that may be made at once for a username.
+     */
+    private static final int USERNAME_BURST = 5;
+
+    /**
+     * The time in milliseconds after which one further attempt may be made
+     * for a username.
+     */
+    private static final long USERNAME_REFILL = 30 * 1000L;
+
+    /**
+     * The number of attempts that may be made at once from a client address.
+     * It is higher than for a username because several users may share an
+     * address.
+     */
+    private static final int ADDRESS_BURST = 20;
+
+    /**
+     * The time in milliseconds after which one further attempt may be made
+     * from a client address.
+     */
+    private static final long ADDRESS_REFILL = 3 * 1000L;
+
+    /**
+     * The buckets of the usernames.
+     */
+    private final ConcurrentMap<String, AtomicLong> usernames = new ConcurrentHashMap<>();
+
+    /**
+     * The buckets of the client addresses.
+     */
+    private final ConcurrentMap<String, AtomicLong> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * The number of allowed attempts.
+     */
+    private final AtomicLong allowed = new AtomicLong();
+
+    /**
+     * The number of rejected attempts.
+     */
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * Takes a token from the buckets of the username and the client address.
+     * If the address has no token left the username bucket is not touched,
+     * so an attacker cannot lock out a user from another address once his
+     * own address is throttled.
+     *
+     * @param username the username the login is attempted for
+     * @param address the address of the client
+     * @return true if the attempt may be made; false if it is rejected
+     */
+    public boolean tryAcquire(String username, String address) {
+        long now = System.currentTimeMillis();
+        if (address != null && !take(addresses, address, now, ADDRESS_BURST, ADDRESS_REFILL)) {
+            throttled.incrementAndGet();
+            return false;
+        }
+        if (username != null && !take(usernames, username, now, USERNAME_BURST, USERNAME_REFILL)) {
+            throttled.incrementAndGet();
+            return false;
+        }
+        allowed.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes the buckets that are full again, so the maps only contain
+     * recently active usernames and addresses.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void evict() {
+        long now = System.currentTimeMillis();
+        evict(usernames, now);
+        evict(addresses, now);
+    }
+
+    /**
+     * Gets the number of allowed login attempts.
+     *
+     * @return the number of allowed attempts
+     */
+    public long getAllowed() {
+        return allowed.get();
+    }
+
+    /**
+     * Gets the number of login attempts rejected without checking them.
+     *
+     * @return the number of rejected attempts
+     */
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    /**
+     * Gets the number of usernames and addresses that currently have a
+     * bucket.
+     *
+     * @return the number of buckets
+     */
+    public int getBuckets() {
+        return usernames.size() + addresses.size();
+    }
+
+    /**
+     * Takes a token from a bucket. The bucket holds the point in time it is
+     * full again; taking a token moves this point one refill interval into
+     * the future, which is only allowed as long as it stays within the burst.
+     *
+     * @param buckets the buckets
+     * @param key the key of the bucket
+     * @param now the current time
+     * @param burst the number of tokens of a full bucket
+     * @param refill the time in milliseconds after which a token is refilled
+     * @return true if a token was taken; false if the bucket is empty
+     */
+    private static boolean take(ConcurrentMap<String, AtomicLong> buckets, String key, long now,
+            int burst, long refill) {
+        AtomicLong full = buckets.get(key);
+        if (full == null) {
+            AtomicLong created = new AtomicLong(now);
+            full = buckets.putIfAbsent(key, created);
+            if (full == null) {
+                full = created;
+            }
+        }
+        while (true) {
+            long current = full.get();
+            long next = Math.max(current, now) + refill;
+            if (next - now > burst * refill) {
+                return false;
+            }
+            if (full.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the buckets that are full at the passed time.
+     *
+     * @param buckets the buckets
+     * @param now the current time
+     */
+    private static void evict(ConcurrentMap<String, AtomicLong> buckets, long now) {
+        Iterator<AtomicLong> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() <= now) {
+                iterator.remove();
+            }
+        }
+    }
+}
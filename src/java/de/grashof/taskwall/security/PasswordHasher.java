@@ -0,0 +1,412 @@
+package de.grashof.taskwall.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Hashes and verifies passwords with PBKDF2 and a random salt per password.
+ * The stored form is "pbkdf2$iterations$salt$hash", so the cost can be raised
+ * later: passwords hashed with fewer iterations, and passwords still stored in
+ * plain text by older versions, are upgraded on the next successful login.
+ * <p>
+ * Hashing is deliberately slow, so it runs on a pool of its own with one
+ * thread per processor and a short queue. A hash that does not fit into the
+ * queue, or is not done within a short time, is given up as busy, so a burst
+ * of logins cannot hold the request threads for longer than that. Logins of
+ * unknown users are checked against a dummy hash, so the response time does
+ * not tell whether a username exists.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PasswordHasher {
+
+    /**
+     * The results of checking a password.
+     */
+    public enum Check {
+
+        /**
+         * The password is correct.
+         */
+        MATCH,
+        /**
+         * The password is wrong.
+         */
+        MISMATCH,
+        /**
+         * The password could not be checked because too many passwords are
+         * checked at the moment.
+         */
+        BUSY
+    }
+
+    /**
+     * The prefix of a hashed password.
+     */
+    private static final String PREFIX = "pbkdf2$";
+
+    /**
+     * The PBKDF2 variant available on Java 7.
+     */
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+
+    /**
+     * The length of the salt in bytes.
+     */
+    private static final int SALT_LENGTH = 16;
+
+    /**
+     * The length of new hashes in bits. It is the output length of HmacSHA1,
+     * so PBKDF2 computes a single block; longer hashes stored by older
+     * versions are still checked and replaced on the next login.
+     */
+    private static final int HASH_LENGTH = 160;
+
+    /**
+     * The smallest number of iterations that is used, even on slow machines.
+     */
+    private static final int MIN_ITERATIONS = 10000;
+
+    /**
+     * The time in milliseconds a caller waits for a hash.
+     */
+    private static final long WAIT = 2000;
+
+    /**
+     * The number of threads computing hashes, which is also the number of
+     * hashes that may wait for a thread.
+     */
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates the threads computing the hashes.
+     */
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    /**
+     * The threads computing the hashes.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Creates the salts.
+     */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The number of computed hashes.
+     */
+    private final AtomicLong hashes = new AtomicLong();
+
+    /**
+     * The time in nanoseconds spent computing hashes.
+     */
+    private final AtomicLong hashTime = new AtomicLong();
+
+    /**
+     * The number of hashes given up because the pool was busy.
+     */
+    private final AtomicLong busy = new AtomicLong();
+
+    /**
+     * The number of iterations for new hashes. If it is not configured, it is
+     * calibrated at startup so that one hash takes about the target time.
+     */
+    @Resource(name = "security/passwordIterations")
+    private Integer iterations = 0;
+
+    /**
+     * The time in milliseconds one hash should take when the number of
+     * iterations is calibrated.
+     */
+    @Resource(name = "security/passwordMillis")
+    private Integer targetMillis = 250;
+
+    /**
+     * The stored form of a random password, checked instead of the password
+     * of a user that does not exist.
+     */
+    private String dummy;
+
+    /**
+     * Creates the threads computing the hashes, calibrates the number of
+     * iterations if it is not configured and creates the dummy hash.
+     */
+    @PostConstruct
+    public void calibrate() {
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(THREADS), threadFactory);
+        if (iterations == null || iterations <= 0) {
+            iterations = benchmark(targetMillis == null ? 250 : targetMillis);
+            Logger.getLogger(PasswordHasher.class.getName()).log(Level.INFO,
+                    "Passwords are hashed with {0} iterations", iterations);
+        }
+        byte[] password = new byte[SALT_LENGTH];
+        random.nextBytes(password);
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        dummy = format(iterations, salt, pbkdf2(DatatypeConverter.printBase64Binary(password), salt, iterations,
+                HASH_LENGTH));
+    }
+
+    /**
+     * Stops the threads computing the hashes.
+     */
+    @PreDestroy
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Finds the largest number of iterations of the form 1000 * 2^n for which
+     * one hash takes at most the passed time on this machine.
+     *
+     * @param millis the target time in milliseconds for one hash
+     * @return the number of iterations; at least the minimum
+     */
+    public static int benchmark(long millis) {
+        byte[] salt = new byte[SALT_LENGTH];
+        int result = MIN_ITERATIONS;
+        pbkdf2("warm up", salt, 1000, HASH_LENGTH);
+        for (int candidate = 1000; candidate > 0 && candidate <= (1 << 24); candidate *= 2) {
+            long start = System.nanoTime();
+            pbkdf2("benchmark", salt, candidate, HASH_LENGTH);
+            long took = (System.nanoTime() - start) / 1000000;
+            if (took > millis) {
+                break;
+            }
+            result = Math.max(result, candidate);
+        }
+        return result;
+    }
+
+    /**
+     * Hashes a new password.
+     *
+     * @param password the password in plain text
+     * @return the stored form of the password; null if it could not be hashed
+     * in time
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        int rounds = iterations;
+        byte[] hash = compute(password, salt, rounds, HASH_LENGTH);
+        return hash == null ? null : format(rounds, salt, hash);
+    }
+
+    /**
+     * Checks a password against its stored form.
+     *
+     * @param password the password in plain text
+     * @param stored the stored form of the password
+     * @return whether the password is correct, or BUSY if it could not be
+     * checked in time
+     */
+    public Check check(String password, String stored) {
+        if (password == null || stored == null) {
+            return Check.MISMATCH;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8)) ? Check.MATCH : Check.MISMATCH;
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return Check.MISMATCH;
+        }
+        int rounds;
+        byte[] salt;
+        byte[] expected;
+        try {
+            rounds = Integer.parseInt(parts[1]);
+            salt = DatatypeConverter.parseBase64Binary(parts[2]);
+            expected = DatatypeConverter.parseBase64Binary(parts[3]);
+        } catch (IllegalArgumentException ex) {
+            return Check.MISMATCH;
+        }
+        if (expected.length == 0) {
+            return Check.MISMATCH;
+        }
+        byte[] actual = compute(password, salt, rounds, expected.length * 8);
+        if (actual == null) {
+            return Check.BUSY;
+        }
+        return MessageDigest.isEqual(actual, expected) ? Check.MATCH : Check.MISMATCH;
+    }
+
+    /**
+     * Checks a password entered for a user that does not exist. It takes as
+     * long as checking the password of an existing user, but never matches.
+     *
+     * @param password the password in plain text
+     * @return MISMATCH, or BUSY if it could not be checked in time
+     */
+    public Check checkUnknown(String password) {
+        Check check = check(password == null ? "" : password, dummy);
+        return check == Check.BUSY ? Check.BUSY : Check.MISMATCH;
+    }
+
+    /**
+     * Checks whether a stored password should be hashed again, because it is
+     * still in plain text, was hashed with fewer iterations than now used or
+     * has a hash of another length.
+     *
+     * @param stored the stored form of the password
+     * @return true if the password should be hashed again
+     */
+    public boolean needsUpgrade(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations
+                    || DatatypeConverter.parseBase64Binary(parts[3]).length * 8 != HASH_LENGTH;
+        } catch (IllegalArgumentException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Gets the number of iterations used for new hashes.
+     *
+     * @return the number of iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Gets the average time one hash took.
+     *
+     * @return the average time in milliseconds
+     */
+    public double getAverageMillis() {
+        long count = hashes.get();
+        return count == 0 ? 0 : hashTime.get() / 1000000.0 / count;
+    }
+
+    /**
+     * Gets the number of hashes given up because too many passwords were
+     * hashed at the same time.
+     *
+     * @return the number of given up hashes
+     */
+    public long getBusy() {
+        return busy.get();
+    }
+
+    /**
+     * Gets the number of hashes currently computed.
+     *
+     * @return the number of running hashes
+     */
+    public int getInFlight() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Computes a hash on the pool and measures the time it took. Gives up if
+     * the queue of the pool is full or the hash is not done in time.
+     *
+     * @param password the password in plain text
+     * @param salt the salt
+     * @param rounds the number of iterations
+     * @param length the length of the hash in bits
+     * @return the hash; null if it could not be computed in time
+     */
+    private byte[] compute(final String password, final byte[] salt, final int rounds, final int length) {
+        Future<byte[]> result;
+        try {
+            result = executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    long start = System.nanoTime();
+                    byte[] hash = pbkdf2(password, salt, rounds, length);
+                    hashes.incrementAndGet();
+                    hashTime.addAndGet(System.nanoTime() - start);
+                    return hash;
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            busy.incrementAndGet();
+            return null;
+        }
+        try {
+            return result.get(WAIT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            result.cancel(false);
+            busy.incrementAndGet();
+            return null;
+        } catch (InterruptedException ex) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Gives the stored form of a hashed password.
+     *
+     * @param rounds the number of iterations
+     * @param salt the salt
+     * @param hash the hash
+     * @return the stored form
+     */
+    private static String format(int rounds, byte[] salt, byte[] hash) {
+        return PREFIX + rounds + "$" + DatatypeConverter.printBase64Binary(salt)
+                + "$" + DatatypeConverter.printBase64Binary(hash);
+    }
+
+    /**
+     * Computes the PBKDF2 hash of a password.
+     *
+     * @param password the password in plain text
+     * @param salt the salt
+     * @param rounds the number of iterations
+     * @param length the length of the hash in bits
+     * @return the hash
+     */
+    private static byte[] pbkdf2(String password, byte[] salt, int rounds, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, rounds, length);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
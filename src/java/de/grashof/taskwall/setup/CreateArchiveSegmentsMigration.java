@@ -0,0 +1,38 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Creates the table registering the segment files of the cold archive and an
+ * index for the tiering job, which looks for ArchivedTasks by their finish
+ * date.
+ *
+ * @author TaskWall-Team
+ */
+public class CreateArchiveSegmentsMigration extends Migration {
+
+    /**
+     * Constructor setting the version and the description.
+     */
+    public CreateArchiveSegmentsMigration() {
+        super(4, "Create the registry of cold archive segments");
+    }
+
+    /**
+     * Creates the table and the index if they are missing.
+     *
+     * @param connection the connection to the database
+     * @throws SQLException if the table or index could not be created
+     */
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        if (!tableExists(connection, "ARCHIVESEGMENT")) {
+            execute(connection, "CREATE TABLE ARCHIVESEGMENT (ID BIGINT NOT NULL, "
+                    + "NAME VARCHAR(255), ENTRIES INTEGER, CREATED TIMESTAMP, PRIMARY KEY (ID))");
+        }
+        if (!indexExists(connection, "ARCHIVEDTASK", "ARCHIVEDTASK_FINISHED")) {
+            execute(connection, "CREATE INDEX ARCHIVEDTASK_FINISHED ON ARCHIVEDTASK (FINISHED, ID)");
+        }
+    }
+}
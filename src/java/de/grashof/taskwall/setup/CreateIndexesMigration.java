@@ -0,0 +1,77 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Creates the indexes and constraints the queries of the application rely
+ * on: usernames are unique, and every lookup by user, by email or of due
+ * notifications is answered by an index instead of a table scan.
+ *
+ * @author TaskWall-Team
+ */
+public class CreateIndexesMigration extends Migration {
+
+    /**
+     * Constructor setting the version and the description.
+     */
+    public CreateIndexesMigration() {
+        super(3, "Create indexes and constraints");
+    }
+
+    /**
+     * Creates the missing indexes and constraints.
+     *
+     * @param connection the connection to the database
+     * @throws SQLException if an index or constraint could not be created
+     */
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        setNotNull(connection, "PROFILE", "USERNAME");
+        setNotNull(connection, "TASK", "RECEIVERID");
+        setNotNull(connection, "TASK", "CREATORID");
+        setNotNull(connection, "ARCHIVEDTASK", "RECEIVERID");
+        setNotNull(connection, "ARCHIVEDTASK", "CREATORID");
+        setNotNull(connection, "OUTBOXMAIL", "RECEIVERID");
+
+        createIndex(connection, "PROFILE_USERNAME", "UNIQUE INDEX", "PROFILE", "USERNAME");
+        createIndex(connection, "PROFILE_EMAIL", "INDEX", "PROFILE", "EMAIL");
+        createIndex(connection, "TASK_RECEIVER_DUE", "INDEX", "TASK", "RECEIVERID, DUE, ID");
+        createIndex(connection, "ARCHIVEDTASK_RECEIVER_FINISHED", "INDEX", "ARCHIVEDTASK",
+                "RECEIVERID, FINISHED DESC, ID DESC");
+        createIndex(connection, "OUTBOXMAIL_DUE", "INDEX", "OUTBOXMAIL", "STATUS, NEXTATTEMPT");
+        createIndex(connection, "OUTBOXMAIL_RECEIVER_CLAIM", "INDEX", "OUTBOXMAIL", "RECEIVERID, CLAIM");
+    }
+
+    /**
+     * Forbids null values in a column if they are still allowed.
+     *
+     * @param connection the connection to the database
+     * @param table the name of the table
+     * @param column the name of the column
+     * @throws SQLException if the constraint could not be added
+     */
+    private static void setNotNull(Connection connection, String table, String column)
+            throws SQLException {
+        if (isNullable(connection, table, column)) {
+            execute(connection, "ALTER TABLE " + table + " ALTER COLUMN " + column + " NOT NULL");
+        }
+    }
+
+    /**
+     * Creates an index if it does not exist yet.
+     *
+     * @param connection the connection to the database
+     * @param name the name of the index
+     * @param kind either "INDEX" or "UNIQUE INDEX"
+     * @param table the name of the table
+     * @param columns the indexed columns
+     * @throws SQLException if the index could not be created
+     */
+    private static void createIndex(Connection connection, String name, String kind, String table,
+            String columns) throws SQLException {
+        if (!indexExists(connection, table, name)) {
+            execute(connection, "CREATE " + kind + " " + name + " ON " + table + " (" + columns + ")");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Creates the table of the leases that let only one node of the cluster run a
+ * job, with a row for every such job.
+ *
+ * @author TaskWall-Team
+ */
+public class CreateLeasesMigration extends Migration {
+
+    /**
+     * The names of the jobs that need a lease.
+     */
+    private static final String[] JOBS = {"ARCHIVETIERING"};
+
+    /**
+     * Constructor setting the version and the description.
+     */
+    public CreateLeasesMigration() {
+        super(7, "Create the leases of cluster-wide jobs");
+    }
+
+    /**
+     * Creates the table and the rows that are missing.
+     *
+     * @param connection the connection to the database
+     * @throws SQLException if the table or a row could not be created
+     */
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        if (!tableExists(connection, "LEASE")) {
+            execute(connection, "CREATE TABLE LEASE (NAME VARCHAR(64) NOT NULL, "
+                    + "HOLDER VARCHAR(64), EXPIRES TIMESTAMP, PRIMARY KEY (NAME))");
+        }
+        for (String job : JOBS) {
+            try (PreparedStatement select = connection.prepareStatement("SELECT COUNT(*) FROM LEASE WHERE NAME = ?")) {
+                select.setString(1, job);
+                try (ResultSet result = select.executeQuery()) {
+                    if (result.next() && result.getLong(1) > 0) {
+                        continue;
+                    }
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO LEASE (NAME) VALUES (?)")) {
+                insert.setString(1, job);
+                insert.executeUpdate();
+            }
+        }
+    }
+}
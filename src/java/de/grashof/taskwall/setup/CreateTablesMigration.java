@@ -0,0 +1,62 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The baseline of the schema. Creates the tables the application used before
+ * schema migrations were introduced, unless they were already created by the
+ * schema generation of the persistence provider.
+ *
+ * @author TaskWall-Team
+ */
+public class CreateTablesMigration extends Migration {
+
+    /**
+     * Constructor setting the version and the description.
+     */
+    public CreateTablesMigration() {
+        super(1, "Create the baseline tables");
+    }
+
+    /**
+     * Creates every missing table and the row of the id generator.
+     *
+     * @param connection the connection to the database
+     * @throws SQLException if a table could not be created
+     */
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        if (!tableExists(connection, "SEQUENCE")) {
+            execute(connection, "CREATE TABLE SEQUENCE (SEQ_NAME VARCHAR(50) NOT NULL, "
+                    + "SEQ_COUNT DECIMAL(15), PRIMARY KEY (SEQ_NAME))");
+            execute(connection, "INSERT INTO SEQUENCE (SEQ_NAME, SEQ_COUNT) VALUES ('SEQ_GEN', 0)");
+        }
+        if (!tableExists(connection, "PROFILE")) {
+            execute(connection, "CREATE TABLE PROFILE (ID BIGINT NOT NULL, "
+                    + "ADMINISTRATOR SMALLINT DEFAULT 0, CHANGEPASSWORD SMALLINT DEFAULT 0, "
+                    + "EMAIL VARCHAR(255), NOTIFICATIONSENABLED SMALLINT DEFAULT 0, "
+                    + "PASSWORD VARCHAR(255), USERNAME VARCHAR(255), PRIMARY KEY (ID))");
+        }
+        if (!tableExists(connection, "TASK")) {
+            execute(connection, "CREATE TABLE TASK (ID BIGINT NOT NULL, CREATED DATE, "
+                    + "CREATORID BIGINT, DESCRIPTION VARCHAR(255), DUE DATE, RECEIVERID BIGINT, "
+                    + "TITLE VARCHAR(255), PRIMARY KEY (ID))");
+        }
+        if (!tableExists(connection, "ARCHIVEDTASK")) {
+            execute(connection, "CREATE TABLE ARCHIVEDTASK (ID BIGINT NOT NULL, CREATED DATE, "
+                    + "CREATORID BIGINT, DESCRIPTION VARCHAR(255), DUE DATE, FINISHED DATE, "
+                    + "RECEIVERID BIGINT, TITLE VARCHAR(255), PRIMARY KEY (ID))");
+        }
+        if (!tableExists(connection, "MAILPROPERTIES")) {
+            execute(connection, "CREATE TABLE MAILPROPERTIES (ID BIGINT NOT NULL, "
+                    + "PROPERTIES BLOB(10000), PRIMARY KEY (ID))");
+        }
+        if (!tableExists(connection, "OUTBOXMAIL")) {
+            execute(connection, "CREATE TABLE OUTBOXMAIL (ID BIGINT NOT NULL, ATTEMPTS INTEGER, "
+                    + "CLAIM VARCHAR(255), CREATORID BIGINT, DUE DATE, LASTERROR VARCHAR(1000), "
+                    + "NEXTATTEMPT TIMESTAMP, RECEIVERID BIGINT, STATUS VARCHAR(255), "
+                    + "TITLE VARCHAR(255), PRIMARY KEY (ID))");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Creates the tables of the teams, their members and the team walls. The
+ * entries of a team wall are read by team and deadline and removed by
+ * receiver and Task, so both have an index.
+ *
+ * @author TaskWall-Team
+ */
+public class CreateTeamsMigration extends Migration {
+
+    /**
+     * Constructor setting the version and the description.
+     */
+    public CreateTeamsMigration() {
+        super(5, "Create teams and team walls");
+    }
+
+    /**
+     * Creates the tables and indexes if they are missing.
+     *
+     * @param connection the connection to the database
+     * @throws SQLException if a table or index could not be created
+     */
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        if (!tableExists(connection, "TEAM")) {
+            execute(connection, "CREATE TABLE TEAM (ID BIGINT NOT NULL, NAME VARCHAR(255) NOT NULL, "
+                    + "PRIMARY KEY (ID))");
+            execute(connection, "CREATE UNIQUE INDEX TEAM_NAME ON TEAM (NAME)");
+        }
+        if (!tableExists(connection, "TEAMMEMBER")) {
+            execute(connection, "CREATE TABLE TEAMMEMBER (ID BIGINT NOT NULL, TEAMID BIGINT NOT NULL, "
+                    + "PROFILEID BIGINT NOT NULL, PRIMARY KEY (ID))");
+            execute(connection, "CREATE UNIQUE INDEX TEAMMEMBER_TEAM ON TEAMMEMBER (TEAMID, PROFILEID)");
+            execute(connection, "CREATE INDEX TEAMMEMBER_PROFILE ON TEAMMEMBER (PROFILEID, TEAMID)");
+        }
+        if (!tableExists(connection, "TEAMWALLENTRY")) {
+            execute(connection, "CREATE TABLE TEAMWALLENTRY (TEAMID BIGINT NOT NULL, TASKID BIGINT NOT NULL, "
+                    + "RECEIVERID BIGINT NOT NULL, TITLE VARCHAR(255), DUE DATE, "
+                    + "PRIMARY KEY (TEAMID, TASKID))");
+            execute(connection, "CREATE INDEX TEAMWALLENTRY_DUE ON TEAMWALLENTRY (TEAMID, DUE, TASKID)");
+            execute(connection, "CREATE INDEX TEAMWALLENTRY_RECEIVER ON TEAMWALLENTRY (RECEIVERID, TASKID)");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * One step in the evolution of the database schema. Every Migration has a
+ * unique version and is applied exactly once, in the order of the versions.
+ * The helper methods allow a Migration to check the existing schema, so it
+ * also works on databases whose tables were created before migrations were
+ * introduced.
+ *
+ * @author TaskWall-Team
+ */
+public abstract class Migration {
+
+    /**
+     * The version of the schema after the Migration was applied.
+     */
+    private final int version;
+
+    /**
+     * A short description of the Migration.
+     */
+    private final String description;
+
+    /**
+     * Constructor setting the version and the description.
+     *
+     * @param version the version of the schema after the Migration
+     * @param description a short description of the Migration
+     */
+    protected Migration(int version, String description) {
+        this.version = version;
+        this.description = description;
+    }
+
+    /**
+     * Applies the Migration. The changes are committed by the caller together
+     * with the record of the applied version.
+     *
+     * @param connection the connection to the database
+     * @throws SQLException if the schema could not be changed
+     */
+    public abstract void migrate(Connection connection) throws SQLException;
+
+    /**
+     * Gets the version of the schema after the Migration was applied.
+     *
+     * @return the version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the description of the Migration.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Executes a DDL or DML statement.
+     *
+     * @param connection the connection to the database
+     * @param sql the statement
+     * @throws SQLException if the statement failed
+     */
+    protected static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * Checks whether a table exists in the schema of the connection.
+     *
+     * @param connection the connection to the database
+     * @param table the name of the table in upper case
+     * @return true if the table exists; false if not
+     * @throws SQLException if the metadata could not be read
+     */
+    protected static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (ResultSet tables = connection.getMetaData().getTables(null, connection.getSchema(), table,
+                new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    /**
+     * Checks whether a column exists.
+     *
+     * @param connection the connection to the database
+     * @param table the name of the table in upper case
+     * @param column the name of the column in upper case
+     * @return true if the column exists; false if not
+     * @throws SQLException if the metadata could not be read
+     */
+    protected static boolean columnExists(Connection connection, String table, String column)
+            throws SQLException {
+        return columnType(connection, table, column) != null;
+    }
+
+    /**
+     * Gives the SQL type name of a column.
+     *
+     * @param connection the connection to the database
+     * @param table the name of the table in upper case
+     * @param column the name of the column in upper case
+     * @return the type name, e.g. VARCHAR; null if the column does not exist
+     * @throws SQLException if the metadata could not be read
+     */
+    protected static String columnType(Connection connection, String table, String column)
+            throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(null, connection.getSchema(), table,
+                column)) {
+            return columns.next() ? columns.getString("TYPE_NAME") : null;
+        }
+    }
+
+    /**
+     * Checks whether a column may contain null values.
+     *
+     * @param connection the connection to the database
+     * @param table the name of the table in upper case
+     * @param column the name of the column in upper case
+     * @return true if the column is nullable; false if not
+     * @throws SQLException if the metadata could not be read
+     */
+    protected static boolean isNullable(Connection connection, String table, String column)
+            throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(null, connection.getSchema(), table,
+                column)) {
+            return columns.next() && columns.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
+        }
+    }
+
+    /**
+     * Checks whether an index exists on a table.
+     *
+     * @param connection the connection to the database
+     * @param table the name of the table in upper case
+     * @param index the name of the index in upper case
+     * @return true if the index exists; false if not
+     * @throws SQLException if the metadata could not be read
+     */
+    protected static boolean indexExists(Connection connection, String table, String index)
+            throws SQLException {
+        try (ResultSet indexes = connection.getMetaData().getIndexInfo(null, connection.getSchema(), table,
+                false, false)) {
+            while (indexes.next()) {
+                if (index.equals(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.EJBException;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.sql.DataSource;
+
+/**
+ * Brings the database schema up to date at startup of the application, before
+ * any other bean uses the database. Every Migration that was not applied yet
+ * runs in its own transaction together with the record of its version in the
+ * table SCHEMA_VERSION. If a Migration fails the deployment is aborted.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@Startup
+@TransactionManagement(TransactionManagementType.BEAN)
+public class SchemaMigrator {
+
+    /**
+     * All Migrations in the order of their versions. New Migrations are
+     * appended.
+     */
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new CreateTablesMigration(),
+            new UpdateColumnsMigration(),
+            new CreateIndexesMigration(),
+            new CreateArchiveSegmentsMigration(),
+            new CreateTeamsMigration(),
+            new SplitSequencesMigration(),
+            new CreateLeasesMigration());
+
+    /**
+     * The database of the application.
+     */
+    @Resource(lookup = "java:comp/DefaultDataSource")
+    private DataSource dataSource;
+
+    /**
+     * The version of the schema after the startup.
+     */
+    private int version = 0;
+
+    /**
+     * Applies all Migrations that were not applied yet.
+     */
+    @PostConstruct
+    public void migrate() {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                Set<Integer> applied = getAppliedVersions(connection);
+                for (Migration migration : MIGRATIONS) {
+                    if (!applied.contains(migration.getVersion())) {
+                        apply(connection, migration);
+                    }
+                    version = migration.getVersion();
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            Logger.getLogger(SchemaMigrator.class.getName()).log(Level.SEVERE, null, ex);
+            throw new EJBException("The database schema could not be migrated", ex);
+        }
+    }
+
+    /**
+     * Gets the version of the schema.
+     *
+     * @return the version of the latest applied Migration
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Applies a Migration and records its version in the same transaction.
+     *
+     * @param connection the connection to the database
+     * @param migration the Migration
+     * @throws SQLException if the Migration failed; its changes are rolled
+     * back
+     */
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        try {
+            migration.migrate(connection);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO SCHEMA_VERSION (VERSION, DESCRIPTION, APPLIED) VALUES (?, ?, ?)")) {
+                insert.setInt(1, migration.getVersion());
+                insert.setString(2, migration.getDescription());
+                insert.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                insert.executeUpdate();
+            }
+            connection.commit();
+            Logger.getLogger(SchemaMigrator.class.getName()).log(Level.INFO,
+                    "Applied schema migration {0}: {1}",
+                    new Object[]{migration.getVersion(), migration.getDescription()});
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gives the versions of the Migrations that were already applied. Creates
+     * the table SCHEMA_VERSION if it does not exist.
+     *
+     * @param connection the connection to the database
+     * @return the applied versions
+     * @throws SQLException if the versions could not be read
+     */
+    private static Set<Integer> getAppliedVersions(Connection connection) throws SQLException {
+        Set<Integer> applied = new HashSet<>();
+        if (!Migration.tableExists(connection, "SCHEMA_VERSION")) {
+            Migration.execute(connection, "CREATE TABLE SCHEMA_VERSION (VERSION INTEGER NOT NULL, "
+                    + "DESCRIPTION VARCHAR(255), APPLIED TIMESTAMP, PRIMARY KEY (VERSION))");
+            connection.commit();
+            return applied;
+        }
+        try (Statement statement = connection.createStatement();
+                ResultSet versions = statement.executeQuery("SELECT VERSION FROM SCHEMA_VERSION")) {
+            while (versions.next()) {
+                applied.add(versions.getInt(1));
+            }
+        }
+        return applied;
+    }
+}
@@ -6,6 +6,7 @@ import de.grashof.taskwall.entity.Profile;
 import java.util.Properties;
 
 import javax.annotation.PostConstruct;
+import javax.ejb.DependsOn;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.persistence.EntityManager;
@@ -13,13 +14,14 @@ import javax.persistence.PersistenceContext;
 
 /**
  * Creates the initial entities of Profile and MailProperties at Startup of the
- * application.
+ * application, after the SchemaMigrator brought the schema up to date.
  *
  * @author TaskWall-Team
  * @version 1.0
  */
 @Singleton
 @Startup
+@DependsOn("SchemaMigrator")
 public class SetupBean {
 
     /**
@@ -0,0 +1,82 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Gives every entity type its own row in the table SEQUENCE, used by the id
+ * generators in META-INF/orm.xml. Until now all entities shared the row
+ * SEQ_GEN, so every new row starts at its value; this keeps the new ids above
+ * all ids handed out before, including those of the ArchivedTasks in the cold
+ * archive. The highest id in the tables is taken into account as well, in
+ * case rows were added without the generator.
+ *
+ * @author TaskWall-Team
+ */
+public class SplitSequencesMigration extends Migration {
+
+    /**
+     * The names of the new rows and the tables whose ids they continue.
+     */
+    private static final String[][] SEQUENCES = {
+        {"TASK_ID", "TASK", "ARCHIVEDTASK"},
+        {"OUTBOXMAIL_ID", "OUTBOXMAIL"},
+        {"PROFILE_ID", "PROFILE"},
+        {"TEAM_ID", "TEAM"},
+        {"TEAMMEMBER_ID", "TEAMMEMBER"},
+        {"MAILPROPERTIES_ID", "MAILPROPERTIES"},
+        {"ARCHIVESEGMENT_ID", "ARCHIVESEGMENT"}
+    };
+
+    /**
+     * Constructor setting the version and the description.
+     */
+    public SplitSequencesMigration() {
+        super(6, "Give every entity its own id sequence");
+    }
+
+    /**
+     * Adds the rows that are missing.
+     *
+     * @param connection the connection to the database
+     * @throws SQLException if a row could not be added
+     */
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        long start = number(connection, "SELECT SEQ_COUNT FROM SEQUENCE WHERE SEQ_NAME = 'SEQ_GEN'");
+        for (String[] sequence : SEQUENCES) {
+            if (number(connection, "SELECT COUNT(*) FROM SEQUENCE WHERE SEQ_NAME = '" + sequence[0] + "'") > 0) {
+                continue;
+            }
+            long value = start;
+            for (int i = 1; i < sequence.length; i++) {
+                if (tableExists(connection, sequence[i])) {
+                    value = Math.max(value, number(connection, "SELECT MAX(ID) FROM " + sequence[i]));
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO SEQUENCE (SEQ_NAME, SEQ_COUNT) VALUES (?, ?)")) {
+                insert.setString(1, sequence[0]);
+                insert.setLong(2, value);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Reads a single number.
+     *
+     * @param connection the connection to the database
+     * @param sql the query returning the number
+     * @return the number; 0 if the query returns no row or null
+     * @throws SQLException if the query failed
+     */
+    private static long number(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(sql);
+                ResultSet result = select.executeQuery()) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package de.grashof.taskwall.setup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Adds the digest settings of a Profile and turns the descriptions of Tasks
+ * and ArchivedTasks into CLOBs, so they are no longer limited to 255
+ * characters and can be loaded lazily.
+ *
+ * @author TaskWall-Team
+ */
+public class UpdateColumnsMigration extends Migration {
+
+    /**
+     * Constructor setting the version and the description.
+     */
+    public UpdateColumnsMigration() {
+        super(2, "Add digest settings and store descriptions as CLOB");
+    }
+
+    /**
+     * Adds the missing columns and converts the descriptions.
+     *
+     * @param connection the connection to the database
+     * @throws SQLException if a column could not be changed
+     */
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        addColumn(connection, "PROFILE", "DIGESTMODE", "VARCHAR(255) DEFAULT 'IMMEDIATE'");
+        addColumn(connection, "PROFILE", "DIGESTINTERVAL", "INTEGER DEFAULT 60");
+        addColumn(connection, "PROFILE", "DIGESTHOUR", "INTEGER DEFAULT 8");
+        addColumn(connection, "PROFILE", "QUIETFROM", "INTEGER");
+        addColumn(connection, "PROFILE", "QUIETUNTIL", "INTEGER");
+        convertToClob(connection, "TASK", "DESCRIPTION");
+        convertToClob(connection, "ARCHIVEDTASK", "DESCRIPTION");
+    }
+
+    /**
+     * Adds a column if it does not exist yet. Existing rows get the default
+     * value of the column.
+     *
+     * @param connection the connection to the database
+     * @param table the name of the table
+     * @param column the name of the column
+     * @param definition the type and default value of the column
+     * @throws SQLException if the column could not be added
+     */
+    private static void addColumn(Connection connection, String table, String column, String definition)
+            throws SQLException {
+        if (!columnExists(connection, table, column)) {
+            execute(connection, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    /**
+     * Replaces a character column by a CLOB column with the same name and
+     * content. The type of a column cannot be changed in place.
+     *
+     * @param connection the connection to the database
+     * @param table the name of the table
+     * @param column the name of the column
+     * @throws SQLException if the column could not be converted
+     */
+    private static void convertToClob(Connection connection, String table, String column)
+            throws SQLException {
+        if ("CLOB".equals(columnType(connection, table, column))) {
+            return;
+        }
+        String temporary = column + "_CLOB";
+        execute(connection, "ALTER TABLE " + table + " ADD COLUMN " + temporary + " CLOB");
+        execute(connection, "UPDATE " + table + " SET " + temporary + " = CAST(" + column + " AS CLOB)");
+        execute(connection, "ALTER TABLE " + table + " DROP COLUMN " + column);
+        execute(connection, "RENAME COLUMN " + table + "." + temporary + " TO " + column);
+    }
+}
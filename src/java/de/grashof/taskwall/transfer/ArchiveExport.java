@@ -0,0 +1,270 @@
+package de.grashof.taskwall.transfer;
+
+import de.grashof.taskwall.archive.ColdStorage;
+import de.grashof.taskwall.archive.Segment;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
+import de.grashof.taskwall.entity.ArchivedTask;
+import de.grashof.taskwall.entity.UserSummary;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import javax.sql.DataSource;
+
+/**
+ * Exports the finished Tasks of one user or of all users, the most recently
+ * finished first, with the columns the import understands plus the id and the
+ * dates of creation and completion. Nothing is collected in memory: the Tasks
+ * in the database are read through a forward-only cursor fetching a fixed
+ * number of rows at a time, those in the cold archive one record after
+ * another, and every Task is written as soon as it was read.
+ * <p>
+ * The cold archive is read after the database. Only Tasks finished before the
+ * last one read from the database are taken from it, so a tiering run moving
+ * Tasks into a new segment during the export neither doubles nor loses them.
+ *
+ * @author TaskWall-Team
+ */
+public class ArchiveExport {
+
+    /**
+     * The names of the exported columns.
+     */
+    public static final String[] COLUMNS = {"id", "recipient", "creator", "title", "description", "due",
+        "created", "finished"};
+
+    /**
+     * The number of rows the cursor fetches from the database at a time.
+     */
+    private static final int FETCH_SIZE = 500;
+
+    /**
+     * The format of the exported dates.
+     */
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+
+    /**
+     * The columns read from the database, in the order of the exported
+     * columns except for the names of the users.
+     */
+    private static final String SELECT = "SELECT ID, RECEIVERID, CREATORID, TITLE, DESCRIPTION, DUE, CREATED, "
+            + "FINISHED FROM ARCHIVEDTASK";
+
+    /**
+     * The database.
+     */
+    private final DataSource dataSource;
+
+    /**
+     * The cold archive.
+     */
+    private final ColdStorage coldStorage;
+
+    /**
+     * Used to write the usernames instead of the ids.
+     */
+    private final UserDirectory userDirectory;
+
+    /**
+     * The id of the user whose Tasks are exported; null to export the Tasks
+     * of all users.
+     */
+    private final Long receiverId;
+
+    /**
+     * Formats the exported dates.
+     */
+    private final SimpleDateFormat format = new SimpleDateFormat(DATE_PATTERN);
+
+    /**
+     * Holds the values of the current row. It is reused for every row.
+     */
+    private final String[] values = new String[COLUMNS.length];
+
+    /**
+     * The finish date of the last Task read from the database in
+     * milliseconds.
+     */
+    private long lastFinished;
+
+    /**
+     * The id of the last Task read from the database; null if none was read.
+     */
+    private Long lastId;
+
+    /**
+     * The number of written Tasks.
+     */
+    private long written;
+
+    /**
+     * Set when the export should stop before the next Task.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * The point in time the export started or last wrote a Task.
+     */
+    private volatile long lastProgress = System.currentTimeMillis();
+
+    /**
+     * Creates an export.
+     *
+     * @param dataSource the database
+     * @param coldStorage the cold archive
+     * @param userDirectory used to find the usernames
+     * @param receiverId the id of the user whose Tasks are exported; null to
+     * export the Tasks of all users
+     */
+    public ArchiveExport(DataSource dataSource, ColdStorage coldStorage, UserDirectory userDirectory,
+            Long receiverId) {
+        this.dataSource = dataSource;
+        this.coldStorage = coldStorage;
+        this.userDirectory = userDirectory;
+        this.receiverId = receiverId;
+    }
+
+    /**
+     * Writes all finished Tasks.
+     *
+     * @param writer the file the Tasks are written to
+     * @return the number of written Tasks
+     * @throws SQLException if the database could not be read
+     * @throws IOException if a Task could not be written or the export was
+     * cancelled
+     */
+    public long writeTo(final RowWriter writer) throws SQLException, IOException {
+        String sql = SELECT + (receiverId != null ? " WHERE RECEIVERID = ?" : "")
+                + " ORDER BY FINISHED DESC, ID DESC";
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement select = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            select.setFetchSize(FETCH_SIZE);
+            if (receiverId != null) {
+                select.setLong(1, receiverId);
+            }
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    lastId = rows.getLong(1);
+                    lastFinished = rows.getDate(8).getTime();
+                    write(writer, lastId, rows.getLong(2), rows.getLong(3), rows.getString(4), rows.getString(5),
+                            rows.getDate(6), rows.getDate(7), rows.getDate(8));
+                }
+            }
+        }
+
+        final IOException[] failure = new IOException[1];
+        ColdStorage.Visitor visitor = new ColdStorage.Visitor() {
+            @Override
+            public boolean visit(ArchivedTask task) {
+                if (lastId != null && Segment.compare(task.getFinished().getTime(), task.getId(),
+                        lastFinished, lastId) >= 0) {
+                    return true;
+                }
+                try {
+                    write(writer, task.getId(), task.getReceiverId(), task.getCreatorId(), task.getTitle(),
+                            task.getDescription(), task.getDue(), task.getCreated(), task.getFinished());
+                    return true;
+                } catch (IOException ex) {
+                    failure[0] = ex;
+                    return false;
+                }
+            }
+        };
+        if (receiverId != null) {
+            coldStorage.visit(receiverId, visitor);
+        } else {
+            coldStorage.visit(visitor);
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return written;
+    }
+
+    /**
+     * Stops the export before the next Task is written. The running writeTo
+     * throws an IOException then, which closes the cursor.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Gets the point in time the export started or last wrote a Task. While
+     * the client does not read, writing blocks and this does not advance.
+     *
+     * @return the point in time in milliseconds
+     */
+    public long getLastProgress() {
+        return lastProgress;
+    }
+
+    /**
+     * Gets the number of Tasks written so far.
+     *
+     * @return the number of written Tasks
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Writes one Task.
+     *
+     * @param writer the file
+     * @param id the id of the Task
+     * @param receiver the id of the Profile of the assigned person
+     * @param creator the id of the Profile of the author
+     * @param title the title
+     * @param description the description
+     * @param due the deadline
+     * @param created the date the Task was created
+     * @param finished the date the Task was finished
+     * @throws IOException if the Task could not be written or the export was
+     * cancelled
+     */
+    private void write(RowWriter writer, long id, long receiver, long creator, String title, String description,
+            Date due, Date created, Date finished) throws IOException {
+        if (cancelled) {
+            throw new IOException("Der Export wurde abgebrochen.");
+        }
+        values[0] = String.valueOf(id);
+        values[1] = username(receiver);
+        values[2] = username(creator);
+        values[3] = title;
+        values[4] = description;
+        values[5] = date(due);
+        values[6] = date(created);
+        values[7] = date(finished);
+        writer.write(values);
+        written++;
+        lastProgress = System.currentTimeMillis();
+    }
+
+    /**
+     * Gives the username of a user.
+     *
+     * @param id the id of the Profile of the user
+     * @return the username; the id if the user is not known
+     */
+    private String username(long id) {
+        UserSummary user = userDirectory.getUser(id);
+        return user == null ? String.valueOf(id) : user.getUsername();
+    }
+
+    /**
+     * Formats a date.
+     *
+     * @param date the date; may be null
+     * @return the date in the format yyyy-MM-dd; null if it is missing
+     */
+    private String date(Date date) {
+        return date == null ? null : format.format(date);
+    }
+}
@@ -0,0 +1,232 @@
+package de.grashof.taskwall.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a CSV file as described in RFC 4180, character by character. The
+ * first row names the columns. Fields may be quoted with double quotes and
+ * then contain separators, line breaks and doubled quotes. The separator is
+ * taken from the first row: a semicolon, as written by spreadsheets with
+ * German settings, if it contains one outside of quotes and no comma, a comma
+ * otherwise.
+ *
+ * @author TaskWall-Team
+ */
+public class CsvRowReader implements RowReader {
+
+    /**
+     * The longest field that is accepted. It keeps an unterminated quote from
+     * reading the rest of the file into one field.
+     */
+    private static final int MAX_FIELD = 65536;
+
+    /**
+     * The number of characters that may be read ahead to find the separator.
+     */
+    private static final int HEADER_LIMIT = 8192;
+
+    /**
+     * Marks the end of the file.
+     */
+    private static final int END = -1;
+
+    /**
+     * The file.
+     */
+    private final BufferedReader reader;
+
+    /**
+     * The column names in lower case.
+     */
+    private final List<String> columns;
+
+    /**
+     * The character separating the fields.
+     */
+    private final char separator;
+
+    /**
+     * The line the reader is positioned in.
+     */
+    private long position = 1;
+
+    /**
+     * The line the last read row started in.
+     */
+    private long line = 1;
+
+    /**
+     * Creates the reader and reads the column names from the first row.
+     *
+     * @param source the file
+     * @throws IOException if the file could not be read or has no first row
+     */
+    public CsvRowReader(Reader source) throws IOException {
+        reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        separator = detectSeparator();
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IOException("Die Datei ist leer.");
+        }
+        columns = new ArrayList<>(header.size());
+        for (String column : header) {
+            columns.add(column.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Reads the next row and assigns its fields to the column names. Empty
+     * lines are skipped.
+     *
+     * @return the values of the row by their column names; null if there are
+     * no further rows
+     * @throws RowFormatException if the number of fields does not match the
+     * number of columns
+     * @throws IOException if the file could not be read or a quote is not
+     * terminated
+     */
+    @Override
+    public Map<String, String> next() throws RowFormatException, IOException {
+        List<String> fields;
+        do {
+            fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isEmpty());
+        if (fields.size() != columns.size()) {
+            throw new RowFormatException(line, "Erwartet " + columns.size() + " Spalten, gefunden "
+                    + fields.size() + ".");
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            row.put(columns.get(i), fields.get(i));
+        }
+        return row;
+    }
+
+    /**
+     * Gets the line of the file the last read row started in.
+     *
+     * @return the line number, starting at 1
+     */
+    @Override
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Gets the names of the columns.
+     *
+     * @return a List containing the column names in lower case
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Looks at the first row, without consuming it, to find the separator.
+     *
+     * @return the separator
+     * @throws IOException if the file could not be read
+     */
+    private char detectSeparator() throws IOException {
+        reader.mark(HEADER_LIMIT);
+        boolean quoted = false;
+        boolean comma = false;
+        boolean semicolon = false;
+        for (int i = 0; i < HEADER_LIMIT; i++) {
+            int c = reader.read();
+            if (c == END || (!quoted && (c == '\n' || c == '\r'))) {
+                break;
+            }
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                comma |= c == ',';
+                semicolon |= c == ';';
+            }
+        }
+        reader.reset();
+        return semicolon && !comma ? ';' : ',';
+    }
+
+    /**
+     * Reads the fields of the next record.
+     *
+     * @return a List containing the fields; null at the end of the file
+     * @throws IOException if the file could not be read or a quote is not
+     * terminated
+     */
+    private List<String> readRecord() throws IOException {
+        line = position;
+        int c = reader.read();
+        if (c == END) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == END) {
+                    throw new IOException("Nicht geschlossenes Anführungszeichen ab Zeile " + line + ".");
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        position++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == END) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                if (c != END) {
+                    position++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            if (field.length() > MAX_FIELD) {
+                throw new IOException("Feld zu lang in Zeile " + line + ".");
+            }
+            c = reader.read();
+        }
+    }
+}
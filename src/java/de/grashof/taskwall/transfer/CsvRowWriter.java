@@ -0,0 +1,81 @@
+package de.grashof.taskwall.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a CSV file as described in RFC 4180, so it can be read by the
+ * CsvRowReader again. The first row names the columns. Values containing a
+ * comma, a quote or a line break are quoted; lines end with CR LF.
+ *
+ * @author TaskWall-Team
+ */
+public class CsvRowWriter implements RowWriter {
+
+    /**
+     * The file.
+     */
+    private final Writer writer;
+
+    /**
+     * Creates the writer and writes the column names.
+     *
+     * @param writer the file
+     * @param columns the names of the columns
+     * @throws IOException if the column names could not be written
+     */
+    public CsvRowWriter(Writer writer, String[] columns) throws IOException {
+        this.writer = writer;
+        write(columns);
+    }
+
+    /**
+     * Writes one row.
+     *
+     * @param values the values in the order of the columns; null is written
+     * as an empty field
+     * @throws IOException if the row could not be written
+     */
+    @Override
+    public void write(String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Ends the file with a row holding only the reason it is incomplete.
+     *
+     * @param reason the reason the file is incomplete
+     * @throws IOException if the row could not be written
+     */
+    @Override
+    public void writeIncomplete(String reason) throws IOException {
+        write(new String[] {reason});
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
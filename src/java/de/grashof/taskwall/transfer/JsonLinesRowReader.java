@@ -0,0 +1,115 @@
+package de.grashof.taskwall.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+
+/**
+ * Reads a file of newline delimited JSON: one flat JSON object per line, whose
+ * names are the column names. Only one line is held in memory at a time, and
+ * a malformed line does not affect the following ones. Strings, numbers and
+ * booleans are returned as text; null values are left out.
+ *
+ * @author TaskWall-Team
+ */
+public class JsonLinesRowReader implements RowReader {
+
+    /**
+     * The file.
+     */
+    private final BufferedReader reader;
+
+    /**
+     * The line the last read row was in.
+     */
+    private long line = 0;
+
+    /**
+     * Creates the reader.
+     *
+     * @param source the file
+     */
+    public JsonLinesRowReader(Reader source) {
+        reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+    }
+
+    /**
+     * Reads the object in the next line that is not empty.
+     *
+     * @return the values of the object by their names in lower case; null if
+     * there are no further lines
+     * @throws RowFormatException if the line is no flat JSON object
+     * @throws IOException if the file could not be read
+     */
+    @Override
+    public Map<String, String> next() throws RowFormatException, IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.trim().isEmpty());
+        try (JsonParser parser = Json.createParser(new StringReader(text))) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_OBJECT) {
+                throw new RowFormatException(line, "Kein JSON-Objekt.");
+            }
+            Map<String, String> row = new LinkedHashMap<>();
+            String name = null;
+            JsonParser.Event event;
+            while ((event = parser.next()) != JsonParser.Event.END_OBJECT) {
+                switch (event) {
+                    case KEY_NAME:
+                        name = parser.getString().toLowerCase(Locale.ROOT);
+                        break;
+                    case VALUE_STRING:
+                    case VALUE_NUMBER:
+                        row.put(name, parser.getString());
+                        break;
+                    case VALUE_TRUE:
+                        row.put(name, "true");
+                        break;
+                    case VALUE_FALSE:
+                        row.put(name, "false");
+                        break;
+                    case VALUE_NULL:
+                        break;
+                    default:
+                        throw new RowFormatException(line, "Verschachtelter Wert bei \"" + name + "\".");
+                }
+            }
+            return row;
+        } catch (JsonException ex) {
+            throw new RowFormatException(line, "Ungültiges JSON: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Gets the line of the file the last read row was in.
+     *
+     * @return the line number, starting at 1
+     */
+    @Override
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
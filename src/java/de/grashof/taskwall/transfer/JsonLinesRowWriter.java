@@ -0,0 +1,99 @@
+package de.grashof.taskwall.transfer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * Writes a file of newline delimited JSON: one flat JSON object per row,
+ * whose names are the column names, so it can be read by the
+ * JsonLinesRowReader again.
+ *
+ * @author TaskWall-Team
+ */
+public class JsonLinesRowWriter implements RowWriter {
+
+    /**
+     * The file.
+     */
+    private final Writer writer;
+
+    /**
+     * The names of the columns.
+     */
+    private final String[] columns;
+
+    /**
+     * Holds the current row while it is generated. It is reused for every
+     * row.
+     */
+    private final StringWriter line = new StringWriter();
+
+    /**
+     * Creates the writer.
+     *
+     * @param writer the file
+     * @param columns the names of the columns
+     */
+    public JsonLinesRowWriter(Writer writer, String[] columns) {
+        this.writer = writer;
+        this.columns = columns.clone();
+    }
+
+    /**
+     * Writes one row as a JSON object in a line of its own.
+     *
+     * @param values the values in the order of the columns; null is written
+     * as a JSON null
+     * @throws IOException if the row could not be written
+     */
+    @Override
+    public void write(String[] values) throws IOException {
+        line.getBuffer().setLength(0);
+        try (JsonGenerator json = Json.createGenerator(line)) {
+            json.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                if (values[i] == null) {
+                    json.writeNull(columns[i]);
+                } else {
+                    json.write(columns[i], values[i]);
+                }
+            }
+            json.writeEnd();
+        }
+        writer.write(line.toString());
+        writer.write('\n');
+    }
+
+    /**
+     * Ends the file with a JSON object whose only name is "error" and whose
+     * value is the reason the file is incomplete.
+     *
+     * @param reason the reason the file is incomplete
+     * @throws IOException if the line could not be written
+     */
+    @Override
+    public void writeIncomplete(String reason) throws IOException {
+        line.getBuffer().setLength(0);
+        try (JsonGenerator json = Json.createGenerator(line)) {
+            json.writeStartObject();
+            json.write("error", reason);
+            json.writeEnd();
+        }
+        writer.write(line.toString());
+        writer.write('\n');
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
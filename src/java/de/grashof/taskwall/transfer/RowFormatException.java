@@ -0,0 +1,37 @@
+package de.grashof.taskwall.transfer;
+
+/**
+ * Thrown by a RowReader when a single row of an imported file is malformed.
+ * The rows after it can still be read.
+ *
+ * @author TaskWall-Team
+ */
+public class RowFormatException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The line of the file the malformed row started in.
+     */
+    private final long line;
+
+    /**
+     * Creates the exception for a malformed row.
+     *
+     * @param line the line of the file the row started in
+     * @param message the description of the problem
+     */
+    public RowFormatException(long line, String message) {
+        super(message);
+        this.line = line;
+    }
+
+    /**
+     * Gets the line of the file the malformed row started in.
+     *
+     * @return the line number, starting at 1
+     */
+    public long getLine() {
+        return line;
+    }
+}
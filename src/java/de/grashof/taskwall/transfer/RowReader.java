@@ -0,0 +1,35 @@
+package de.grashof.taskwall.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads the rows of an imported file one after another, so a file of any size
+ * is never held in memory as a whole. Every row is returned as the values by
+ * their column names in lower case.
+ *
+ * @author TaskWall-Team
+ */
+public interface RowReader extends Closeable {
+
+    /**
+     * Reads the next row. A malformed row is reported by a
+     * RowFormatException; the reader is then positioned after it, so reading
+     * can go on with the next row.
+     *
+     * @return the values of the row by their column names; null if there are
+     * no further rows
+     * @throws RowFormatException if the row is malformed
+     * @throws IOException if the file could not be read or is broken beyond
+     * the current row
+     */
+    Map<String, String> next() throws RowFormatException, IOException;
+
+    /**
+     * Gets the line of the file the last read row started in.
+     *
+     * @return the line number, starting at 1
+     */
+    long getLine();
+}
@@ -0,0 +1,32 @@
+package de.grashof.taskwall.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the rows of an exported file one after another, straight into the
+ * underlying stream. The columns are fixed when the writer is created.
+ *
+ * @author TaskWall-Team
+ */
+public interface RowWriter extends Closeable {
+
+    /**
+     * Writes one row.
+     *
+     * @param values the values in the order of the columns; null for a
+     * missing value
+     * @throws IOException if the row could not be written
+     */
+    void write(String[] values) throws IOException;
+
+    /**
+     * Ends a file whose export failed with a line that says so. A reader
+     * takes it for an invalid row, so the file cannot be mistaken for a
+     * complete one.
+     *
+     * @param reason the reason the file is incomplete
+     * @throws IOException if the line could not be written
+     */
+    void writeIncomplete(String reason) throws IOException;
+}
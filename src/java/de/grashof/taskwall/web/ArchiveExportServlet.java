@@ -0,0 +1,334 @@
+package de.grashof.taskwall.web;
+
+import de.grashof.taskwall.archive.ColdStorage;
+import de.grashof.taskwall.beans.PageParameters;
+import de.grashof.taskwall.beans.UserPrincipal;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
+import de.grashof.taskwall.entity.UserSummary;
+import de.grashof.taskwall.transfer.ArchiveExport;
+import de.grashof.taskwall.transfer.CsvRowWriter;
+import de.grashof.taskwall.transfer.JsonLinesRowWriter;
+import de.grashof.taskwall.transfer.RowWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+/**
+ * Exports finished Tasks as a CSV file or a file of newline delimited JSON,
+ * chosen by the parameter "format". Users export their own Tasks from
+ * /api/export/archive; administrators export the Tasks of all users, or of
+ * the user named by the parameter "user", from /api/admin/export/archive.
+ * <p>
+ * The export is written by the ArchiveExport straight into the response while
+ * the Tasks are read, so it needs the same memory for any number of Tasks. It
+ * runs in an asynchronous request on a small pool of threads of its own, so a
+ * long export holds neither one of the threads serving the pages nor one of
+ * the shared managed executor. Every export holds a database connection while
+ * the client downloads, so only a few run at the same time; further requests
+ * are answered with 503 Service Unavailable. An export that wrote no Task for
+ * a while, because the client stopped reading or the database does not
+ * answer, is cancelled, so a stalled client cannot keep its connection
+ * forever; a long export that makes progress is never cut off. An export that
+ * fails or is cancelled ends the file with a line saying it is incomplete.
+ *
+ * @author TaskWall-Team
+ */
+@WebServlet(urlPatterns = {"/api/export/archive", "/api/admin/export/archive"}, asyncSupported = true)
+public class ArchiveExportServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The path of the export of all users.
+     */
+    private static final String ADMINISTRATIVE = "/api/admin/export/archive";
+
+    /**
+     * The size of the buffer between the export and the response.
+     */
+    private static final int BUFFER = 65536;
+
+    /**
+     * The maximum number of exports running at the same time.
+     */
+    private static final int MAX_EXPORTS = 2;
+
+    /**
+     * The time in milliseconds without a written Task after which an export
+     * is cancelled.
+     */
+    private static final long IDLE_TIMEOUT = 5 * 60 * 1000L;
+
+    /**
+     * The interval in milliseconds in which the running exports are checked
+     * for inactivity.
+     */
+    private static final long CHECK_INTERVAL = 30 * 1000L;
+
+    /**
+     * The last line of an incomplete file.
+     */
+    private static final String INCOMPLETE = "Der Export ist fehlgeschlagen, die Datei ist unvollständig.";
+
+    /**
+     * Limits the exports running at the same time.
+     */
+    private static final Semaphore permits = new Semaphore(MAX_EXPORTS);
+
+    /**
+     * The number of exports running at the moment.
+     */
+    private static final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * The number of Tasks exported since the start of the application.
+     */
+    private static final AtomicLong exported = new AtomicLong();
+
+    /**
+     * The database the finished Tasks are read from.
+     */
+    @Resource(lookup = "java:comp/DefaultDataSource")
+    private DataSource dataSource;
+
+    /**
+     * Creates the container managed threads running the exports.
+     */
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    /**
+     * The threads running the exports, one per export that may run.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The thread cancelling exports that make no progress.
+     */
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * The cold archive the older finished Tasks are read from.
+     */
+    @EJB
+    private ColdStorage coldStorage;
+
+    /**
+     * Used to find the exported user and the usernames.
+     */
+    @EJB
+    private UserDirectory userDirectory;
+
+    /**
+     * Creates the threads running the exports and the watchdog. As many
+     * exports may wait in the queue as may run, because a thread still
+     * finishing the previous export after its permit was freed may not have
+     * taken the next one yet; the permits keep the queue from growing beyond
+     * that.
+     */
+    @PostConstruct
+    public void createExecutor() {
+        executor = new ThreadPoolExecutor(MAX_EXPORTS, MAX_EXPORTS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_EXPORTS), threadFactory);
+        watchdog = new ScheduledThreadPoolExecutor(1, threadFactory);
+    }
+
+    /**
+     * Stops the threads running the exports and the watchdog.
+     */
+    @PreDestroy
+    public void shutdownExecutor() {
+        watchdog.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts the export of the requested Tasks.
+     *
+     * @param request the request naming the format and the user
+     * @param response the response the Tasks are written to
+     * @throws IOException if an error could not be sent
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final String format = PageParameters.trim(request.getParameter("format"));
+        if (!"csv".equals(format) && !"ndjson".equals(format)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        UserPrincipal principal = (UserPrincipal) request.getSession().getAttribute(UserPrincipal.SESSION_KEY);
+        Long receiverId = principal.getId();
+        String name = principal.getUsername();
+        if (ADMINISTRATIVE.equals(request.getServletPath())) {
+            String username = PageParameters.trim(request.getParameter("user"));
+            UserSummary user = userDirectory.findUser(username);
+            if (!username.isEmpty() && user == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            receiverId = user == null ? null : user.getId();
+            name = user == null ? "alle" : user.getUsername();
+        }
+
+        if (!permits.tryAcquire()) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        response.setContentType("csv".equals(format) ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.setHeader("Content-Disposition", "attachment; filename=\"archiv-"
+                + name.replaceAll("[^A-Za-z0-9._-]", "_") + "." + format + "\"");
+        final AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        final ArchiveExport export = new ArchiveExport(dataSource, coldStorage, userDirectory, receiverId);
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                export.cancel();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                export.cancel();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        try {
+            submit(async, export, format);
+        } catch (RejectedExecutionException ex) {
+            permits.release();
+            Logger.getLogger(ArchiveExportServlet.class.getName()).log(Level.SEVERE, null, ex);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            async.complete();
+        }
+    }
+
+    /**
+     * Runs an export on one of the export threads, completes the request when
+     * it is finished and frees its permit. While it runs, the watchdog
+     * cancels it once it wrote no Task for too long; if it is still blocked a
+     * check later, because the client does not read, the request is completed
+     * to free the connection and the thread.
+     *
+     * @param async the asynchronous request
+     * @param export the export
+     * @param format the format, "csv" or "ndjson"
+     */
+    private void submit(final AsyncContext async, final ArchiveExport export, final String format) {
+        final Future<?> check = watchdog.scheduleWithFixedDelay(new Runnable() {
+            private boolean cancelled = false;
+
+            private boolean completed = false;
+
+            @Override
+            public void run() {
+                if (completed || System.currentTimeMillis() - export.getLastProgress() < IDLE_TIMEOUT) {
+                    return;
+                }
+                if (!cancelled) {
+                    cancelled = true;
+                    export.cancel();
+                    return;
+                }
+                completed = true;
+                try {
+                    async.complete();
+                } catch (IllegalStateException ex) {
+                    Logger.getLogger(ArchiveExportServlet.class.getName()).log(Level.FINE, null, ex);
+                }
+            }
+        }, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    running.incrementAndGet();
+                    try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                            async.getResponse().getOutputStream(), StandardCharsets.UTF_8), BUFFER);
+                            RowWriter rows = "csv".equals(format) ? new CsvRowWriter(out, ArchiveExport.COLUMNS)
+                                    : new JsonLinesRowWriter(out, ArchiveExport.COLUMNS)) {
+                        try {
+                            export.writeTo(rows);
+                        } catch (IOException | SQLException ex) {
+                            Logger.getLogger(ArchiveExportServlet.class.getName()).log(Level.SEVERE, null, ex);
+                            rows.writeIncomplete(INCOMPLETE);
+                        }
+                    } catch (IOException | IllegalStateException ex) {
+                        Logger.getLogger(ArchiveExportServlet.class.getName()).log(Level.SEVERE, null, ex);
+                    } finally {
+                        check.cancel(false);
+                        exported.addAndGet(export.getWritten());
+                        running.decrementAndGet();
+                        permits.release();
+                        try {
+                            async.complete();
+                        } catch (IllegalStateException ex) {
+                            Logger.getLogger(ArchiveExportServlet.class.getName()).log(Level.FINE, null, ex);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            check.cancel(false);
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets the number of exports running at the moment.
+     *
+     * @return the number of running exports
+     */
+    public static int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * Gets the number of finished Tasks exported since the start of the
+     * application.
+     *
+     * @return the number of exported Tasks
+     */
+    public static long getExported() {
+        return exported.get();
+    }
+}
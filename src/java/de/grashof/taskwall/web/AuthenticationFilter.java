@@ -0,0 +1,159 @@
+package de.grashof.taskwall.web;
+
+import de.grashof.taskwall.beans.UserPrincipal;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Makes sure only logged in users reach the pages, and only administrators
+ * reach the administrative pages. The check is done with the UserPrincipal
+ * kept in the session before the Faces Servlet is called, so a rejected
+ * request neither builds a view nor creates any bean or queries the database.
+ * The login page and the resources like stylesheets are always allowed.
+ * Requests to the JSON endpoints under /api/ are not redirected but answered
+ * with 401, as they are made by scripts; the endpoints under /api/admin/ answer
+ * other users than administrators with 403.
+ *
+ * @author TaskWall-Team
+ */
+@WebFilter(filterName = "AuthenticationFilter", urlPatterns = {"*.xhtml", "/api/*"}, asyncSupported = true)
+public class AuthenticationFilter implements Filter {
+
+    /**
+     * The page anybody may open.
+     */
+    private static final String LOGIN_PAGE = "/login.xhtml";
+
+    /**
+     * The page administrative requests of other users are redirected to.
+     */
+    private static final String DASHBOARD_PAGE = "/dashboard.xhtml";
+
+    /**
+     * The path of the resources served by the Faces Servlet.
+     */
+    private static final String RESOURCES = "/javax.faces.resource/";
+
+    /**
+     * The path of the pages only administrators may open.
+     */
+    private static final String ADMINISTRATIVE = "/administrative/";
+
+    /**
+     * The path of the JSON endpoints.
+     */
+    private static final String API = "/api/";
+
+    /**
+     * The path of the JSON endpoints only administrators may use.
+     */
+    private static final String ADMINISTRATIVE_API = "/api/admin/";
+
+    /**
+     * The number of requests that were redirected or refused.
+     */
+    private static final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Does nothing, the filter needs no configuration.
+     *
+     * @param config the configuration of the filter
+     */
+    @Override
+    public void init(FilterConfig config) {
+    }
+
+    /**
+     * Passes the request on if the user may open the requested page and
+     * redirects it to the login page or the dashboard if not. Unauthenticated
+     * requests to the JSON endpoints are rejected with 401, and requests of
+     * other users than administrators to their administrative part with 403.
+     * AJAX requests are answered with a partial response containing the
+     * redirect, because they would not follow an HTTP redirect to a whole
+     * page.
+     *
+     * @param req the request
+     * @param res the response
+     * @param chain the remaining filters and the servlet
+     * @throws IOException if the redirect could not be sent
+     * @throws ServletException if the servlet failed
+     */
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        String path = request.getServletPath();
+        if (LOGIN_PAGE.equals(path) || path.startsWith(RESOURCES)) {
+            chain.doFilter(req, res);
+            return;
+        }
+        HttpSession session = request.getSession(false);
+        UserPrincipal principal = session == null ? null
+                : (UserPrincipal) session.getAttribute(UserPrincipal.SESSION_KEY);
+        if (principal == null && path.startsWith(API)) {
+            rejected.incrementAndGet();
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        } else if (principal == null) {
+            redirect(request, response, LOGIN_PAGE);
+        } else if (path.startsWith(ADMINISTRATIVE_API) && !principal.isAdministrator()) {
+            rejected.incrementAndGet();
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+        } else if (path.startsWith(ADMINISTRATIVE) && !principal.isAdministrator()) {
+            redirect(request, response, DASHBOARD_PAGE);
+        } else {
+            chain.doFilter(req, res);
+        }
+    }
+
+    /**
+     * Does nothing, the filter holds no resources.
+     */
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * Gets the number of requests that were redirected or refused because the
+     * user was not logged in or not allowed to open the page.
+     *
+     * @return the number of rejected requests
+     */
+    public static long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Redirects the request to a page of the application.
+     *
+     * @param request the request
+     * @param response the response
+     * @param page the page, relative to the application
+     * @throws IOException if the redirect could not be sent
+     */
+    private static void redirect(HttpServletRequest request, HttpServletResponse response, String page)
+            throws IOException {
+        rejected.incrementAndGet();
+        String location = response.encodeRedirectURL(request.getContextPath() + page);
+        if ("partial/ajax".equals(request.getHeader("Faces-Request"))) {
+            response.setContentType("text/xml");
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<partial-response><redirect url=\"" + location + "\"/></partial-response>");
+        } else {
+            response.sendRedirect(location);
+        }
+    }
+}
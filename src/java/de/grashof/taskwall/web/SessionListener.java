@@ -0,0 +1,71 @@
+package de.grashof.taskwall.web;
+
+import javax.ejb.EJB;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+import javax.servlet.annotation.WebListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+/**
+ * Reports created and ended HTTP sessions to the SessionRegistry, and the end
+ * of every request, so the session can be measured on the thread that used
+ * it.
+ *
+ * @author TaskWall-Team
+ */
+@WebListener
+public class SessionListener implements HttpSessionListener, ServletRequestListener {
+
+    /**
+     * Keeps track of the open sessions.
+     */
+    @EJB
+    private SessionRegistry sessionRegistry;
+
+    /**
+     * Registers the new session.
+     *
+     * @param event the event containing the session
+     */
+    @Override
+    public void sessionCreated(HttpSessionEvent event) {
+        sessionRegistry.created(event.getSession());
+    }
+
+    /**
+     * Removes the ended session.
+     *
+     * @param event the event containing the session
+     */
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        sessionRegistry.destroyed(event.getSession());
+    }
+
+    /**
+     * Does nothing, sessions are only measured at the end of a request.
+     *
+     * @param event the event containing the request
+     */
+    @Override
+    public void requestInitialized(ServletRequestEvent event) {
+    }
+
+    /**
+     * Lets the session of the ended request be measured.
+     *
+     * @param event the event containing the request
+     */
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        if (event.getServletRequest() instanceof HttpServletRequest) {
+            HttpSession session = ((HttpServletRequest) event.getServletRequest()).getSession(false);
+            if (session != null) {
+                sessionRegistry.measure(session);
+            }
+        }
+    }
+}
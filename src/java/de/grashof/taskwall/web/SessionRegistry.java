@@ -0,0 +1,222 @@
+package de.grashof.taskwall.web;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Keeps track of the open HTTP sessions, so the administrators can see how
+ * many there are and how much memory they need. The size of a session is
+ * measured by serializing its attributes, which is what the server does when
+ * it passivates or replicates the session. It is measured at the end of a
+ * request on the thread that handled it, at most every few minutes per
+ * session, so no other thread touches the attributes while they are in use.
+ * Sessions are only known by their ids, so the registry keeps none of them
+ * alive.
+ *
+ * @author TaskWall-Team
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SessionRegistry {
+
+    /**
+     * The time in milliseconds after which a session is measured again.
+     */
+    private static final long INTERVAL = 5 * 60 * 1000L;
+
+    /**
+     * The last measurements of the open sessions by their ids.
+     */
+    private final ConcurrentMap<String, Measurement> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * The names of the attributes that could not be serialized and were
+     * already logged.
+     */
+    private final Set<String> unserializable = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * The highest number of sessions open at the same time.
+     */
+    private final AtomicLong peak = new AtomicLong();
+
+    /**
+     * Registers a new session.
+     *
+     * @param session the new session
+     */
+    public void created(HttpSession session) {
+        sessions.put(session.getId(), new Measurement());
+        long open = sessions.size();
+        long highest;
+        do {
+            highest = peak.get();
+        } while (open > highest && !peak.compareAndSet(highest, open));
+    }
+
+    /**
+     * Removes a session that was invalidated or timed out.
+     *
+     * @param session the ended session
+     */
+    public void destroyed(HttpSession session) {
+        sessions.remove(session.getId());
+    }
+
+    /**
+     * Measures the size of a session at the end of a request, if it was not
+     * measured within the last minutes. Must be called on the thread that
+     * handled the request.
+     *
+     * @param session the session of the request
+     */
+    public void measure(HttpSession session) {
+        Measurement measurement = sessions.get(session.getId());
+        if (measurement == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = measurement.measured.get();
+        if (now - last < INTERVAL || !measurement.measured.compareAndSet(last, now)) {
+            return;
+        }
+        try {
+            measurement.bytes = size(session);
+        } catch (IllegalStateException ex) {
+            sessions.remove(session.getId());
+        }
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return the number of open sessions
+     */
+    public int getSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Gets the highest number of sessions open at the same time.
+     *
+     * @return the highest number of open sessions
+     */
+    public long getPeak() {
+        return peak.get();
+    }
+
+    /**
+     * Gets the average size of the open sessions, as measured at the end of
+     * their last requests.
+     *
+     * @return the average size of a session in bytes; 0 if none was measured
+     */
+    public long getEstimatedBytes() {
+        long total = 0;
+        int measured = 0;
+        for (Measurement measurement : sessions.values()) {
+            long bytes = measurement.bytes;
+            if (bytes >= 0) {
+                total += bytes;
+                measured++;
+            }
+        }
+        return measured == 0 ? 0 : total / measured;
+    }
+
+    /**
+     * Measures the serialized size of the attributes of a session. An
+     * attribute that cannot be serialized is skipped and logged once, as the
+     * server could not passivate or replicate it either.
+     *
+     * @param session the session
+     * @return the size in bytes
+     * @throws IllegalStateException if the session was invalidated meanwhile
+     */
+    private long size(HttpSession session) {
+        long bytes = 0;
+        Enumeration<String> names = session.getAttributeNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            CountingStream counter = new CountingStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(counter)) {
+                out.writeObject(name);
+                out.writeObject(session.getAttribute(name));
+            } catch (IllegalStateException ex) {
+                throw ex;
+            } catch (IOException | RuntimeException ex) {
+                if (unserializable.add(name)) {
+                    Logger.getLogger(SessionRegistry.class.getName()).log(Level.WARNING,
+                            "The session attribute " + name + " could not be serialized", ex);
+                }
+                continue;
+            }
+            bytes += counter.count;
+        }
+        return bytes;
+    }
+
+    /**
+     * The last measurement of a session.
+     */
+    private static class Measurement {
+
+        /**
+         * The point in time the session was measured last; 0 if it was never
+         * measured.
+         */
+        private final AtomicLong measured = new AtomicLong();
+
+        /**
+         * The size of the session in bytes; -1 if it was never measured.
+         */
+        private volatile long bytes = -1;
+    }
+
+    /**
+     * An OutputStream that only counts the written bytes.
+     */
+    private static class CountingStream extends OutputStream {
+
+        /**
+         * The number of written bytes.
+         */
+        private long count = 0;
+
+        /**
+         * Counts a byte.
+         *
+         * @param b the byte
+         */
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        /**
+         * Counts bytes.
+         *
+         * @param b the bytes
+         * @param off the offset of the first byte
+         * @param len the number of bytes
+         */
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
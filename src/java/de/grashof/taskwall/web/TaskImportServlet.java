@@ -0,0 +1,387 @@
+package de.grashof.taskwall.web;
+
+import de.grashof.taskwall.beans.PageParameters;
+import de.grashof.taskwall.beans.UserPrincipal;
+import de.grashof.taskwall.beans.persistence.TaskPersistence;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
+import de.grashof.taskwall.entity.Task;
+import de.grashof.taskwall.entity.UserSummary;
+import de.grashof.taskwall.transfer.CsvRowReader;
+import de.grashof.taskwall.transfer.JsonLinesRowReader;
+import de.grashof.taskwall.transfer.RowFormatException;
+import de.grashof.taskwall.transfer.RowReader;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Imports Tasks from a CSV file or a file of newline delimited JSON, sent as
+ * the body of a POST request with the parameter "format" set to "csv" or
+ * "ndjson". Every row names the columns recipient, title and due (yyyy-MM-dd)
+ * and optionally description and creator; without a creator the Tasks are
+ * created by the importing administrator.
+ * <p>
+ * The file is read row by row while it is uploaded and never held in memory
+ * as a whole. Recipients and creators are looked up in the UserDirectory
+ * without a query. The valid rows are stored in chunks, each in its own
+ * transaction, so an import of any size needs neither one huge transaction
+ * nor one transaction per Task. Invalid rows are skipped and reported with
+ * their line numbers.
+ * <p>
+ * The response is newline delimited JSON as well: one line with the progress
+ * after every stored chunk, and a last line with the result, including the
+ * throughput in rows per second. The request has to carry the header
+ * X-Requested-With, which forms of other sites cannot send.
+ *
+ * @author TaskWall-Team
+ */
+@WebServlet("/api/admin/import")
+public class TaskImportServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of Tasks stored in one transaction.
+     */
+    private static final int CHUNK = 1000;
+
+    /**
+     * The maximum number of invalid rows that are reported one by one.
+     */
+    private static final int MAX_ERRORS = 100;
+
+    /**
+     * The longest title the columns TASK.TITLE and TEAMWALLENTRY.TITLE can
+     * hold.
+     */
+    private static final int MAX_TITLE = 255;
+
+    /**
+     * The columns every row needs.
+     */
+    private static final String[] REQUIRED = {"recipient", "title", "due"};
+
+    /**
+     * The number of Tasks imported since the start of the application.
+     */
+    private static final AtomicLong imported = new AtomicLong();
+
+    /**
+     * The throughput of the last finished import in rows per second.
+     */
+    private static volatile long lastRowsPerSecond;
+
+    /**
+     * Used to find the recipients and creators.
+     */
+    @EJB
+    private UserDirectory userDirectory;
+
+    /**
+     * Used to store the Tasks.
+     */
+    @EJB
+    private TaskPersistence taskPersistence;
+
+    /**
+     * Imports the Tasks in the request body.
+     *
+     * @param request the request containing the file
+     * @param response the response the progress is written to
+     * @throws IOException if the file could not be read or the response could
+     * not be written
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.getHeader("X-Requested-With") == null) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        UserPrincipal principal = (UserPrincipal) request.getSession().getAttribute(UserPrincipal.SESSION_KEY);
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding("UTF-8");
+        }
+        String format = PageParameters.trim(request.getParameter("format"));
+        RowReader reader;
+        if ("csv".equals(format)) {
+            CsvRowReader csv;
+            try {
+                csv = new CsvRowReader(request.getReader());
+            } catch (IOException ex) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+                return;
+            }
+            for (String column : REQUIRED) {
+                if (!csv.getColumns().contains(column)) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Spalte fehlt: " + column);
+                    return;
+                }
+            }
+            reader = csv;
+        } else if ("ndjson".equals(format)) {
+            reader = new JsonLinesRowReader(request.getReader());
+        } else {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        PrintWriter out = response.getWriter();
+        Progress progress = new Progress();
+        List<Task> chunk = new ArrayList<>(CHUNK);
+        String failure = null;
+        try (RowReader rows = reader) {
+            while (true) {
+                Map<String, String> row;
+                try {
+                    row = rows.next();
+                } catch (RowFormatException ex) {
+                    progress.read++;
+                    progress.reject(ex.getLine(), ex.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                progress.read++;
+                String error = validate(row);
+                if (error != null) {
+                    progress.reject(rows.getLine(), error);
+                    continue;
+                }
+                chunk.add(toTask(row, principal.getId()));
+                if (chunk.size() == CHUNK) {
+                    store(chunk, progress);
+                    writeProgress(out, progress);
+                }
+            }
+            store(chunk, progress);
+        } catch (IOException | EJBException ex) {
+            Logger.getLogger(TaskImportServlet.class.getName()).log(Level.SEVERE, null, ex);
+            failure = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+        }
+        lastRowsPerSecond = progress.getRowsPerSecond();
+        writeResult(out, progress, failure);
+    }
+
+    /**
+     * Checks a row before the Task is created.
+     *
+     * @param row the values of the row by their column names
+     * @return the description of the problem; null if the row is valid
+     */
+    private String validate(Map<String, String> row) {
+        String recipient = PageParameters.trim(row.get("recipient"));
+        if (recipient.isEmpty()) {
+            return "Empfänger fehlt.";
+        }
+        if (userDirectory.findUser(recipient) == null) {
+            return "Benutzer existiert nicht: " + recipient;
+        }
+        String creator = PageParameters.trim(row.get("creator"));
+        if (!creator.isEmpty() && userDirectory.findUser(creator) == null) {
+            return "Benutzer existiert nicht: " + creator;
+        }
+        String title = PageParameters.trim(row.get("title"));
+        if (title.isEmpty()) {
+            return "Titel fehlt.";
+        }
+        if (title.length() > MAX_TITLE) {
+            return "Titel zu lang, höchstens " + MAX_TITLE + " Zeichen.";
+        }
+        if (PageParameters.parseDate(PageParameters.trim(row.get("due"))) == null) {
+            return "Ungültige Frist, erwartet yyyy-MM-dd.";
+        }
+        return null;
+    }
+
+    /**
+     * Creates the Task described by a valid row.
+     *
+     * @param row the values of the row by their column names
+     * @param importerId the id of the importing administrator
+     * @return the new Task
+     */
+    private Task toTask(Map<String, String> row, long importerId) {
+        UserSummary receiver = userDirectory.findUser(PageParameters.trim(row.get("recipient")));
+        String creator = PageParameters.trim(row.get("creator"));
+        long creatorId = creator.isEmpty() ? importerId : userDirectory.findUser(creator).getId();
+        String description = row.get("description");
+        Date due = PageParameters.parseDate(PageParameters.trim(row.get("due")));
+        return new Task(receiver.getId(), creatorId, PageParameters.trim(row.get("title")),
+                description == null ? "" : description, due);
+    }
+
+    /**
+     * Stores a chunk of Tasks in one transaction and empties it.
+     *
+     * @param chunk the Tasks
+     * @param progress the progress of the import
+     */
+    private void store(List<Task> chunk, Progress progress) {
+        int count = taskPersistence.importTasks(chunk);
+        chunk.clear();
+        progress.imported += count;
+        imported.addAndGet(count);
+    }
+
+    /**
+     * Writes one line with the progress of the import and sends it.
+     *
+     * @param out the response
+     * @param progress the progress of the import
+     */
+    private static void writeProgress(PrintWriter out, Progress progress) {
+        StringWriter line = new StringWriter();
+        try (JsonGenerator json = Json.createGenerator(line)) {
+            json.writeStartObject()
+                    .write("read", progress.read)
+                    .write("imported", progress.imported)
+                    .write("rejected", progress.rejected)
+                    .writeEnd();
+        }
+        out.println(line);
+        out.flush();
+    }
+
+    /**
+     * Writes the last line with the result of the import.
+     *
+     * @param out the response
+     * @param progress the progress of the import
+     * @param failure the reason the import was broken off; null if it was
+     * finished
+     */
+    private static void writeResult(PrintWriter out, Progress progress, String failure) {
+        StringWriter line = new StringWriter();
+        try (JsonGenerator json = Json.createGenerator(line)) {
+            json.writeStartObject()
+                    .write("done", failure == null)
+                    .write("read", progress.read)
+                    .write("imported", progress.imported)
+                    .write("rejected", progress.rejected)
+                    .write("millis", progress.getMillis())
+                    .write("rowsPerSecond", progress.getRowsPerSecond());
+            if (failure != null) {
+                json.write("failure", failure);
+            }
+            json.writeStartArray("errors");
+            for (int i = 0; i < progress.errors.size(); i++) {
+                json.writeStartObject()
+                        .write("line", progress.lines.get(i))
+                        .write("message", progress.errors.get(i))
+                        .writeEnd();
+            }
+            json.writeEnd().writeEnd();
+        }
+        out.println(line);
+        out.flush();
+    }
+
+    /**
+     * Gets the number of Tasks imported since the start of the application.
+     *
+     * @return the number of imported Tasks
+     */
+    public static long getImported() {
+        return imported.get();
+    }
+
+    /**
+     * Gets the throughput of the last finished import.
+     *
+     * @return the number of read rows per second; 0 if there was no import
+     */
+    public static long getLastRowsPerSecond() {
+        return lastRowsPerSecond;
+    }
+
+    /**
+     * The counters and reported errors of one import.
+     */
+    private static class Progress {
+
+        /**
+         * The time the import started in nanoseconds.
+         */
+        private final long start = System.nanoTime();
+
+        /**
+         * The number of read rows, including the invalid ones.
+         */
+        private long read;
+
+        /**
+         * The number of stored Tasks.
+         */
+        private long imported;
+
+        /**
+         * The number of invalid rows.
+         */
+        private long rejected;
+
+        /**
+         * The lines of the first invalid rows.
+         */
+        private final List<Long> lines = new ArrayList<>();
+
+        /**
+         * The problems of the first invalid rows.
+         */
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Counts an invalid row and remembers the problem, as long as not too
+         * many were reported.
+         *
+         * @param line the line the row started in
+         * @param error the description of the problem
+         */
+        private void reject(long line, String error) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                lines.add(line);
+                errors.add(error);
+            }
+        }
+
+        /**
+         * Gets the time since the start of the import.
+         *
+         * @return the time in milliseconds
+         */
+        private long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        /**
+         * Gets the throughput of the import so far.
+         *
+         * @return the number of read rows per second
+         */
+        private long getRowsPerSecond() {
+            return read * 1000 / Math.max(1, getMillis());
+        }
+    }
+}
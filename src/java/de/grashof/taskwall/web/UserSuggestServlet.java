@@ -0,0 +1,87 @@
+package de.grashof.taskwall.web;
+
+import de.grashof.taskwall.beans.PageParameters;
+import de.grashof.taskwall.beans.persistence.UserDirectory;
+import de.grashof.taskwall.entity.UserSummary;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import javax.ejb.EJB;
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Suggests recipients while the user types a username or e-mail address. It
+ * answers GET requests with the parameter "q" with a JSON array of the users
+ * whose username, or e-mail address once the text contains an "@", starts
+ * with it. The users are taken from the UserDirectory, so no keystroke
+ * queries the database, and the request does not go through the JSF
+ * lifecycle.
+ * <p>
+ * Every entry holds the id, the username and the value that should be put
+ * into the input field. An e-mail address is only returned for a text
+ * containing its whole part before the "@", so finding an address needs that
+ * part already.
+ *
+ * @author TaskWall-Team
+ */
+@WebServlet("/api/users")
+public class UserSuggestServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximum number of suggested users.
+     */
+    private static final int MAX_SUGGESTIONS = 10;
+
+    /**
+     * The longest prefix that is looked up.
+     */
+    private static final int MAX_LENGTH = 100;
+
+    /**
+     * Used to find the users.
+     */
+    @EJB
+    private UserDirectory userDirectory;
+
+    /**
+     * Writes the users matching the typed prefix.
+     *
+     * @param request the request containing the prefix
+     * @param response the response the users are written to
+     * @throws IOException if the response could not be written
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String prefix = PageParameters.trim(request.getParameter("q"));
+        if (prefix.length() > MAX_LENGTH) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        List<UserSummary> users = userDirectory.suggest(prefix, MAX_SUGGESTIONS);
+        String typed = prefix.toLowerCase(Locale.ROOT);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        try (JsonGenerator json = Json.createGenerator(response.getWriter())) {
+            json.writeStartArray();
+            for (UserSummary user : users) {
+                boolean byUsername = user.getUsername().toLowerCase(Locale.ROOT).startsWith(typed);
+                json.writeStartObject()
+                        .write("id", user.getId())
+                        .write("username", user.getUsername())
+                        .write("value", byUsername ? user.getUsername() : user.getEmail())
+                        .writeEnd();
+            }
+            json.writeEnd();
+        }
+    }
+}
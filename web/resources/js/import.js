@@ -0,0 +1,69 @@
+/*
+ * Uploads the file chosen in a form with the attribute data-import, which
+ * names the URL importing it, as the body of a POST request. The lines of
+ * the answer are shown in the element named by the attribute data-progress
+ * while they arrive, so the progress of a long import can be followed.
+ *
+ * @author TaskWall-Team
+ */
+(function () {
+    "use strict";
+
+    function attach(form) {
+        var output = document.getElementById(form.getAttribute("data-progress"));
+        var url = form.getAttribute("data-import");
+
+        function report(line) {
+            var result = JSON.parse(line);
+            var text = result.read + " Zeilen gelesen, " + result.imported + " Aufgaben importiert, "
+                    + result.rejected + " Zeilen abgewiesen";
+            if (result.hasOwnProperty("rowsPerSecond")) {
+                text += ", " + result.rowsPerSecond + " Zeilen/s";
+                if (result.failure) {
+                    text += "\nAbgebrochen: " + result.failure;
+                }
+                for (var i = 0; i < result.errors.length; i++) {
+                    text += "\nZeile " + result.errors[i].line + ": " + result.errors[i].message;
+                }
+            }
+            output.textContent = text;
+        }
+
+        form.addEventListener("submit", function (event) {
+            event.preventDefault();
+            var file = form.elements.file.files[0];
+            if (!file) {
+                return;
+            }
+            var format = /\.csv$/i.test(file.name) ? "csv" : "ndjson";
+            var request = new XMLHttpRequest();
+            var seen = 0;
+            request.open("POST", url + "?format=" + format);
+            request.setRequestHeader("Content-Type", format === "csv" ? "text/csv" : "application/x-ndjson");
+            request.setRequestHeader("X-Requested-With", "XMLHttpRequest");
+            request.onprogress = function () {
+                var end = request.responseText.lastIndexOf("\n");
+                if (end > seen) {
+                    var lines = request.responseText.slice(seen, end).split("\n");
+                    seen = end + 1;
+                    report(lines[lines.length - 1]);
+                }
+            };
+            request.onload = function () {
+                if (request.status !== 200) {
+                    output.textContent = "Import fehlgeschlagen: " + request.status + " " + request.statusText;
+                    return;
+                }
+                var lines = request.responseText.trim().split("\n");
+                report(lines[lines.length - 1]);
+            };
+            output.textContent = "Import läuft …";
+            request.send(file);
+        });
+    }
+
+    var forms = document.querySelectorAll("form[data-import]");
+    for (var i = 0; i < forms.length; i++) {
+        attach(forms[i]);
+    }
+})();
@@ -0,0 +1,85 @@
+/*
+ * Suggests recipients while usernames or e-mail addresses are typed into an
+ * input with the attribute data-suggest, which names the URL answering with
+ * the matching users. Several recipients are separated by commas or
+ * semicolons; the suggestions for the last one are shown in the datalist of
+ * the input. The ids of the chosen suggestions are put into the hidden input
+ * named by the attribute data-target, so the recipients do not have to be
+ * looked up by name again.
+ *
+ * @author TaskWall-Team
+ */
+(function () {
+    "use strict";
+
+    function attach(input) {
+        var list = document.getElementById(input.getAttribute("list"));
+        var target = document.getElementById(input.getAttribute("data-target"));
+        var url = input.getAttribute("data-suggest");
+        var pending = null;
+        var known = {};
+
+        function split() {
+            var names = input.value.split(/[,;]/);
+            for (var i = 0; i < names.length; i++) {
+                names[i] = names[i].trim();
+            }
+            return names;
+        }
+
+        function choose() {
+            var names = split();
+            var ids = [];
+            for (var i = 0; i < names.length; i++) {
+                if (known.hasOwnProperty(names[i])) {
+                    ids.push(known[names[i]]);
+                }
+            }
+            target.value = ids.join(",");
+        }
+
+        function show(typed, found) {
+            var before = typed.slice(0, -1).join(", ");
+            while (list.firstChild) {
+                list.removeChild(list.firstChild);
+            }
+            for (var i = 0; i < found.length; i++) {
+                known[found[i].value] = found[i].id;
+                var option = document.createElement("option");
+                option.value = (before ? before + ", " : "") + found[i].value;
+                option.label = found[i].username;
+                list.appendChild(option);
+            }
+            choose();
+        }
+
+        input.addEventListener("input", function () {
+            choose();
+            if (pending !== null) {
+                pending.abort();
+                pending = null;
+            }
+            var typed = split();
+            var last = typed[typed.length - 1];
+            if (last.length === 0) {
+                show(typed, []);
+                return;
+            }
+            var request = new XMLHttpRequest();
+            request.open("GET", url + "?q=" + encodeURIComponent(last));
+            request.onload = function () {
+                pending = null;
+                if (request.status === 200) {
+                    show(typed, JSON.parse(request.responseText));
+                }
+            };
+            request.send();
+            pending = request;
+        });
+    }
+
+    var inputs = document.querySelectorAll("input[data-suggest]");
+    for (var i = 0; i < inputs.length; i++) {
+        attach(inputs[i]);
+    }
+})();